@@ -0,0 +1,183 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Debug;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.chanakira.orbit.core.DisplayList;
+import com.chanakira.orbit.core.FaceGeometry;
+import com.chanakira.orbit.core.FaceState;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.OrbitTable;
+import com.chanakira.orbit.core.WallClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays an hour of ambient wake-ups, one time tick per minute plus a few other wake-ups in
+ * between, and checks that the frame is painted once per minute and that the cached wake-ups
+ * cost less CPU time than painting every one. Times are logged under the class name.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AmbientRendererTest {
+
+    private static final String TAG = AmbientRendererTest.class.getSimpleName();
+
+    private static final int SURFACE_SIZE = 390;
+    private static final int MINUTES = 60;
+
+    /* Wake-ups per minute besides the time tick, e.g. complication updates. */
+    private static final int EXTRA_WAKEUPS = 3;
+
+    /* 2018-06-01 10:00 UTC. */
+    private static final long START_MS = 1527847200000L;
+
+    private NumberLabels mLabels;
+    private Theme mTheme;
+    private OrbitTable mHourOrbit;
+    private OrbitTable mMinuteOrbit;
+    private FaceGeometry mGeometry;
+    private final WallClock mWallClock = new WallClock(TimeZone.getTimeZone("UTC"));
+    private final FaceState mFaceState = new FaceState();
+    private AmbientRenderer mRenderer;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    private final FrameRenderer.OpPainter mPainter = new FrameRenderer.OpPainter() {
+        @Override
+        public void paint(Canvas canvas, DisplayList list, int index) {
+            final int role = list.getRole(index);
+            switch (list.getType(index)) {
+                case DisplayList.OP_CIRCLE:
+                    canvas.drawCircle(list.getX(index), list.getY(index), list.getRadius(index),
+                            mTheme.getOutlinePaint());
+                    break;
+                case DisplayList.OP_TEXT:
+                    canvas.drawText(mLabels.get(list.getValue(index)), list.getX(index),
+                            list.getY(index) + mTheme.getBaselineOffset(role), mTheme.getTextPaint(role));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void flush(Canvas canvas) {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mLabels = new NumberLabels(Locale.US);
+        mTheme = ThemeCompiler.compile(OrbitConfig.DEFAULT, mLabels)[ThemeCompiler.MODE_LOW_BIT_AMBIENT];
+        mGeometry = new FaceGeometry(SURFACE_SIZE, SURFACE_SIZE);
+        mHourOrbit = mGeometry.newHourOrbit(0);
+        mMinuteOrbit = mGeometry.newMinuteOrbit(0);
+        mRenderer = new AmbientRenderer(SURFACE_SIZE, SURFACE_SIZE);
+        mBitmap = Bitmap.createBitmap(SURFACE_SIZE, SURFACE_SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @After
+    public void tearDown() {
+        mRenderer.recycle();
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void paintsOncePerMinute() {
+        replay(true);
+
+        assertEquals(MINUTES, mRenderer.getRenderCount());
+        assertEquals(MINUTES * (1 + EXTRA_WAKEUPS), mRenderer.getDrawCount());
+    }
+
+    @Test
+    public void cachedWakeupsAreCheaper() {
+        /* Warm up both paths before measuring. */
+        replay(false);
+        replay(true);
+
+        final long uncachedNanos = replay(false);
+        final long cachedNanos = replay(true);
+
+        Log.i(TAG, String.format(Locale.US, "per wake-up: painted %d us, cached %d us",
+                uncachedNanos / 1000 / (MINUTES * (1 + EXTRA_WAKEUPS)),
+                cachedNanos / 1000 / (MINUTES * (1 + EXTRA_WAKEUPS))));
+        assertTrue("cached " + cachedNanos + " ns, painted " + uncachedNanos + " ns",
+                cachedNanos < uncachedNanos);
+    }
+
+    @Test
+    public void lowBitFramesAreTwoLevel() {
+        replay(true);
+
+        final int[] pixels = new int[SURFACE_SIZE * SURFACE_SIZE];
+        mBitmap.getPixels(pixels, 0, SURFACE_SIZE, 0, 0, SURFACE_SIZE, SURFACE_SIZE);
+        int lit = 0;
+        for (int pixel : pixels) {
+            assertTrue(Integer.toHexString(pixel), pixel == Color.BLACK || pixel == Color.WHITE);
+            if (pixel == Color.WHITE) {
+                lit++;
+            }
+        }
+        assertTrue(lit > 0);
+    }
+
+    /**
+     * Replays {@link #MINUTES} minutes of wake-ups, drawing from the cache when it is still valid
+     * if {@code cached}, and returns the CPU time spent.
+     */
+    private long replay(boolean cached) {
+        mRenderer.invalidate();
+        final long start = Debug.threadCpuTimeNanos();
+        for (int minute = 0; minute < MINUTES; minute++) {
+            for (int wakeup = 0; wakeup <= EXTRA_WAKEUPS; wakeup++) {
+                wakeUp(START_MS + minute * 60000L + wakeup * 60000L / (1 + EXTRA_WAKEUPS), cached);
+            }
+        }
+        return Debug.threadCpuTimeNanos() - start;
+    }
+
+    /**
+     * Does what the engine does on an ambient wake-up at {@code nowMs}.
+     */
+    private void wakeUp(long nowMs, boolean cached) {
+        mWallClock.update(nowMs);
+        mFaceState.update(mWallClock, false);
+        final long minuteKey = mFaceState.getMinuteKey();
+        if (!cached || !mRenderer.isValid(minuteKey)) {
+            record(mRenderer.beginFrame());
+            mRenderer.endFrame(mPainter, minuteKey);
+        }
+        mRenderer.draw(mCanvas, mTheme, null, true, minuteKey);
+    }
+
+    private void record(DisplayList list) {
+        final float hourRadius = mGeometry.getCenterX() * FaceGeometry.HOUR_RADIUS_RATIO;
+        final float minuteRadius = mGeometry.getCenterX() * FaceGeometry.MINUTES_RADIUS_RATIO;
+        final int hour = mFaceState.getHour();
+        final int minute = mFaceState.getMinute();
+
+        list.addClear(mTheme.getBackgroundColor(), SURFACE_SIZE, SURFACE_SIZE);
+        list.addCircle(Theme.ROLE_HOUR, mHourOrbit.getX(0), mHourOrbit.getY(0), hourRadius, 0);
+        list.addText(Theme.ROLE_HOUR, hour, mHourOrbit.getX(0), mHourOrbit.getY(0),
+                mTheme.getLabelHalfWidth(Theme.ROLE_HOUR), mTheme.getLabelHalfHeight(Theme.ROLE_HOUR));
+        list.addCircle(Theme.ROLE_MINUTE, mMinuteOrbit.getX(minute), mMinuteOrbit.getY(minute), minuteRadius, 0);
+        list.addText(Theme.ROLE_MINUTE, minute, mMinuteOrbit.getX(minute), mMinuteOrbit.getY(minute),
+                mTheme.getLabelHalfWidth(Theme.ROLE_MINUTE), mTheme.getLabelHalfHeight(Theme.ROLE_MINUTE));
+    }
+}
@@ -0,0 +1,86 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the device part of the engine's startup that the core startup benchmark cannot:
+ * loading the preferences, compiling the themes and rendering the label atlases on the warm-up
+ * thread, and the time until the result reaches the main thread. Results are logged under the
+ * class name: {@code adb logcat -s EngineStartupBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EngineStartupBenchmark {
+
+    private static final String TAG = EngineStartupBenchmark.class.getSimpleName();
+
+    private static final int ROUNDS = 20;
+
+    /* The warm-up must finish well within the first second of the face. */
+    private static final long BUDGET_MS = 500;
+
+    private static final Locale[] LOCALES = {Locale.US, Locale.forLanguageTag("ar-EG")};
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    @Test
+    public void warmup() {
+        for (Locale locale : LOCALES) {
+            final EngineWarmup warmup = new EngineWarmup(mContext, SystemTimeSource.INSTANCE, null);
+            long totalMs = 0;
+            long longestMs = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                final EngineWarmup.Result result = warmup.warm(locale);
+                totalMs += result.getDurationMs();
+                longestMs = Math.max(longestMs, result.getDurationMs());
+                result.recycle();
+            }
+
+            Log.i(TAG, String.format(Locale.US, "%s: warm-up %d ms on average, %d ms longest",
+                    locale, totalMs / ROUNDS, longestMs));
+            assertTrue(locale + " took " + longestMs + " ms", longestMs < BUDGET_MS);
+        }
+    }
+
+    @Test
+    public void warmupReachesTheMainThread() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final EngineWarmup.Result[] results = new EngineWarmup.Result[1];
+        final EngineWarmup warmup = new EngineWarmup(mContext, SystemTimeSource.INSTANCE,
+                new EngineWarmup.Callback() {
+                    @Override
+                    public void onWarm(EngineWarmup.Result result) {
+                        results[0] = result;
+                        done.countDown();
+                    }
+                });
+
+        final long startMs = SystemClock.uptimeMillis();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                warmup.start(Locale.getDefault());
+            }
+        });
+        assertTrue(done.await(BUDGET_MS, TimeUnit.MILLISECONDS));
+        final long deliveredMs = SystemClock.uptimeMillis() - startMs;
+
+        assertNotNull(results[0]);
+        Log.i(TAG, String.format(Locale.US, "warm-up delivered after %d ms (%d ms on the warm-up thread)",
+                deliveredMs, results[0].getDurationMs()));
+        results[0].recycle();
+    }
+}
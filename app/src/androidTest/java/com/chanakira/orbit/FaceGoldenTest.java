@@ -0,0 +1,364 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.chanakira.orbit.config.ConfigMenu;
+import com.chanakira.orbit.core.AdaptiveRefreshPolicy;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.RefreshController;
+import com.chanakira.orbit.core.SimulatedTimeSource;
+import com.chanakira.orbit.core.Stopwatch;
+import com.chanakira.orbit.core.WakeupScheduler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Golden-image test of the face on round and square surfaces, interactive and ambient, in each
+ * of the 21 colors of the color picker as the satellite color. Every configuration is drawn by
+ * the engine's {@link FaceRenderer}, frame by frame as the engine drives it, at a fixed time
+ * from a {@link SimulatedTimeSource}. The configurations are rendered in parallel, one per core,
+ * and compared with their goldens in the test assets; their render times are logged under the
+ * class name: {@code adb logcat -s FaceGoldenTest}.
+ *
+ * To record the goldens, run the test with
+ * {@code -Pandroid.testInstrumentationRunnerArguments.recordGoldens=true}: every render is then
+ * written to the {@code goldens} directory of the app's external files, from where it is pulled
+ * into {@code app/src/androidTest/assets/goldens}. A configuration without a golden fails.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FaceGoldenTest {
+
+    private static final String TAG = FaceGoldenTest.class.getSimpleName();
+
+    private static final String RECORD_ARGUMENT = "recordGoldens";
+    private static final String GOLDEN_DIRECTORY = "goldens";
+
+    /* Round screens only show the circle inscribed in the surface, square ones all of it. */
+    private static final int ROUND_SIZE = 390;
+    private static final int SQUARE_SIZE = 320;
+
+    /* 10:10:35 UTC on 10 October 2018, the time of the color previews, with no satellites overlapping. */
+    private static final long TIME_MS = 1539166235000L;
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("UTC");
+    private static final Locale LOCALE = Locale.US;
+
+    /* The engine's stillness threshold; simulated time stands still, so the seconds stay shown. */
+    private static final long STILL_THRESHOLD_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /* Full repaints timed after the first frame of each configuration. */
+    private static final int REPAINT_ROUNDS = 20;
+
+    /*
+     * A pixel matches if no channel is off by more than CHANNEL_TOLERANCE, and an image if at
+     * most MAX_DIFFERING_PIXELS do not, which allows for anti-aliasing and font rasterization
+     * differences between devices.
+     */
+    private static final int CHANNEL_TOLERANCE = 8;
+    private static final int MAX_DIFFERING_PIXELS = 64;
+
+    private static final WakeupScheduler.Callback NO_WAKEUPS = new WakeupScheduler.Callback() {
+        @Override
+        public void onRedraw() {
+        }
+
+        @Override
+        public void scheduleTimer(long delayMs) {
+        }
+
+        @Override
+        public void cancelTimer() {
+        }
+
+        @Override
+        public void onTimerLatency(long latencyMs) {
+        }
+    };
+
+    private static final RefreshController.Callback NO_FRAMES = new RefreshController.Callback() {
+        @Override
+        public void startFrames(int framesPerSecond) {
+        }
+
+        @Override
+        public void stopFrames() {
+        }
+
+        @Override
+        public void onBurstChanged(boolean bursting) {
+        }
+    };
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    @Test
+    public void matchesGoldens() throws Exception {
+        final boolean record = Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString(RECORD_ARGUMENT));
+        final File recordDirectory = record ? recordDirectory() : null;
+
+        final List<Configuration> configurations = new ArrayList<>();
+        for (boolean round : new boolean[]{true, false}) {
+            for (boolean ambient : new boolean[]{false, true}) {
+                for (int color : ConfigMenu.getColorOptionsDataSet()) {
+                    configurations.add(new Configuration(round, ambient, color));
+                }
+            }
+        }
+        final ComplicationSlot[][] complications = newComplications(configurations.size());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        final List<Future<String>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < configurations.size(); i++) {
+                final Configuration configuration = configurations.get(i);
+                final ComplicationSlot[] slots = complications[i];
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        return check(configuration, slots, recordDirectory);
+                    }
+                }));
+            }
+
+            final List<String> failures = new ArrayList<>();
+            for (Future<String> result : results) {
+                final String failure = result.get();
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+            assertTrue(failures.size() + " of " + configurations.size() + " differ: " + failures, failures.isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates the empty complication slots of each configuration on the main thread, as the
+     * engine does.
+     */
+    private ComplicationSlot[][] newComplications(final int count) {
+        final ComplicationSlot[][] complications = new ComplicationSlot[count][];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    complications[i] = new ComplicationSlot[]{
+                            new ComplicationSlot(mContext),
+                            new ComplicationSlot(mContext)
+                    };
+                }
+            }
+        });
+        return complications;
+    }
+
+    /**
+     * Renders {@code configuration}, logs its render times and compares it with its golden, or
+     * writes it to {@code recordDirectory} if not null. Returns why it does not match, or null.
+     */
+    private String check(Configuration configuration, ComplicationSlot[] complications, File recordDirectory)
+            throws IOException {
+        final SimulatedTimeSource timeSource = new SimulatedTimeSource(TIME_MS);
+        final WakeupScheduler wakeupScheduler = new WakeupScheduler(timeSource, NO_WAKEUPS);
+        final RefreshController refreshController = new RefreshController(timeSource,
+                new AdaptiveRefreshPolicy(STILL_THRESHOLD_MS), wakeupScheduler, NO_FRAMES);
+        final Stopwatch stopwatch = new Stopwatch();
+        refreshController.setVisible(true);
+        refreshController.setAmbient(configuration.mAmbient);
+
+        final FaceRenderer renderer = new FaceRenderer(TIME_ZONE, refreshController, stopwatch,
+                complications, new FrameStats(), new FrameTracer());
+        final int size = configuration.mRound ? ROUND_SIZE : SQUARE_SIZE;
+        renderer.setSurfaceSize(size, size);
+
+        final NumberLabels labels = new NumberLabels(LOCALE);
+        final OrbitConfig config = new OrbitConfig.Builder(OrbitConfig.DEFAULT)
+                .setSatelliteColor(configuration.mColor)
+                .build();
+        renderer.setWarm(labels, config, ThemeCompiler.compile(config, labels), null, null, null);
+        renderer.setAmbient(configuration.mAmbient);
+
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        try {
+            long start = System.nanoTime();
+            drawFrame(canvas, renderer, refreshController, wakeupScheduler, stopwatch, timeSource);
+            final long firstFrameNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int round = 0; round < REPAINT_ROUNDS; round++) {
+                renderer.invalidateFrame();
+                drawFrame(canvas, renderer, refreshController, wakeupScheduler, stopwatch, timeSource);
+            }
+            final long repaintNanos = (System.nanoTime() - start) / REPAINT_ROUNDS;
+
+            Log.i(TAG, String.format(Locale.US, "%s: first frame %d us, full repaint %d us",
+                    configuration.getName(), firstFrameNanos / 1000, repaintNanos / 1000));
+
+            if (recordDirectory != null) {
+                write(bitmap, new File(recordDirectory, configuration.getName() + ".png"));
+                return null;
+            }
+            return compare(configuration, bitmap);
+        } finally {
+            bitmap.recycle();
+            renderer.release();
+            for (ComplicationSlot complication : complications) {
+                complication.recycle();
+            }
+        }
+    }
+
+    /**
+     * Draws one frame the way {@code OrbitWatchFace.Engine.onDraw} does.
+     */
+    private static void drawFrame(Canvas canvas, FaceRenderer renderer, RefreshController refreshController,
+                                  WakeupScheduler wakeupScheduler, Stopwatch stopwatch,
+                                  SimulatedTimeSource timeSource) {
+        refreshController.onFrame();
+        renderer.draw(canvas, timeSource.currentTimeMillis(),
+                stopwatch.getElapsedMillis(timeSource.elapsedRealtime()), LOCALE);
+        wakeupScheduler.onFrameDrawn();
+    }
+
+    /**
+     * Returns why {@code bitmap} does not match the golden of {@code configuration}, or null
+     * if it does. Round surfaces are only compared inside their circle.
+     */
+    private static String compare(Configuration configuration, Bitmap bitmap) {
+        final Bitmap golden = readGolden(configuration.getName() + ".png");
+        if (golden == null) {
+            return configuration.getName() + " has no golden";
+        }
+
+        try {
+            final int width = bitmap.getWidth();
+            final int height = bitmap.getHeight();
+            if (golden.getWidth() != width || golden.getHeight() != height) {
+                return configuration.getName() + " is " + width + "x" + height
+                        + ", its golden " + golden.getWidth() + "x" + golden.getHeight();
+            }
+
+            final int[] pixels = new int[width * height];
+            final int[] goldenPixels = new int[width * height];
+            bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            golden.getPixels(goldenPixels, 0, width, 0, 0, width, height);
+
+            final float radius = width / 2f;
+            int differing = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    final float dx = x + 0.5f - radius;
+                    final float dy = y + 0.5f - radius;
+                    if (configuration.mRound && dx * dx + dy * dy > radius * radius) {
+                        continue;
+                    }
+                    if (!matches(pixels[y * width + x], goldenPixels[y * width + x])) {
+                        differing++;
+                    }
+                }
+            }
+
+            if (differing > MAX_DIFFERING_PIXELS) {
+                return configuration.getName() + " has " + differing + " differing pixels";
+            }
+            return null;
+        } finally {
+            golden.recycle();
+        }
+    }
+
+    private static boolean matches(int pixel, int goldenPixel) {
+        return Math.abs(Color.alpha(pixel) - Color.alpha(goldenPixel)) <= CHANNEL_TOLERANCE
+                && Math.abs(Color.red(pixel) - Color.red(goldenPixel)) <= CHANNEL_TOLERANCE
+                && Math.abs(Color.green(pixel) - Color.green(goldenPixel)) <= CHANNEL_TOLERANCE
+                && Math.abs(Color.blue(pixel) - Color.blue(goldenPixel)) <= CHANNEL_TOLERANCE;
+    }
+
+    /**
+     * Reads a golden from the test assets, or returns null if there is none.
+     */
+    private static Bitmap readGolden(String name) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        try {
+            final InputStream in = InstrumentationRegistry.getContext().getAssets().open(GOLDEN_DIRECTORY + "/" + name);
+            try {
+                return BitmapFactory.decodeStream(in, null, options);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private File recordDirectory() {
+        File directory = mContext.getExternalFilesDir(GOLDEN_DIRECTORY);
+        if (directory == null) {
+            directory = new File(mContext.getFilesDir(), GOLDEN_DIRECTORY);
+        }
+        assertTrue(directory.getAbsolutePath(), directory.isDirectory() || directory.mkdirs());
+        Log.i(TAG, "Recording goldens to " + directory.getAbsolutePath());
+        return directory;
+    }
+
+    private static void write(Bitmap bitmap, File file) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * One cell of the matrix: the surface shape, the mode and the satellite color.
+     */
+    private static final class Configuration {
+        final boolean mRound;
+        final boolean mAmbient;
+        final int mColor;
+
+        Configuration(boolean round, boolean ambient, int color) {
+            mRound = round;
+            mAmbient = ambient;
+            mColor = color;
+        }
+
+        /**
+         * Returns the file name of the golden, without its extension, e.g.
+         * {@code round-ambient-FFC107}.
+         */
+        String getName() {
+            return String.format(Locale.US, "%s-%s-%06X", mRound ? "round" : "square",
+                    mAmbient ? "ambient" : "interactive", mColor & 0xFFFFFF);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.chanakira.orbit.core.FaceGeometry;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.OrbitTable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares drawing the satellite labels with {@link Canvas#drawText} against blitting them from
+ * a {@link LabelAtlas}, per role and display mode, on a software canvas the size of a watch
+ * screen. Results are logged per label, under the class name:
+ * {@code ./gradlew connectedAndroidTest} and {@code adb logcat -s LabelAtlasBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LabelAtlasBenchmark {
+
+    private static final String TAG = LabelAtlasBenchmark.class.getSimpleName();
+
+    private static final int SURFACE_SIZE = 390;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 500;
+
+    private NumberLabels mLabels;
+    private Theme[] mThemes;
+    private OrbitTable mOrbit;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mLabels = new NumberLabels(Locale.US);
+        mThemes = ThemeCompiler.compile(OrbitConfig.DEFAULT, mLabels);
+        mOrbit = new FaceGeometry(SURFACE_SIZE, SURFACE_SIZE).newMinuteOrbit(0);
+        mBitmap = Bitmap.createBitmap(SURFACE_SIZE, SURFACE_SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @After
+    public void tearDown() {
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void hourLabels() {
+        compare("hour", Theme.ROLE_HOUR, ThemeCompiler.MODE_INTERACTIVE, 24);
+        compare("hour ambient", Theme.ROLE_HOUR, ThemeCompiler.MODE_AMBIENT, 24);
+    }
+
+    @Test
+    public void minuteLabels() {
+        compare("minute", Theme.ROLE_MINUTE, ThemeCompiler.MODE_INTERACTIVE, NumberLabels.LABEL_COUNT);
+        compare("minute ambient", Theme.ROLE_MINUTE, ThemeCompiler.MODE_AMBIENT, NumberLabels.LABEL_COUNT);
+    }
+
+    @Test
+    public void secondLabels() {
+        compare("second", Theme.ROLE_SECOND, ThemeCompiler.MODE_INTERACTIVE, NumberLabels.LABEL_COUNT);
+        compare("second mute", Theme.ROLE_SECOND, ThemeCompiler.MODE_MUTE, NumberLabels.LABEL_COUNT);
+    }
+
+    /**
+     * Draws labels 0 to {@code count - 1} around an orbit both ways and logs the time per label.
+     */
+    private void compare(String name, int role, int mode, int count) {
+        final Theme theme = mThemes[mode];
+        final Paint paint = theme.getTextPaint(role);
+        final LabelAtlas atlas = new LabelAtlas(mThemes[ThemeCompiler.MODE_INTERACTIVE].getTextPaint(role),
+                mLabels, count);
+        try {
+            final long textNanos = measure(null, theme, paint, role, count);
+            final long atlasNanos = measure(atlas, theme, paint, role, count);
+
+            Log.i(TAG, String.format(Locale.US, "%s: drawText %d ns, atlas %d ns per label (%.2fx)",
+                    name, textNanos, atlasNanos, (double) textNanos / Math.max(1, atlasNanos)));
+            assertTrue(textNanos > 0 && atlasNanos > 0);
+        } finally {
+            atlas.recycle();
+        }
+    }
+
+    /**
+     * Returns the average time to draw one label, with {@code atlas} or with text if null.
+     */
+    private long measure(LabelAtlas atlas, Theme theme, Paint paint, int role, int count) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            drawLabels(atlas, theme, paint, role, count);
+        }
+
+        final long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            drawLabels(atlas, theme, paint, role, count);
+        }
+        return (System.nanoTime() - start) / ((long) ROUNDS * count);
+    }
+
+    private void drawLabels(LabelAtlas atlas, Theme theme, Paint paint, int role, int count) {
+        final float baselineOffset = theme.getBaselineOffset(role);
+        for (int i = 0; i < count; i++) {
+            final float x = mOrbit.getX(i);
+            final float y = mOrbit.getY(i);
+            if (atlas != null) {
+                atlas.draw(mCanvas, i, x, y, paint, !theme.isAntiAlias());
+            } else {
+                mCanvas.drawText(mLabels.get(i), x, y + baselineOffset, paint);
+            }
+        }
+    }
+}
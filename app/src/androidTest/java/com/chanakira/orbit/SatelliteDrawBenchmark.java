@@ -0,0 +1,169 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.chanakira.orbit.core.FaceGeometry;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.OrbitTable;
+import com.chanakira.orbit.core.SatelliteSpec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Per-frame draw cost of the satellites against their number, the drawing half of the core
+ * {@code SatelliteLayoutBenchmark}: every satellite's outline and label batched in a
+ * {@link SatelliteBatch} and flushed to a software canvas the size of a watch screen, with the
+ * labels drawn as text and from atlases. Results are logged under the class name:
+ * {@code ./gradlew connectedAndroidTest} and {@code adb logcat -s SatelliteDrawBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SatelliteDrawBenchmark {
+
+    private static final String TAG = SatelliteDrawBenchmark.class.getSimpleName();
+
+    private static final int SURFACE_SIZE = 390;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 500;
+
+    /* The satellites of the core benchmark, with the paint roles of the face. */
+    private static final SatelliteSpec[] ALL_SATELLITES = {
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0, FaceGeometry.HOUR_RADIUS_RATIO,
+                    Theme.ROLE_HOUR, SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE, FaceGeometry.MINUTES_RADIUS_RATIO,
+                    Theme.ROLE_MINUTE, SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, FaceGeometry.SECONDS_DISTANCE, FaceGeometry.SECONDS_RADIUS_RATIO,
+                    Theme.ROLE_SECOND, SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_DAY_OF_MONTH, 0.45f, 0.08f,
+                    Theme.ROLE_SECOND, SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR_OF_DAY, 0.95f, 0.05f,
+                    Theme.ROLE_SECOND, SatelliteSpec.OUTLINE_NEVER),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, 0.55f, 0.05f,
+                    Theme.ROLE_SECOND, SatelliteSpec.OUTLINE_NEVER),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, 0.6f, 0.05f,
+                    Theme.ROLE_SECOND, SatelliteSpec.OUTLINE_NEVER),
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0.3f, 0.05f,
+                    Theme.ROLE_SECOND, SatelliteSpec.OUTLINE_NEVER)
+    };
+
+    private static final int[] SATELLITE_COUNTS = {3, 5, 8};
+
+    private NumberLabels mLabels;
+    private Theme mTheme;
+    private FaceGeometry mGeometry;
+    private OrbitTable[] mOrbits;
+    private float[] mRadii;
+    private LabelAtlas[] mAtlases;
+    private SatelliteBatch mBatch;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mLabels = new NumberLabels(Locale.US);
+        mTheme = ThemeCompiler.compile(OrbitConfig.DEFAULT, mLabels)[ThemeCompiler.MODE_INTERACTIVE];
+        mGeometry = new FaceGeometry(SURFACE_SIZE, SURFACE_SIZE);
+
+        mOrbits = new OrbitTable[ALL_SATELLITES.length];
+        mRadii = new float[ALL_SATELLITES.length];
+        for (int i = 0; i < ALL_SATELLITES.length; i++) {
+            final int role = ALL_SATELLITES[i].getRole();
+            mOrbits[i] = mGeometry.newOrbit(ALL_SATELLITES[i], mTheme.getBaselineOffset(role));
+            mRadii[i] = mGeometry.getSatelliteRadius(ALL_SATELLITES[i]);
+        }
+
+        mAtlases = new LabelAtlas[Theme.ROLE_COUNT];
+        for (int role : new int[]{Theme.ROLE_HOUR, Theme.ROLE_MINUTE, Theme.ROLE_SECOND}) {
+            mAtlases[role] = new LabelAtlas(mTheme.getTextPaint(role), mLabels, NumberLabels.LABEL_COUNT);
+        }
+
+        mBatch = new SatelliteBatch();
+        mBitmap = Bitmap.createBitmap(SURFACE_SIZE, SURFACE_SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @After
+    public void tearDown() {
+        for (LabelAtlas atlas : mAtlases) {
+            if (atlas != null) {
+                atlas.recycle();
+            }
+        }
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void drawCostAgainstSatelliteCount() {
+        for (int count : SATELLITE_COUNTS) {
+            final long textNanos = measure(count, false);
+            final long atlasNanos = measure(count, true);
+
+            Log.i(TAG, String.format(Locale.US,
+                    "%d satellites: text %d ns (%d ns each), atlas %d ns (%d ns each) per frame",
+                    count, textNanos, textNanos / count, atlasNanos, atlasNanos / count));
+            assertTrue(textNanos > 0 && atlasNanos > 0);
+        }
+    }
+
+    /**
+     * Returns the average time to draw a frame of the first {@code count} satellites.
+     */
+    private long measure(int count, boolean useAtlas) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            drawFrame(count, useAtlas, round);
+        }
+
+        final long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            drawFrame(count, useAtlas, round);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    /**
+     * Batches and flushes the satellites the way the engine does, each showing {@code value}
+     * at the matching position of its orbit.
+     */
+    private void drawFrame(int count, boolean useAtlas, int round) {
+        mCanvas.drawColor(mTheme.getBackgroundColor());
+        mBatch.reset();
+
+        final int value = round % 24;
+        for (int i = 0; i < count; i++) {
+            final SatelliteSpec spec = ALL_SATELLITES[i];
+            final int role = spec.getRole();
+            final int position = value % spec.getPositionCount();
+            final float x = mOrbits[i].getX(position);
+            final float y = mOrbits[i].getY(position);
+
+            if (spec.showOutline(OrbitConfig.DEFAULT)) {
+                mBatch.addOutline(x, y, mRadii[i]);
+            }
+            if (useAtlas) {
+                mBatch.addBlit(role, value, x, y);
+            } else {
+                mBatch.addLabel(role, mLabels.get(value), x, mOrbits[i].getTextY(position));
+            }
+        }
+
+        if (mBatch.hasOutlines()) {
+            mBatch.drawOutlines(mCanvas, mTheme.getOutlinePaint());
+        }
+        for (int role = 0; role < Theme.ROLE_COUNT; role++) {
+            mBatch.drawLabels(mCanvas, role, mTheme.getTextPaint(role));
+            if (mBatch.hasBlits(role)) {
+                mBatch.drawBlits(mCanvas, role, mAtlases[role], mTheme.getTextPaint(role), false);
+            }
+        }
+    }
+}
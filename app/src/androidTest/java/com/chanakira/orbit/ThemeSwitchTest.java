@@ -0,0 +1,161 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.chanakira.orbit.core.FaceGeometry;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.OrbitTable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.IdentityHashMap;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Switches between the compiled themes the way the engine does on ambient, low-bit and mute
+ * changes, drawing a frame with each, and checks that no {@link Paint} is modified on the way.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThemeSwitchTest {
+
+    private static final int SURFACE_SIZE = 390;
+    private static final int SWITCHES = 100;
+
+    private NumberLabels mLabels;
+    private Theme[] mThemes;
+    private OrbitTable mOrbit;
+    private LabelAtlas mAtlas;
+    private SatelliteBatch mBatch;
+    private AmbientRenderer mAmbientRenderer;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mLabels = new NumberLabels(Locale.US);
+        mThemes = ThemeCompiler.compile(OrbitConfig.DEFAULT, mLabels);
+        mOrbit = new FaceGeometry(SURFACE_SIZE, SURFACE_SIZE).newMinuteOrbit(0);
+        mAtlas = new LabelAtlas(mThemes[ThemeCompiler.MODE_INTERACTIVE].getTextPaint(Theme.ROLE_MINUTE),
+                mLabels, NumberLabels.LABEL_COUNT);
+        mBatch = new SatelliteBatch();
+        mAmbientRenderer = new AmbientRenderer(SURFACE_SIZE, SURFACE_SIZE);
+        mBitmap = Bitmap.createBitmap(SURFACE_SIZE, SURFACE_SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @After
+    public void tearDown() {
+        mAtlas.recycle();
+        mAmbientRenderer.recycle();
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void modeSwitchesLeavePaintsUntouched() {
+        final String[] before = snapshot();
+
+        for (int i = 0; i < SWITCHES; i++) {
+            final boolean ambient = (i & 1) != 0;
+            final boolean lowBitAmbient = (i & 2) != 0;
+            final boolean muteMode = (i & 4) != 0;
+            final Theme theme = mThemes[ThemeCompiler.modeFor(ambient, lowBitAmbient, muteMode)];
+            drawFrame(theme, ambient, i);
+        }
+
+        final String[] after = snapshot();
+        for (int i = 0; i < before.length; i++) {
+            assertEquals(before[i], after[i]);
+        }
+    }
+
+    @Test
+    public void themesDoNotSharePaints() {
+        final IdentityHashMap<Paint, Integer> owners = new IdentityHashMap<>();
+        for (int mode = 0; mode < ThemeCompiler.MODE_COUNT; mode++) {
+            final Theme theme = mThemes[mode];
+            for (int role = 0; role < Theme.ROLE_COUNT; role++) {
+                assertNull("mode " + mode + " role " + role, owners.put(theme.getTextPaint(role), mode));
+            }
+            assertNull("mode " + mode + " outline", owners.put(theme.getOutlinePaint(), mode));
+        }
+    }
+
+    @Test
+    public void ambientPaintsAreAliasedWhite() {
+        for (int mode : new int[]{ThemeCompiler.MODE_AMBIENT, ThemeCompiler.MODE_LOW_BIT_AMBIENT}) {
+            final Theme theme = mThemes[mode];
+            assertFalse(theme.isAntiAlias());
+            assertEquals(Color.BLACK, theme.getBackgroundColor());
+            for (int role = 0; role < Theme.ROLE_COUNT; role++) {
+                assertFalse(theme.getTextPaint(role).isAntiAlias());
+                assertEquals(Color.WHITE, theme.getTextPaint(role).getColor());
+            }
+            assertFalse(theme.getOutlinePaint().isAntiAlias());
+            assertEquals(Color.WHITE, theme.getOutlinePaint().getColor());
+        }
+    }
+
+    @Test
+    public void modeForPrefersAmbient() {
+        assertEquals(ThemeCompiler.MODE_INTERACTIVE, ThemeCompiler.modeFor(false, false, false));
+        assertEquals(ThemeCompiler.MODE_MUTE, ThemeCompiler.modeFor(false, true, true));
+        assertEquals(ThemeCompiler.MODE_AMBIENT, ThemeCompiler.modeFor(true, false, true));
+        assertEquals(ThemeCompiler.MODE_LOW_BIT_AMBIENT, ThemeCompiler.modeFor(true, true, true));
+    }
+
+    /**
+     * Draws outlines, labels both ways, the date and, in ambient, the cached frame blit, all with
+     * the paints of {@code theme}.
+     */
+    private void drawFrame(Theme theme, boolean ambient, int minute) {
+        mCanvas.drawColor(theme.getBackgroundColor());
+        mBatch.reset();
+        for (int i = 0; i < NumberLabels.LABEL_COUNT; i += 5) {
+            final float x = mOrbit.getX(i);
+            final float y = mOrbit.getY(i);
+            mBatch.addOutline(x, y, 20f);
+            mBatch.addLabel(Theme.ROLE_MINUTE, mLabels.get(i), x, y + theme.getBaselineOffset(Theme.ROLE_MINUTE));
+            mAtlas.draw(mCanvas, i, x, y, theme.getTextPaint(Theme.ROLE_SECOND), !theme.isAntiAlias());
+        }
+        mBatch.drawOutlines(mCanvas, theme.getOutlinePaint());
+        mBatch.drawLabels(mCanvas, Theme.ROLE_MINUTE, theme.getTextPaint(Theme.ROLE_MINUTE));
+        mCanvas.drawText("Fri 1", SURFACE_SIZE / 2f, SURFACE_SIZE * 0.7f, theme.getTextPaint(Theme.ROLE_DATE));
+        if (ambient) {
+            mAmbientRenderer.draw(mCanvas, theme, null, true, minute);
+        }
+    }
+
+    /**
+     * Returns the state of every paint of every theme, in a fixed order.
+     */
+    private String[] snapshot() {
+        final String[] states = new String[ThemeCompiler.MODE_COUNT * (Theme.ROLE_COUNT + 1)];
+        int i = 0;
+        for (int mode = 0; mode < ThemeCompiler.MODE_COUNT; mode++) {
+            final Theme theme = mThemes[mode];
+            for (int role = 0; role < Theme.ROLE_COUNT; role++) {
+                states[i++] = "mode " + mode + " role " + role + ": " + describe(theme.getTextPaint(role));
+            }
+            states[i++] = "mode " + mode + " outline: " + describe(theme.getOutlinePaint());
+        }
+        return states;
+    }
+
+    private static String describe(Paint paint) {
+        return String.format(Locale.US, "color=%08x flags=%x style=%s stroke=%f size=%f align=%s",
+                paint.getColor(), paint.getFlags(), paint.getStyle(), paint.getStrokeWidth(),
+                paint.getTextSize(), paint.getTextAlign());
+    }
+}
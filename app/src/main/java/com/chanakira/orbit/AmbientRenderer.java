@@ -0,0 +1,134 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.chanakira.orbit.core.DisplayList;
+
+/**
+ * Renders ambient frames. Ambient content only changes once a minute, so the frame is painted
+ * once into a cached {@link Bitmap.Config#ALPHA_8} bitmap, and every ambient wake-up in the same
+ * minute is a single blit.
+ *
+ * The cached frame holds coverage only; its color comes from the blit paint, which quantizes the
+ * frame to the theme's text color on black. Ambient frames are painted without anti-aliasing,
+ * so their coverage is already two-level. With burn-in protection the blit is shifted along a
+ * small orbit, one step per minute, so that no pixel stays lit in the same place.
+ */
+class AmbientRenderer {
+
+    /* Radius of the burn-in shift orbit, and the number of steps (one per minute) around it. */
+    private static final float BURN_IN_SHIFT_RADIUS = 4f;
+    private static final int BURN_IN_SHIFT_STEPS = 8;
+
+    private static final int[] SHIFT_X = new int[BURN_IN_SHIFT_STEPS];
+    private static final int[] SHIFT_Y = new int[BURN_IN_SHIFT_STEPS];
+
+    static {
+        for (int i = 0; i < BURN_IN_SHIFT_STEPS; i++) {
+            double angle = 2 * Math.PI * i / BURN_IN_SHIFT_STEPS;
+            SHIFT_X[i] = (int) Math.round(BURN_IN_SHIFT_RADIUS * Math.sin(angle));
+            SHIFT_Y[i] = (int) Math.round(-BURN_IN_SHIFT_RADIUS * Math.cos(angle));
+        }
+    }
+
+    private final Bitmap mFrame;
+    private final Canvas mFrameCanvas;
+    private final DisplayList mList = new DisplayList();
+    private final Paint mBlitPaint = new Paint();
+
+    private long mFrameKey;
+    private boolean mValid;
+
+    private long mRenderCount;
+    private long mDrawCount;
+
+    AmbientRenderer(int width, int height) {
+        mFrame = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        mFrameCanvas = new Canvas(mFrame);
+    }
+
+    /**
+     * Forces the next frame to be painted again, e.g. after a theme, locale or time zone change.
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * Returns whether the cached frame was painted for {@code frameKey} and is still valid.
+     */
+    boolean isValid(long frameKey) {
+        return mValid && mFrameKey == frameKey;
+    }
+
+    /**
+     * Returns the cleared display list to record a new frame into.
+     */
+    DisplayList beginFrame() {
+        mList.reset();
+        return mList;
+    }
+
+    /**
+     * Paints the recorded frame into the cache. Clear ops are skipped: the cache is erased to
+     * zero coverage and the background is drawn when blitting.
+     */
+    void endFrame(FrameRenderer.OpPainter painter, long frameKey) {
+        mFrame.eraseColor(Color.TRANSPARENT);
+        for (int i = 0; i < mList.size(); i++) {
+            if (mList.getType(i) != DisplayList.OP_CLEAR) {
+                painter.paint(mFrameCanvas, mList, i);
+            }
+        }
+        painter.flush(mFrameCanvas);
+
+        mFrameKey = frameKey;
+        mValid = true;
+        mRenderCount++;
+    }
+
+    /**
+     * Draws the cached frame onto {@code canvas} in the colors and anti-aliasing of
+     * {@code theme}, shifted for burn-in protection if requested. The frame is drawn over
+     * {@code background} if given, which must be the size of the frame, or else over the
+     * theme's background color.
+     */
+    void draw(Canvas canvas, Theme theme, Bitmap background, boolean burnInProtection, long minuteKey) {
+        int dx = 0;
+        int dy = 0;
+        if (burnInProtection) {
+            final int step = (int) (minuteKey % BURN_IN_SHIFT_STEPS);
+            dx = SHIFT_X[step];
+            dy = SHIFT_Y[step];
+        }
+
+        mBlitPaint.setColor(theme.getTextPaint(Theme.ROLE_DATE).getColor());
+        mBlitPaint.setAntiAlias(theme.isAntiAlias());
+
+        if (background != null) {
+            canvas.drawBitmap(background, 0, 0, null);
+        } else {
+            canvas.drawColor(theme.getBackgroundColor());
+        }
+        canvas.drawBitmap(mFrame, dx, dy, mBlitPaint);
+        mDrawCount++;
+    }
+
+    long getRenderCount() {
+        return mRenderCount;
+    }
+
+    /**
+     * Returns the number of ambient frames drawn, including those that repainted the cache.
+     */
+    long getDrawCount() {
+        return mDrawCount;
+    }
+
+    void recycle() {
+        mFrame.recycle();
+    }
+}
@@ -0,0 +1,176 @@
+package com.chanakira.orbit;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+import android.support.wearable.complications.rendering.ComplicationDrawable;
+import android.util.Log;
+
+/**
+ * One complication of the face, rendered into a cached bitmap. The bitmap is only re-rendered
+ * when new data arrives, the style or mode changes, or the data's time-dependent text (e.g. a
+ * countdown) is due to change; every other frame blits it, or skips it entirely when the frame
+ * renderer finds it unchanged.
+ */
+class ComplicationSlot {
+
+    private static final String TAG = ComplicationSlot.class.getSimpleName();
+
+    private final ComplicationDrawable mDrawable;
+    private ComplicationData mData;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private float mCenterX;
+    private float mCenterY;
+    private float mRadius;
+
+    private boolean mDirty;
+    private long mNextChangeMs = Long.MAX_VALUE;
+    private int mVersion;
+    private long mRenderCount;
+
+    ComplicationSlot(Context context) {
+        mDrawable = new ComplicationDrawable(context);
+    }
+
+    void setData(ComplicationData data) {
+        mData = data;
+        mDrawable.setComplicationData(data);
+        mDirty = true;
+    }
+
+    /**
+     * Returns whether there is anything to show.
+     */
+    boolean hasData() {
+        return mData != null
+                && mData.getType() != ComplicationData.TYPE_EMPTY
+                && mData.getType() != ComplicationData.TYPE_NO_DATA
+                && mData.getType() != ComplicationData.TYPE_NOT_CONFIGURED;
+    }
+
+    void setBounds(float centerX, float centerY, float radius) {
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mRadius = radius;
+
+        final int size = (int) Math.ceil(radius * 2);
+        if (mBitmap != null) {
+            mBitmap.recycle();
+        }
+        mBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+        mDrawable.setBounds(0, 0, size, size);
+        mDirty = true;
+    }
+
+    void setColors(int textColor, int accentColor) {
+        mDrawable.setTextColorActive(textColor);
+        mDrawable.setTitleColorActive(textColor);
+        mDrawable.setIconColorActive(textColor);
+        mDrawable.setBorderColorActive(accentColor);
+        mDrawable.setRangedValuePrimaryColorActive(accentColor);
+        mDrawable.setBackgroundColorActive(Color.TRANSPARENT);
+        mDirty = true;
+    }
+
+    void setAmbientProperties(boolean lowBitAmbient, boolean burnInProtection) {
+        mDrawable.setLowBitAmbient(lowBitAmbient);
+        mDrawable.setBurnInProtection(burnInProtection);
+        mDirty = true;
+    }
+
+    void setInAmbientMode(boolean ambient) {
+        mDrawable.setInAmbientMode(ambient);
+        mDirty = true;
+    }
+
+    /**
+     * Re-renders the cached bitmap if needed for {@code nowMs}; returns whether it changed.
+     */
+    boolean update(long nowMs) {
+        if (mBitmap == null || !hasData() || (!mDirty && nowMs < mNextChangeMs)) {
+            return false;
+        }
+
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        mDrawable.draw(mCanvas, nowMs);
+
+        mNextChangeMs = Math.min(
+                Math.min(nextChangeTime(mData.getShortText(), nowMs), nextChangeTime(mData.getShortTitle(), nowMs)),
+                Math.min(nextChangeTime(mData.getLongText(), nowMs), nextChangeTime(mData.getLongTitle(), nowMs)));
+        mDirty = false;
+        mVersion++;
+        mRenderCount++;
+        return true;
+    }
+
+    private static long nextChangeTime(ComplicationText text, long nowMs) {
+        return text != null ? text.getNextChangeTime(nowMs) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Draws the cached bitmap; {@link #update(long)} must have been called for this frame.
+     */
+    void draw(Canvas canvas) {
+        canvas.drawBitmap(mBitmap, mCenterX - mRadius, mCenterY - mRadius, null);
+    }
+
+    /**
+     * Runs the tap action if ({@code x}, {@code y}) is on this complication; returns whether it
+     * was.
+     */
+    boolean onTap(int x, int y) {
+        if (!hasData() || mData.getTapAction() == null) {
+            return false;
+        }
+
+        final float dx = x - mCenterX;
+        final float dy = y - mCenterY;
+        if (dx * dx + dy * dy > mRadius * mRadius) {
+            return false;
+        }
+
+        try {
+            mData.getTapAction().send();
+        } catch (PendingIntent.CanceledException e) {
+            Log.w(TAG, "Complication tap action was cancelled", e);
+        }
+        return true;
+    }
+
+    float getCenterX() {
+        return mCenterX;
+    }
+
+    float getCenterY() {
+        return mCenterY;
+    }
+
+    float getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * Returns a number that changes whenever the cached bitmap is re-rendered.
+     */
+    int getVersion() {
+        return mVersion;
+    }
+
+    long getRenderCount() {
+        return mRenderCount;
+    }
+
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+}
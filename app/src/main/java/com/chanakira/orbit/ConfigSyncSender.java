@@ -0,0 +1,104 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+
+import com.chanakira.orbit.core.ConfigDeltaBatcher;
+
+import java.util.Random;
+
+/**
+ * Pushes configuration changes to the watch, for a companion app. Changes made within
+ * {@link #BATCH_WINDOW_MS} of each other are merged into one delta, so a burst of edits costs
+ * one transfer and one reconfiguration of the face.
+ *
+ * Must be used on a thread with a looper, usually the main thread.
+ */
+public class ConfigSyncSender {
+
+    private static final long BATCH_WINDOW_MS = 500;
+
+    private static final String SYNC_PREFERENCE_FILE = "orbit_config_sync";
+    private static final String KEY_SENDER_ID = "sender_id";
+    private static final String KEY_LAST_VERSION = "last_sent_version";
+
+    private final SharedPreferences mSyncPreferences;
+    private final ConfigDeltaBatcher mBatcher;
+    private final Handler mHandler = new Handler();
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public ConfigSyncSender(Context context) {
+        this(context, new DataLayerTransport(context));
+    }
+
+    /**
+     * Sends through {@code transport}, e.g. a fake data client that records transfers.
+     */
+    public ConfigSyncSender(Context context, ConfigDeltaBatcher.Transport transport) {
+        mSyncPreferences = context.getSharedPreferences(SYNC_PREFERENCE_FILE, Context.MODE_PRIVATE);
+        mBatcher = new ConfigDeltaBatcher(transport, loadSenderId(), mSyncPreferences.getLong(KEY_LAST_VERSION, 0));
+    }
+
+    /**
+     * Returns the ID of this installation, picked at random on first use. A reinstall clears it
+     * along with the last version, so the watch knows the versions start over.
+     */
+    private long loadSenderId() {
+        long senderId = mSyncPreferences.getLong(KEY_SENDER_ID, 0);
+        if (senderId == 0) {
+            final Random random = new Random();
+            while (senderId == 0) {
+                senderId = random.nextLong();
+            }
+            mSyncPreferences.edit().putLong(KEY_SENDER_ID, senderId).apply();
+        }
+        return senderId;
+    }
+
+    public void putInt(String key, int value) {
+        mBatcher.putInt(key, value);
+        scheduleFlush();
+    }
+
+    public void putBoolean(String key, boolean value) {
+        mBatcher.putBoolean(key, value);
+        scheduleFlush();
+    }
+
+    public void putString(String key, String value) {
+        mBatcher.putString(key, value);
+        scheduleFlush();
+    }
+
+    /**
+     * Sends the pending changes right away, e.g. when the companion's settings screen closes.
+     */
+    public void flush() {
+        mHandler.removeCallbacks(mFlush);
+        if (!mBatcher.hasPendingChanges()) {
+            return;
+        }
+
+        mBatcher.flush();
+        mSyncPreferences.edit().putLong(KEY_LAST_VERSION, mBatcher.getVersion()).apply();
+    }
+
+    private void scheduleFlush() {
+        mHandler.removeCallbacks(mFlush);
+        mHandler.postDelayed(mFlush, BATCH_WINDOW_MS);
+    }
+
+    public long getChangeCount() {
+        return mBatcher.getChangeCount();
+    }
+
+    public long getTransferCount() {
+        return mBatcher.getTransferCount();
+    }
+}
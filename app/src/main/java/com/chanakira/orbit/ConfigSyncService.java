@@ -0,0 +1,174 @@
+package com.chanakira.orbit;
+
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataClient;
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.Wearable;
+import com.google.android.gms.wearable.WearableListenerService;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Applies configuration deltas pushed by a {@link ConfigSyncSender}. Each delta is written to
+ * the face preferences in a single edit, which the face picks up as one reconfiguration.
+ * Background photos sent through {@link DataLayerTransport#sendBackgroundPhoto} are stored
+ * before the face is switched to them.
+ */
+public class ConfigSyncService extends WearableListenerService {
+
+    private static final String TAG = ConfigSyncService.class.getSimpleName();
+
+    private static final String SYNC_PREFERENCE_FILE = "orbit_config_sync";
+    private static final String KEY_LAST_SENDER_ID = "last_sender_id";
+    private static final String KEY_LAST_VERSION = "last_applied_version";
+
+    @Override
+    public void onDataChanged(DataEventBuffer dataEvents) {
+        List<DataMap> deltas = new ArrayList<>();
+        List<Uri> applied = new ArrayList<>();
+
+        for (DataEvent event : dataEvents) {
+            DataItem item = event.getDataItem();
+            if (event.getType() != DataEvent.TYPE_CHANGED) {
+                continue;
+            }
+            if (DataLayerTransport.PHOTO_PATH.equals(item.getUri().getPath())) {
+                receivePhoto(DataMapItem.fromDataItem(item).getDataMap());
+                Wearable.getDataClient(this).deleteDataItems(item.getUri());
+                continue;
+            }
+            if (!item.getUri().getPath().startsWith(DataLayerTransport.PATH_PREFIX)) {
+                continue;
+            }
+            deltas.add(DataMapItem.fromDataItem(item).getDataMap());
+            applied.add(item.getUri());
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        SharedPreferences syncPreferences = getSharedPreferences(SYNC_PREFERENCE_FILE, MODE_PRIVATE);
+        final long knownSenderId = syncPreferences.getLong(KEY_LAST_SENDER_ID, 0);
+        long lastSenderId = knownSenderId;
+        long lastVersion = syncPreferences.getLong(KEY_LAST_VERSION, 0);
+
+        /*
+         * Deltas in one buffer may arrive in any order; apply them oldest first. Leftovers of
+         * the known sender are older than those of a new one, e.g. a reinstalled companion.
+         */
+        Collections.sort(deltas, new Comparator<DataMap>() {
+            @Override
+            public int compare(DataMap a, DataMap b) {
+                long senderA = a.getLong(DataLayerTransport.KEY_SENDER_ID);
+                long senderB = b.getLong(DataLayerTransport.KEY_SENDER_ID);
+                if (senderA != senderB) {
+                    if (senderA == knownSenderId || senderB == knownSenderId) {
+                        return senderA == knownSenderId ? -1 : 1;
+                    }
+                    return senderA < senderB ? -1 : 1;
+                }
+                long versionA = a.getLong(DataLayerTransport.KEY_VERSION);
+                long versionB = b.getLong(DataLayerTransport.KEY_VERSION);
+                return versionA < versionB ? -1 : (versionA == versionB ? 0 : 1);
+            }
+        });
+
+        /* Merge all new deltas into one write, so even a backlog is one reconfiguration. */
+        Map<String, Object> values = new HashMap<>();
+        for (DataMap delta : deltas) {
+            long senderId = delta.getLong(DataLayerTransport.KEY_SENDER_ID);
+            long version = delta.getLong(DataLayerTransport.KEY_VERSION);
+            if (senderId != lastSenderId) {
+                /* A new sender numbers its deltas from the start again. */
+                Log.d(TAG, "Config deltas from new sender " + Long.toHexString(senderId));
+                lastSenderId = senderId;
+                lastVersion = 0;
+            }
+            if (version <= lastVersion) {
+                Log.d(TAG, "Skipping stale config delta " + version);
+                continue;
+            }
+            for (String key : delta.keySet()) {
+                if (!DataLayerTransport.KEY_VERSION.equals(key)) {
+                    values.put(key, delta.get(key));
+                }
+            }
+            lastVersion = version;
+        }
+
+        int written = new OrbitPreferences(this).write(values);
+        syncPreferences.edit()
+                .putLong(KEY_LAST_SENDER_ID, lastSenderId)
+                .putLong(KEY_LAST_VERSION, lastVersion)
+                .apply();
+        Log.d(TAG, "Applied " + deltas.size() + " config deltas, " + written + " values, up to version " + lastVersion);
+
+        DataClient dataClient = Wearable.getDataClient(this);
+        for (Uri uri : applied) {
+            dataClient.deleteDataItems(uri);
+        }
+    }
+
+    /**
+     * Stores the photo in {@code dataMap} where {@link PhotoBackground} reads it, then switches
+     * the face to it. Runs on the listener's background thread, so it may block.
+     */
+    private void receivePhoto(DataMap dataMap) {
+        Asset asset = dataMap.getAsset(DataLayerTransport.KEY_PHOTO);
+        int version = dataMap.getInt(DataLayerTransport.KEY_PHOTO_VERSION);
+        if (asset == null || version == 0) {
+            return;
+        }
+
+        /* The face keeps reading the current version's file until the new version is set. */
+        File photoFile = PhotoBackground.getPhotoFile(getFilesDir(), version);
+        File tempFile = new File(getFilesDir(), photoFile.getName() + ".tmp");
+        try {
+            InputStream in = Tasks.await(Wearable.getDataClient(this).getFdForAsset(asset)).getInputStream();
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                byte[] buffer = new byte[16 * 1024];
+                int count;
+                while ((count = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+        } catch (IOException | ExecutionException | InterruptedException e) {
+            Log.w(TAG, "Could not receive background photo " + version, e);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(photoFile)) {
+            Log.w(TAG, "Could not store background photo " + version);
+            tempFile.delete();
+            return;
+        }
+        new OrbitPreferences(this).setBackgroundPhotoVersion(version);
+        PhotoBackground.deleteOtherPhotos(getFilesDir(), version);
+        Log.d(TAG, "Received background photo " + version);
+    }
+}
@@ -0,0 +1,69 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+
+import com.chanakira.orbit.core.ConfigDeltaBatcher;
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataClient;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.Map;
+
+/**
+ * Sends configuration deltas as Wearable Data Layer items. Every delta gets its own item path,
+ * made of the sender ID and the version, so a delta is never overwritten by the next one, or by
+ * a reinstalled sender, before the watch has applied it; the watch deletes each item once
+ * applied.
+ */
+public class DataLayerTransport implements ConfigDeltaBatcher.Transport {
+
+    static final String PATH_PREFIX = "/orbit/config/";
+    static final String KEY_SENDER_ID = "sender_id";
+    static final String KEY_VERSION = "version";
+
+    static final String PHOTO_PATH = "/orbit/photo";
+    static final String KEY_PHOTO = "photo";
+    static final String KEY_PHOTO_VERSION = "photo_version";
+
+    private final DataClient mDataClient;
+
+    public DataLayerTransport(Context context) {
+        mDataClient = Wearable.getDataClient(context);
+    }
+
+    @Override
+    public void send(long senderId, long version, Map<String, Object> values) {
+        PutDataMapRequest request = PutDataMapRequest.create(
+                PATH_PREFIX + Long.toHexString(senderId) + '/' + version);
+        DataMap dataMap = request.getDataMap();
+
+        dataMap.putLong(KEY_SENDER_ID, senderId);
+        dataMap.putLong(KEY_VERSION, version);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                dataMap.putInt(entry.getKey(), (Integer) entry.getValue());
+            } else if (entry.getValue() instanceof Boolean) {
+                dataMap.putBoolean(entry.getKey(), (Boolean) entry.getValue());
+            } else if (entry.getValue() instanceof String) {
+                dataMap.putString(entry.getKey(), (String) entry.getValue());
+            }
+        }
+
+        /* Configuration changes are user-visible, so don't let the Data Layer delay them. */
+        mDataClient.putDataItem(request.asPutDataRequest().setUrgent());
+    }
+
+    /**
+     * Sends a background photo. The watch stores it and then shows it as {@code version}, which
+     * must differ from the version of the photo shown before.
+     */
+    public void sendBackgroundPhoto(Asset photo, int version) {
+        PutDataMapRequest request = PutDataMapRequest.create(PHOTO_PATH);
+        request.getDataMap().putAsset(KEY_PHOTO, photo);
+        request.getDataMap().putInt(KEY_PHOTO_VERSION, version);
+
+        mDataClient.putDataItem(request.asPutDataRequest().setUrgent());
+    }
+}
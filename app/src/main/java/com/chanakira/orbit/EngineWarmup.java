@@ -0,0 +1,237 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.TimeSource;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Builds everything the engine needs before it can draw a full frame on a background thread:
+ * the preference keys and configuration, the number labels, the compiled themes (paints and
+ * text metrics) and, if enabled, the label atlases. The result is handed to the main thread in
+ * one piece, so the engine swaps it in at once rather than piece by piece. Atlases needed again
+ * later, e.g. after a locale change, are rebuilt on the same thread.
+ */
+class EngineWarmup {
+
+    interface Callback {
+        /**
+         * Called on the main thread once the warm-up is done, unless it was cancelled.
+         */
+        void onWarm(Result result);
+    }
+
+    interface AtlasCallback {
+        /**
+         * Called on the main thread with the hour, minute and second atlases built for
+         * {@code labels}, unless the warm-up was cancelled.
+         */
+        void onAtlasesBuilt(NumberLabels labels, LabelAtlas[] atlases);
+    }
+
+    static class Result {
+        private final OrbitPreferences mPreferences;
+        private final OrbitConfig mConfig;
+        private final NumberLabels mNumberLabels;
+        private final Theme[] mThemes;
+
+        /* Built only if the configuration enables them; otherwise null. */
+        private final LabelAtlas mHourAtlas;
+        private final LabelAtlas mMinuteAtlas;
+        private final LabelAtlas mSecondAtlas;
+
+        private final long mDurationMs;
+
+        Result(OrbitPreferences preferences, OrbitConfig config, NumberLabels numberLabels, Theme[] themes,
+               LabelAtlas hourAtlas, LabelAtlas minuteAtlas, LabelAtlas secondAtlas, long durationMs) {
+            mPreferences = preferences;
+            mConfig = config;
+            mNumberLabels = numberLabels;
+            mThemes = themes;
+            mHourAtlas = hourAtlas;
+            mMinuteAtlas = minuteAtlas;
+            mSecondAtlas = secondAtlas;
+            mDurationMs = durationMs;
+        }
+
+        OrbitPreferences getPreferences() {
+            return mPreferences;
+        }
+
+        OrbitConfig getConfig() {
+            return mConfig;
+        }
+
+        NumberLabels getNumberLabels() {
+            return mNumberLabels;
+        }
+
+        Theme[] getThemes() {
+            return mThemes;
+        }
+
+        LabelAtlas getHourAtlas() {
+            return mHourAtlas;
+        }
+
+        LabelAtlas getMinuteAtlas() {
+            return mMinuteAtlas;
+        }
+
+        LabelAtlas getSecondAtlas() {
+            return mSecondAtlas;
+        }
+
+        /**
+         * Returns how long the warm-up took on the background thread.
+         */
+        long getDurationMs() {
+            return mDurationMs;
+        }
+
+        /**
+         * Frees the atlases of a result that is not used after all.
+         */
+        void recycle() {
+            if (mHourAtlas != null) {
+                mHourAtlas.recycle();
+                mMinuteAtlas.recycle();
+                mSecondAtlas.recycle();
+            }
+        }
+    }
+
+    /* Shared by all engines; warm-ups are short and rare, so one thread is enough. */
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    /* Never compete with the frames the main thread draws meanwhile. */
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "OrbitWarmup");
+        }
+    });
+
+    private final Context mContext;
+    private final TimeSource mTimeSource;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private Callback mCallback;
+
+    EngineWarmup(Context context, TimeSource timeSource, Callback callback) {
+        mContext = context;
+        mTimeSource = timeSource;
+        mCallback = callback;
+    }
+
+    /**
+     * Starts warming up for {@code locale}. Must be called on the main thread, at most once.
+     */
+    void start(final Locale locale) {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Result result = warm(locale);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mCallback != null) {
+                            mCallback.onWarm(result);
+                        } else {
+                            result.recycle();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Builds the label atlases for {@code labels} in the text styles of the interactive
+     * {@code theme}. Must be called on the main thread.
+     */
+    void buildAtlases(Theme theme, final NumberLabels labels, final AtlasCallback callback) {
+        /* The theme's paints stay in use on the main thread, so the warm-up works on copies. */
+        final Paint hourPaint = new Paint(theme.getTextPaint(Theme.ROLE_HOUR));
+        final Paint minutePaint = new Paint(theme.getTextPaint(Theme.ROLE_MINUTE));
+        final Paint secondPaint = new Paint(theme.getTextPaint(Theme.ROLE_SECOND));
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final LabelAtlas[] atlases = buildAtlases(hourPaint, minutePaint, secondPaint, labels);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mCallback != null) {
+                            callback.onAtlasesBuilt(labels, atlases);
+                        } else {
+                            for (LabelAtlas atlas : atlases) {
+                                atlas.recycle();
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops the results that have not been delivered yet. Must be called on the main thread.
+     */
+    void cancel() {
+        mCallback = null;
+    }
+
+    private static LabelAtlas[] buildAtlases(Paint hourPaint, Paint minutePaint, Paint secondPaint,
+                                             NumberLabels labels) {
+        return new LabelAtlas[]{
+                new LabelAtlas(hourPaint, labels, FaceRenderer.ATLAS_LABEL_COUNTS[Theme.ROLE_HOUR]),
+                new LabelAtlas(minutePaint, labels, FaceRenderer.ATLAS_LABEL_COUNTS[Theme.ROLE_MINUTE]),
+                new LabelAtlas(secondPaint, labels, FaceRenderer.ATLAS_LABEL_COUNTS[Theme.ROLE_SECOND])
+        };
+    }
+
+    /**
+     * Builds everything on the calling thread, for {@link #start} and for measuring startup.
+     */
+    Result warm(Locale locale) {
+        final long startMs = mTimeSource.uptimeMillis();
+
+        final OrbitPreferences preferences = new OrbitPreferences(mContext);
+        final OrbitConfig config = preferences.load();
+        final NumberLabels numberLabels = new NumberLabels(locale);
+        final Theme[] themes = ThemeCompiler.compile(config, numberLabels);
+
+        LabelAtlas hourAtlas = null;
+        LabelAtlas minuteAtlas = null;
+        LabelAtlas secondAtlas = null;
+        if (config.useLabelAtlas()) {
+            final Theme interactive = themes[ThemeCompiler.MODE_INTERACTIVE];
+            final LabelAtlas[] atlases = buildAtlases(interactive.getTextPaint(Theme.ROLE_HOUR),
+                    interactive.getTextPaint(Theme.ROLE_MINUTE), interactive.getTextPaint(Theme.ROLE_SECOND),
+                    numberLabels);
+            hourAtlas = atlases[0];
+            minuteAtlas = atlases[1];
+            secondAtlas = atlases[2];
+        }
+
+        return new Result(preferences, config, numberLabels, themes, hourAtlas, minuteAtlas, secondAtlas,
+                mTimeSource.uptimeMillis() - startMs);
+    }
+}
@@ -0,0 +1,147 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+
+import com.chanakira.orbit.core.DateText;
+import com.chanakira.orbit.core.FaceGeometry;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.OrbitTable;
+import com.chanakira.orbit.core.TimeSource;
+import com.chanakira.orbit.core.WallClock;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Renders small previews of the face with one color preference replaced, for the color picker.
+ * The face is laid out at a reference size with the real themes and geometry, then scaled down.
+ *
+ * Previews are meant to be rendered off the main thread, but {@link #render(int, int)} must not
+ * be called from more than one thread at a time.
+ */
+public class FacePreviewRenderer {
+
+    /* Surface size the preview is laid out at, matching the text sizes of the themes. */
+    private static final int REFERENCE_SIZE = 320;
+
+    /* The time shown in previews, chosen so that no satellites overlap. */
+    private static final int PREVIEW_HOUR = 10;
+    private static final int PREVIEW_MINUTE = 10;
+    private static final int PREVIEW_SECOND = 35;
+
+    private final OrbitPreferences mPreferences;
+    private final OrbitConfig mBaseConfig;
+    private final String mPreferenceKey;
+
+    private final FaceGeometry mGeometry = new FaceGeometry(REFERENCE_SIZE, REFERENCE_SIZE);
+    private final Locale mLocale = Locale.getDefault();
+    private final NumberLabels mNumberLabels = new NumberLabels(mLocale);
+    private final String mDateText;
+    private final Paint mMaskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /* Text metrics do not depend on color, so the orbits are shared by all previews. */
+    private final OrbitTable mHourOrbit;
+    private final OrbitTable mMinuteOrbit;
+    private final OrbitTable mSecondOrbit;
+
+    /**
+     * Previews the current configuration with the color preference {@code preferenceKey}
+     * replaced by each previewed color.
+     */
+    public FacePreviewRenderer(Context context, String preferenceKey) {
+        this(context, preferenceKey, SystemTimeSource.INSTANCE);
+    }
+
+    /**
+     * Previews the configuration on the date of {@code timeSource}.
+     */
+    FacePreviewRenderer(Context context, String preferenceKey, TimeSource timeSource) {
+        mPreferences = new OrbitPreferences(context);
+        mBaseConfig = mPreferences.load();
+        mPreferenceKey = preferenceKey;
+
+        WallClock clock = new WallClock(TimeZone.getDefault());
+        clock.update(timeSource.currentTimeMillis());
+        mDateText = new DateText().get(clock, mLocale);
+
+        final Theme theme = ThemeCompiler.compile(mBaseConfig, mNumberLabels)[ThemeCompiler.MODE_INTERACTIVE];
+        mHourOrbit = mGeometry.newHourOrbit(theme.getBaselineOffset(Theme.ROLE_HOUR));
+        mMinuteOrbit = mGeometry.newMinuteOrbit(theme.getBaselineOffset(Theme.ROLE_MINUTE));
+        mSecondOrbit = mGeometry.newSecondOrbit(theme.getBaselineOffset(Theme.ROLE_SECOND));
+
+        mMaskPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+    }
+
+    /**
+     * Returns a key identifying the preview of {@code color}, which also changes when any other
+     * setting shown in the preview changes, or the date or locale it was rendered for.
+     */
+    public String getCacheKey(int color) {
+        return mPreferenceKey + '/' + color
+                + '/' + mLocale
+                + '/' + mDateText
+                + '/' + mBaseConfig.getBackgroundColor()
+                + '/' + mBaseConfig.getSatelliteColor()
+                + '/' + mBaseConfig.getTextColor()
+                + '/' + mBaseConfig.showHourOutline()
+                + '/' + mBaseConfig.showMinuteOutline()
+                + '/' + mBaseConfig.showSecondOutline();
+    }
+
+    /**
+     * Renders a round preview of {@code sizePx} square pixels showing {@code color}.
+     */
+    public Bitmap render(int color, int sizePx) {
+        final OrbitConfig config = mPreferences.withColor(mBaseConfig, mPreferenceKey, color);
+        final Theme theme = ThemeCompiler.compile(config, mNumberLabels)[ThemeCompiler.MODE_INTERACTIVE];
+
+        final Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        canvas.save();
+        canvas.scale(sizePx / (float) REFERENCE_SIZE, sizePx / (float) REFERENCE_SIZE);
+
+        canvas.drawColor(theme.getBackgroundColor());
+
+        drawSatellite(canvas, theme, Theme.ROLE_HOUR, PREVIEW_HOUR,
+                mGeometry.getHourSatelliteRadius(),
+                mHourOrbit,
+                0,
+                config.showHourOutline());
+        drawSatellite(canvas, theme, Theme.ROLE_MINUTE, PREVIEW_MINUTE,
+                mGeometry.getMinutesSatelliteRadius(),
+                mMinuteOrbit,
+                PREVIEW_MINUTE,
+                config.showMinuteOutline());
+        drawSatellite(canvas, theme, Theme.ROLE_SECOND, PREVIEW_SECOND,
+                mGeometry.getSecondsSatelliteRadius(),
+                mSecondOrbit,
+                OrbitTable.secondsIndex(PREVIEW_SECOND, 0),
+                config.showSecondOutline());
+
+        canvas.drawText(mDateText, mGeometry.getCenterX(),
+                mGeometry.getDateTextY(theme.getBaselineOffset(Theme.ROLE_DATE)),
+                theme.getTextPaint(Theme.ROLE_DATE));
+
+        canvas.restore();
+
+        /* Cut the square down to the round face. */
+        canvas.drawCircle(sizePx / 2f, sizePx / 2f, sizePx / 2f, mMaskPaint);
+
+        return bitmap;
+    }
+
+    private void drawSatellite(Canvas canvas, Theme theme, int role, int number, float radius,
+                               OrbitTable orbit, int position, boolean drawOutline) {
+        if (drawOutline) {
+            canvas.drawCircle(orbit.getX(position), orbit.getY(position), radius, theme.getOutlinePaint());
+        }
+        canvas.drawText(mNumberLabels.get(number), orbit.getX(position), orbit.getTextY(position),
+                theme.getTextPaint(role));
+    }
+}
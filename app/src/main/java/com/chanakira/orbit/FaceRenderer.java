@@ -0,0 +1,836 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.chanakira.orbit.core.DateText;
+import com.chanakira.orbit.core.DisplayList;
+import com.chanakira.orbit.core.FaceGeometry;
+import com.chanakira.orbit.core.FaceState;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.OrbitTable;
+import com.chanakira.orbit.core.RefreshController;
+import com.chanakira.orbit.core.RefreshPolicy;
+import com.chanakira.orbit.core.SatelliteSpec;
+import com.chanakira.orbit.core.Stopwatch;
+import com.chanakira.orbit.core.WallClock;
+import com.chanakira.orbit.core.ZoneOffsetTable;
+
+import java.io.PrintWriter;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Draws the watch face of the engine: the satellites, the date or the stopwatch readout and
+ * the complications, through the partial-repaint frame buffer when interactive and the cached
+ * frame when ambient. The engine feeds it the system events and the clock; it touches no
+ * service, so headless tests draw the face through it exactly as the engine does.
+ *
+ * All methods must be called from the same thread.
+ */
+class FaceRenderer {
+
+    /*
+     * The satellites of the face. Further orbits, such as the day of the month or a 24-hour
+     * ring, are added here.
+     */
+    private static final SatelliteSpec[] SATELLITES = {
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0, FaceGeometry.HOUR_RADIUS_RATIO,
+                    Theme.ROLE_HOUR, SatelliteSpec.OUTLINE_HOUR_SETTING),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE, FaceGeometry.MINUTES_RADIUS_RATIO,
+                    Theme.ROLE_MINUTE, SatelliteSpec.OUTLINE_MINUTE_SETTING),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, FaceGeometry.SECONDS_DISTANCE, FaceGeometry.SECONDS_RADIUS_RATIO,
+                    Theme.ROLE_SECOND, SatelliteSpec.OUTLINE_SECOND_SETTING)
+    };
+
+    /*
+     * The satellites with the home-time one, for a configured home time zone. It sits above the
+     * hour satellite, opposite the date, and is outlined like the hour.
+     */
+    private static final SatelliteSpec[] SATELLITES_WITH_HOME = {
+            SATELLITES[0],
+            SATELLITES[1],
+            SATELLITES[2],
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOME_HOUR, FaceGeometry.HOME_DISTANCE, FaceGeometry.HOME_RADIUS_RATIO,
+                    Theme.ROLE_HOME, SatelliteSpec.OUTLINE_HOUR_SETTING)
+    };
+
+    /*
+     * Labels in the atlas of each role, enough for every satellite drawn with it. The home
+     * satellites include all the others, so this covers both layouts.
+     */
+    static final int[] ATLAS_LABEL_COUNTS = atlasLabelCounts(SATELLITES_WITH_HOME);
+
+    /* Taps this close to the small seconds satellite still hit it, as a ratio of its radius. */
+    private static final float TAP_TARGET_SCALE = 1.5f;
+
+    private static int[] atlasLabelCounts(SatelliteSpec[] satellites) {
+        final int[] counts = new int[Theme.ROLE_COUNT];
+        for (SatelliteSpec spec : satellites) {
+            counts[spec.getRole()] = Math.max(counts[spec.getRole()], spec.getValueCount());
+        }
+        return counts;
+    }
+
+    /* Decides whether the seconds are shown, and the precision of the running readout. */
+    private final RefreshController mRefreshController;
+
+    /* Draw-time histograms and the frame trace, owned by the engine. */
+    private final FrameStats mFrameStats;
+    private final FrameTracer mFrameTracer;
+
+    private final WallClock mWallClock;
+    private final FaceState mFaceState = new FaceState();
+    private final StringBuilder mDebugText = new StringBuilder();
+
+    /*
+     * The stopwatch, shown by the seconds satellite and in place of the date while it is not
+     * idle. The readout is formatted and measured only when its text changes.
+     */
+    private final Stopwatch mStopwatch;
+    private long mStopwatchMs;
+    private final char[] mReadout = new char[Stopwatch.MAX_TEXT_LENGTH];
+    private int mReadoutLength;
+    private long mReadoutKey = -1;
+    private float mReadoutHalfWidth;
+    private Locale mReadoutLocale;
+    private char mReadoutZeroDigit;
+
+    private OrbitConfig mConfig = OrbitConfig.DEFAULT;
+
+    /* Optional photo background, scaled to the surface. */
+    private PhotoBackground mPhoto;
+
+    /* Satellite layout for the current surface. */
+    private FaceGeometry mGeometry;
+
+    /* The satellites shown, and their positions and text baselines, precomputed for the current surface. */
+    private SatelliteSpec[] mSatellites = SATELLITES;
+    private OrbitTable[] mOrbits;
+
+    /* UTC offsets of the home time zone, if one is configured. */
+    private ZoneOffsetTable mHomeOffsets;
+    private float mDateCenterY;
+
+    /* Satellite outlines and labels, drawn in a few batched calls per repainted region. */
+    private final SatelliteBatch mSatelliteBatch = new SatelliteBatch();
+
+    /* The date text is measured whenever it changes, to bound it in the display list. */
+    private String mMeasuredDateText;
+    private float mDateHalfWidth;
+
+    /* Precompiled paints of every display mode, and the one currently drawn with. */
+    private Theme[] mThemes;
+    private Theme mTheme;
+
+    private boolean mAmbient;
+    private boolean mLowBitAmbient;
+    private boolean mBurnInProtection;
+    private boolean mMuteMode;
+
+    /* Ambient frames are painted once a minute into a cache and blitted on every wake-up. */
+    private AmbientRenderer mAmbientRenderer;
+
+    /* Labels and date text are rebuilt only when the locale or day changes. */
+    private NumberLabels mNumberLabels;
+    private final DateText mDateText = new DateText();
+
+    /* Optional pre-rendered satellite labels. Labels are drawn as text until they are set. */
+    private LabelAtlas mHourAtlas;
+    private LabelAtlas mMinuteAtlas;
+    private LabelAtlas mSecondAtlas;
+
+    /* Complications, each cached as a bitmap until its data or time-dependent text changes. */
+    private final ComplicationSlot[] mComplications;
+
+    /* Frame buffer that only repaints the regions that changed since the last frame. */
+    private FrameRenderer mFrameRenderer;
+    private final FrameRenderer.OpPainter mOpPainter = new FrameRenderer.OpPainter() {
+        @Override
+        public void paint(Canvas canvas, DisplayList list, int index) {
+            paintOp(canvas, list, index);
+        }
+
+        @Override
+        public void flush(Canvas canvas) {
+            flushSatellites(canvas);
+        }
+    };
+
+    /**
+     * The complications are indexed by their ids, {@link OrbitWatchFace#LEFT_COMPLICATION_ID}
+     * and {@link OrbitWatchFace#RIGHT_COMPLICATION_ID}.
+     */
+    FaceRenderer(TimeZone timeZone, RefreshController refreshController, Stopwatch stopwatch,
+                 ComplicationSlot[] complications, FrameStats frameStats, FrameTracer frameTracer) {
+        mWallClock = new WallClock(timeZone);
+        mRefreshController = refreshController;
+        mStopwatch = stopwatch;
+        mComplications = complications;
+        mFrameStats = frameStats;
+        mFrameTracer = frameTracer;
+    }
+
+    /**
+     * Swaps in the labels, configuration and themes built by the warm-up, and the label
+     * atlases if it built them.
+     */
+    void setWarm(NumberLabels numberLabels, OrbitConfig config, Theme[] themes,
+                 LabelAtlas hourAtlas, LabelAtlas minuteAtlas, LabelAtlas secondAtlas) {
+        mNumberLabels = numberLabels;
+        mConfig = config;
+        adoptThemes(themes, config);
+        mHourAtlas = hourAtlas;
+        mMinuteAtlas = minuteAtlas;
+        mSecondAtlas = secondAtlas;
+        if (mGeometry != null) {
+            layoutSatellites();
+        }
+    }
+
+    /**
+     * Returns whether the themes and the layout are ready, so that the whole face is drawn.
+     */
+    boolean isWarm() {
+        return mThemes != null && mOrbits != null;
+    }
+
+    /**
+     * Switches to a new configuration snapshot. Outline and clock format changes are picked up
+     * by the display list diff; color changes recompile the themes, and theme and atlas changes
+     * force a full repaint.
+     */
+    void setConfig(OrbitConfig config) {
+        final OrbitConfig previous = mConfig;
+        if (config == previous) {
+            return;
+        }
+        mConfig = config;
+
+        boolean paintsChanged = false;
+        if (config.getTextColor() != previous.getTextColor()
+                || config.getSatelliteColor() != previous.getSatelliteColor()
+                || config.getBackgroundColor() != previous.getBackgroundColor()) {
+            compileThemes();
+            paintsChanged = true;
+        }
+        if (previous.useLabelAtlas() && !config.useLabelAtlas()) {
+            releaseLabelAtlases();
+            paintsChanged = true;
+        } else if (config.useLabelAtlas() && !previous.useLabelAtlas()) {
+            paintsChanged = true;
+        }
+        if (paintsChanged) {
+            invalidateFrame();
+        }
+    }
+
+    /**
+     * Shows the home-time satellite with {@code homeOffsets}, or hides it if null.
+     */
+    void setHomeOffsets(ZoneOffsetTable homeOffsets) {
+        mHomeOffsets = homeOffsets;
+
+        final SatelliteSpec[] satellites = homeOffsets != null ? SATELLITES_WITH_HOME : SATELLITES;
+        if (satellites != mSatellites) {
+            mSatellites = satellites;
+            if (mGeometry != null && mThemes != null) {
+                layoutSatellites();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the themes of all modes for the current configuration, locale and photo.
+     */
+    private void compileThemes() {
+        final OrbitConfig config = themeConfig();
+        adoptThemes(ThemeCompiler.compile(config, mNumberLabels), config);
+    }
+
+    /**
+     * Returns the configuration to compile the themes from: over a photo, the colors picked
+     * from the photo replace the configured satellite and text colors.
+     */
+    private OrbitConfig themeConfig() {
+        if (mPhoto == null) {
+            return mConfig;
+        }
+        return new OrbitConfig.Builder(mConfig)
+                .setSatelliteColor(mPhoto.getSatelliteColor())
+                .setTextColor(mPhoto.getTextColor())
+                .build();
+    }
+
+    private void adoptThemes(Theme[] themes, OrbitConfig config) {
+        mThemes = themes;
+        mTheme = null;
+        selectTheme();
+
+        for (ComplicationSlot complication : mComplications) {
+            complication.setColors(config.getTextColor(), config.getSatelliteColor());
+        }
+    }
+
+    PhotoBackground getPhoto() {
+        return mPhoto;
+    }
+
+    /**
+     * Replaces the photo background, recycling the previous one, and recompiles the themes
+     * with its colors; null drops the photo.
+     */
+    void setPhoto(PhotoBackground photo) {
+        if (mPhoto != null) {
+            mPhoto.recycle();
+        }
+        mPhoto = photo;
+
+        compileThemes();
+    }
+
+    void setAmbient(boolean ambient) {
+        mAmbient = ambient;
+        selectTheme();
+        for (ComplicationSlot complication : mComplications) {
+            complication.setInAmbientMode(ambient);
+        }
+    }
+
+    void setAmbientProperties(boolean lowBitAmbient, boolean burnInProtection) {
+        mLowBitAmbient = lowBitAmbient;
+        mBurnInProtection = burnInProtection;
+        selectTheme();
+        for (ComplicationSlot complication : mComplications) {
+            complication.setAmbientProperties(lowBitAmbient, burnInProtection);
+        }
+    }
+
+    void setMuteMode(boolean muteMode) {
+        mMuteMode = muteMode;
+        selectTheme();
+    }
+
+    /**
+     * Switches to the precompiled theme of the current mode. Mode switches never modify a
+     * paint, they only swap the theme reference.
+     */
+    private void selectTheme() {
+        if (mThemes == null) {
+            return;
+        }
+
+        final Theme theme = mThemes[ThemeCompiler.modeFor(mAmbient, mLowBitAmbient, mMuteMode)];
+        if (theme != mTheme) {
+            mTheme = theme;
+            invalidateFrame();
+        }
+    }
+
+    FaceGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * Lays the face out for a new surface size, with fresh frame buffers.
+     */
+    void setSurfaceSize(int width, int height) {
+        mGeometry = new FaceGeometry(width, height);
+        if (mThemes != null) {
+            layoutSatellites();
+        }
+        mDateCenterY = mGeometry.getCenterY() + mGeometry.getDateHandLength();
+
+        mComplications[OrbitWatchFace.LEFT_COMPLICATION_ID].setBounds(mGeometry.getLeftComplicationX(),
+                mGeometry.getCenterY(), mGeometry.getComplicationRadius());
+        mComplications[OrbitWatchFace.RIGHT_COMPLICATION_ID].setBounds(mGeometry.getRightComplicationX(),
+                mGeometry.getCenterY(), mGeometry.getComplicationRadius());
+
+        if (mFrameRenderer != null) {
+            mFrameRenderer.recycle();
+            mAmbientRenderer.recycle();
+        }
+        mFrameRenderer = new FrameRenderer(width, height);
+        mAmbientRenderer = new AmbientRenderer(width, height);
+    }
+
+    /**
+     * Precomputes the satellite positions; text metrics are the same in every theme.
+     */
+    private void layoutSatellites() {
+        final OrbitTable[] orbits = new OrbitTable[mSatellites.length];
+        for (int i = 0; i < mSatellites.length; i++) {
+            orbits[i] = mGeometry.newOrbit(mSatellites[i], mTheme.getBaselineOffset(mSatellites[i].getRole()));
+        }
+        mOrbits = orbits;
+    }
+
+    /**
+     * Forces the next frame to repaint everything.
+     */
+    void invalidateFrame() {
+        if (mFrameRenderer != null) {
+            mFrameRenderer.invalidate();
+            mAmbientRenderer.invalidate();
+        }
+    }
+
+    /**
+     * Switches the clock and the date to a new time zone.
+     */
+    void setTimeZone(TimeZone timeZone) {
+        mWallClock.setTimeZone(timeZone);
+        mDateText.invalidate();
+    }
+
+    NumberLabels getNumberLabels() {
+        return mNumberLabels;
+    }
+
+    /**
+     * Returns the interactive theme, which the label atlases are rendered with.
+     */
+    Theme getInteractiveTheme() {
+        return mThemes[ThemeCompiler.MODE_INTERACTIVE];
+    }
+
+    boolean hasLabelAtlases() {
+        return mHourAtlas != null;
+    }
+
+    /**
+     * Draws the hour, minute and second labels from {@code atlases}, in that order, from the
+     * next frame on.
+     */
+    void setLabelAtlases(LabelAtlas[] atlases) {
+        mHourAtlas = atlases[0];
+        mMinuteAtlas = atlases[1];
+        mSecondAtlas = atlases[2];
+        invalidateFrame();
+    }
+
+    private void releaseLabelAtlases() {
+        if (mHourAtlas == null) {
+            return;
+        }
+
+        mHourAtlas.recycle();
+        mMinuteAtlas.recycle();
+        mSecondAtlas.recycle();
+
+        mHourAtlas = null;
+        mMinuteAtlas = null;
+        mSecondAtlas = null;
+    }
+
+    /**
+     * Recycles the bitmaps of the photo, the atlases and the frame buffers. The complications
+     * belong to the engine.
+     */
+    void release() {
+        if (mPhoto != null) {
+            mPhoto.recycle();
+        }
+        releaseLabelAtlases();
+        if (mFrameRenderer != null) {
+            mFrameRenderer.recycle();
+            mAmbientRenderer.recycle();
+        }
+    }
+
+    /**
+     * Returns whether ({@code x}, {@code y}) is on the seconds satellite or the readout, as
+     * last drawn, while they show the stopwatch or can start it.
+     */
+    boolean hitsStopwatch(int x, int y) {
+        return hitsSecondsSatellite(x, y) || hitsReadout(x, y);
+    }
+
+    /**
+     * Returns whether ({@code x}, {@code y}) is on the seconds satellite as last drawn, with
+     * some slack around it, since it is the smallest one.
+     */
+    private boolean hitsSecondsSatellite(int x, int y) {
+        if (mOrbits == null || !isSecondsShown()) {
+            return false;
+        }
+
+        for (int i = 0; i < mSatellites.length; i++) {
+            final SatelliteSpec spec = mSatellites[i];
+            if (spec.isSeconds()) {
+                final int position = satellitePosition(spec);
+                final float radius = mGeometry.getSatelliteRadius(spec) * TAP_TARGET_SCALE;
+                final float dx = x - mOrbits[i].getX(position);
+                final float dy = y - mOrbits[i].getY(position);
+                return dx * dx + dy * dy <= radius * radius;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether ({@code x}, {@code y}) is on the stopwatch readout, which stays
+     * tappable when the seconds are hidden, e.g. in mute mode.
+     */
+    private boolean hitsReadout(int x, int y) {
+        if (mGeometry == null || !isStopwatchShown()) {
+            return false;
+        }
+
+        return Math.abs(x - mGeometry.getCenterX()) <= mReadoutHalfWidth
+                && Math.abs(y - mDateCenterY) <= mTheme.getLabelHalfHeight(Theme.ROLE_DATE) * TAP_TARGET_SCALE;
+    }
+
+    /**
+     * Draws the frame for {@code now}, with the stopwatch at {@code stopwatchMs} and the labels
+     * and date of {@code locale}. Until warm, only the background is drawn.
+     */
+    void draw(Canvas canvas, long now, long stopwatchMs, Locale locale) {
+        mWallClock.update(now);
+        mFaceState.update(mWallClock, mConfig.use24HourClock());
+        if (mHomeOffsets != null) {
+            mFaceState.updateHomeTime(mHomeOffsets, now, mConfig.use24HourClock());
+        }
+        mStopwatchMs = stopwatchMs;
+
+        if (isWarm()) {
+            drawFace(canvas, now, locale);
+        } else {
+            /* Still warming up; show the background rather than nothing. */
+            canvas.drawColor(mConfig.getBackgroundColor());
+        }
+    }
+
+    private void drawFace(Canvas canvas, long now, Locale locale) {
+        if (!mNumberLabels.isFor(locale)) {
+            mNumberLabels = new NumberLabels(locale);
+            compileThemes();
+            releaseLabelAtlases();
+            invalidateFrame();
+        }
+
+        /* Complications re-render only on new data or when their text is due to change. */
+        for (ComplicationSlot complication : mComplications) {
+            if (complication.update(now)) {
+                mAmbientRenderer.invalidate();
+            }
+        }
+
+        if (mAmbient) {
+            drawAmbientFrame(canvas, locale);
+        } else {
+            recordWatchFace(mFrameRenderer.beginFrame(), locale);
+            mFrameRenderer.endFrame(canvas, mOpPainter);
+        }
+    }
+
+    /**
+     * Draws the ambient frame, recording and painting it only when the minute changed since
+     * the cached one. Other wake-ups in the same minute skip all date and satellite work.
+     */
+    private void drawAmbientFrame(Canvas canvas, Locale locale) {
+        final long minuteKey = mFaceState.getMinuteKey();
+        if (!mAmbientRenderer.isValid(minuteKey)) {
+            recordWatchFace(mAmbientRenderer.beginFrame(), locale);
+            mAmbientRenderer.endFrame(mOpPainter, minuteKey);
+        }
+        /* Low-bit and burn-in protected screens get the plain background instead. */
+        final Bitmap background = mPhoto != null && !mLowBitAmbient && !mBurnInProtection
+                ? mPhoto.getAmbientBitmap() : null;
+        mAmbientRenderer.draw(canvas, mTheme, background, mBurnInProtection, minuteKey);
+    }
+
+    /**
+     * Draws the last frame time, the frame count and the average repainted area per frame
+     * one line below the date, clear of the home satellite above the hour satellite and of
+     * the complications beside it.
+     */
+    void drawDebugOverlay(Canvas canvas) {
+        final long frames = Math.max(1, mFrameStats.getFrameCount());
+
+        mDebugText.setLength(0);
+        mDebugText.append(mFrameStats.getLastFrameNanos() / 1000).append("us #")
+                .append(frames).append(" px")
+                .append(mFrameRenderer.getRepaintedPixels() / frames);
+
+        final float lineY = mDateCenterY + 2 * mTheme.getLabelHalfHeight(Theme.ROLE_DATE);
+        canvas.drawText(mDebugText, 0, mDebugText.length(),
+                mGeometry.getCenterX(), lineY + mTheme.getBaselineOffset(Theme.ROLE_DATE),
+                mTheme.getTextPaint(Theme.ROLE_DATE));
+    }
+
+    /**
+     * Records the face for the current time into {@code list}: the background, the
+     * satellites, and the date text or the stopwatch readout.
+     */
+    private void recordWatchFace(DisplayList list, Locale locale) {
+        list.addClear(mTheme.getBackgroundColor(), mGeometry.getWidth(), mGeometry.getHeight());
+
+        // Record the satellites; the seconds one only while the seconds are shown
+        final boolean showSeconds = isSecondsShown();
+        for (int i = 0; i < mSatellites.length; i++) {
+            final SatelliteSpec spec = mSatellites[i];
+            if (spec.isSeconds() && !showSeconds) {
+                continue;
+            }
+
+            recordSatellite(
+                    list,
+                    spec.getRole(),
+                    satelliteValue(spec),
+                    mGeometry.getSatelliteRadius(spec),
+                    mOrbits[i],
+                    satellitePosition(spec),
+                    !mAmbient && spec.showOutline(mConfig));
+        }
+
+        if (isStopwatchShown()) {
+            recordReadout(list, locale);
+        } else {
+            recordDate(list, locale);
+        }
+
+        // Record the complications, as images identified by their render version
+        for (int i = 0; i < mComplications.length; i++) {
+            final ComplicationSlot complication = mComplications[i];
+            if (complication.hasData()) {
+                list.addImage(i, complication.getVersion(), complication.getCenterX(),
+                        complication.getCenterY(), complication.getRadius());
+            }
+        }
+    }
+
+    /**
+     * Records the date text, measuring it only when it changes.
+     */
+    private void recordDate(DisplayList list, Locale locale) {
+        mFrameTracer.begin(FrameTracer.EVENT_FORMAT_DATE);
+        final String dateText = mDateText.get(mWallClock, locale);
+        mFrameTracer.end(FrameTracer.EVENT_FORMAT_DATE);
+        if (dateText != mMeasuredDateText) {
+            mMeasuredDateText = dateText;
+            mDateHalfWidth = mTheme.getTextPaint(Theme.ROLE_DATE).measureText(dateText) / 2 + 1;
+        }
+        list.addText(Theme.ROLE_DATE, mFaceState.getDayKey(), mGeometry.getCenterX(), mDateCenterY,
+                mDateHalfWidth, mTheme.getLabelHalfHeight(Theme.ROLE_DATE));
+    }
+
+    /**
+     * Records the stopwatch readout in place of the date, formatting and measuring it only
+     * when the text changes. The hundredths are shown during the burst and once stopped;
+     * otherwise the face ticks too slowly for them, so the readout shows whole seconds.
+     *
+     * Its key is the number of hundredths or seconds shown, doubled, plus one for hundredths,
+     * so that it changes with the precision too. Its value is the negated key, which no day
+     * key equals, so the diff tells the two apart.
+     */
+    private void recordReadout(DisplayList list, Locale locale) {
+        if (!locale.equals(mReadoutLocale)) {
+            mReadoutLocale = locale;
+            mReadoutZeroDigit = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+            mReadoutKey = -1;
+        }
+
+        final boolean showHundredths = !mStopwatch.isRunning() || mRefreshController.isBursting();
+        final long key = showHundredths ? mStopwatchMs / 10 * 2 + 1 : mStopwatchMs / 1000 * 2;
+        if (key != mReadoutKey) {
+            mReadoutKey = key;
+            mReadoutLength = Stopwatch.format(mStopwatchMs, showHundredths, mReadoutZeroDigit, mReadout);
+            mReadoutHalfWidth = mTheme.getTextPaint(Theme.ROLE_DATE).measureText(mReadout, 0, mReadoutLength) / 2 + 1;
+        }
+        list.addText(Theme.ROLE_DATE, (int) (-1 - key), mGeometry.getCenterX(), mDateCenterY,
+                mReadoutHalfWidth, mTheme.getLabelHalfHeight(Theme.ROLE_DATE));
+    }
+
+    private boolean isSecondsShown() {
+        return !mAmbient && mRefreshController.getRate() != RefreshPolicy.RATE_MINUTE;
+    }
+
+    /**
+     * Returns whether the seconds satellite and the date slot show the stopwatch; the
+     * ambient face always shows the time.
+     */
+    private boolean isStopwatchShown() {
+        return !mAmbient && !mStopwatch.isIdle();
+    }
+
+    private int satelliteValue(SatelliteSpec spec) {
+        if (spec.isSeconds() && isStopwatchShown()) {
+            return (int) (mStopwatchMs / 1000 % 60);
+        }
+        return spec.getValue(mFaceState);
+    }
+
+    private int satellitePosition(SatelliteSpec spec) {
+        if (spec.isSeconds() && isStopwatchShown()) {
+            return OrbitTable.secondsIndex((int) (mStopwatchMs / 1000 % 60), (int) (mStopwatchMs % 1000));
+        }
+        return spec.getPosition(mFaceState);
+    }
+
+    private void recordSatellite(DisplayList list, int role, int number, float radius, OrbitTable orbit, int position, boolean drawOutline) {
+        final float satelliteX = orbit.getX(position);
+        final float satelliteY = orbit.getY(position);
+
+        if (drawOutline) {
+            list.addCircle(role, satelliteX, satelliteY, radius, ThemeCompiler.OUTLINE_OUTSET);
+        }
+
+        list.addText(role, number, satelliteX, satelliteY,
+                mTheme.getLabelHalfWidth(role), mTheme.getLabelHalfHeight(role));
+    }
+
+    /**
+     * Paints one recorded op; called by the {@link FrameRenderer} for every op that overlaps a
+     * dirty region. Satellite outlines and labels are only batched here, and drawn by
+     * {@link #flushSatellites(Canvas)} before the next op that is not a satellite, so that the
+     * date and complications recorded after them still draw over them.
+     */
+    private void paintOp(Canvas canvas, DisplayList list, int index) {
+        final int type = list.getType(index);
+        final int role = list.getRole(index);
+        if (type != DisplayList.OP_CIRCLE && (type != DisplayList.OP_TEXT || role == Theme.ROLE_DATE)) {
+            flushSatellites(canvas);
+        }
+
+        final long start = mFrameStats.begin();
+        final int phase = phaseFor(type, role);
+        mFrameTracer.begin(phase);
+
+        switch (type) {
+            case DisplayList.OP_CLEAR:
+                if (mPhoto != null) {
+                    canvas.drawBitmap(mPhoto.getBitmap(), 0, 0, null);
+                } else {
+                    canvas.drawColor(list.getValue(index));
+                }
+                break;
+
+            case DisplayList.OP_CIRCLE:
+                mSatelliteBatch.addOutline(list.getX(index), list.getY(index), list.getRadius(index));
+                break;
+
+            case DisplayList.OP_TEXT:
+                drawText(canvas, role, list.getValue(index), list.getX(index), list.getY(index));
+                break;
+
+            case DisplayList.OP_IMAGE:
+                mComplications[role].draw(canvas);
+                break;
+        }
+
+        mFrameTracer.end(phase);
+        mFrameStats.end(phase, start);
+    }
+
+    private void drawText(Canvas canvas, int role, int value, float centerX, float centerY) {
+        final float textY = centerY + mTheme.getBaselineOffset(role);
+
+        if (role == Theme.ROLE_DATE) {
+            final Paint paint = mTheme.getTextPaint(role);
+            if (value < 0) {
+                canvas.drawText(mReadout, 0, mReadoutLength, centerX, textY, paint);
+            } else {
+                canvas.drawText(mMeasuredDateText, centerX, textY, paint);
+            }
+            return;
+        }
+
+        /* Satellite labels are drawn by flushSatellites, on top of the outlines. */
+        if (atlasFor(role) != null) {
+            mSatelliteBatch.addBlit(role, value, centerX, centerY);
+        } else {
+            mSatelliteBatch.addLabel(role, mNumberLabels.get(value), centerX, textY);
+        }
+    }
+
+    /**
+     * Returns the label atlas of a satellite role, or null if its labels are drawn as text.
+     */
+    private LabelAtlas atlasFor(int role) {
+        switch (role) {
+            case Theme.ROLE_HOUR:
+                return mHourAtlas;
+            case Theme.ROLE_MINUTE:
+                return mMinuteAtlas;
+            case Theme.ROLE_SECOND:
+                return mSecondAtlas;
+            default:
+                /* A single home label that changes once an hour is not worth an atlas. */
+                return null;
+        }
+    }
+
+    /**
+     * Draws the batched satellite outlines and labels: one path, then the text labels and
+     * atlas blits of each role with its paint, so labels always end up above the outlines.
+     */
+    private void flushSatellites(Canvas canvas) {
+        if (mSatelliteBatch.hasOutlines()) {
+            final long start = mFrameStats.begin();
+            mFrameTracer.begin(FrameTracer.EVENT_OUTLINES);
+            mSatelliteBatch.drawOutlines(canvas, mTheme.getOutlinePaint());
+            mFrameTracer.end(FrameTracer.EVENT_OUTLINES);
+            mFrameStats.end(FrameStats.PHASE_OUTLINES, start);
+        }
+
+        for (int role = 0; role < Theme.ROLE_COUNT; role++) {
+            if (mSatelliteBatch.hasLabels(role) || mSatelliteBatch.hasBlits(role)) {
+                final int phase = phaseFor(DisplayList.OP_TEXT, role);
+                final long start = mFrameStats.begin();
+                mFrameTracer.begin(phase);
+                mSatelliteBatch.drawLabels(canvas, role, mTheme.getTextPaint(role));
+                if (mSatelliteBatch.hasBlits(role)) {
+                    mSatelliteBatch.drawBlits(canvas, role, atlasFor(role), mTheme.getTextPaint(role),
+                            !mTheme.isAntiAlias());
+                }
+                mFrameTracer.end(phase);
+                mFrameStats.end(phase, start);
+            }
+        }
+
+        mSatelliteBatch.reset();
+    }
+
+    private int phaseFor(int type, int role) {
+        if (type == DisplayList.OP_CLEAR) {
+            return FrameStats.PHASE_BACKGROUND;
+        }
+        if (type == DisplayList.OP_IMAGE) {
+            return FrameStats.PHASE_COMPLICATION;
+        }
+
+        switch (role) {
+            case Theme.ROLE_HOUR:
+            case Theme.ROLE_HOME:
+                return FrameStats.PHASE_HOUR;
+            case Theme.ROLE_MINUTE:
+                return FrameStats.PHASE_MINUTE;
+            case Theme.ROLE_SECOND:
+                return FrameStats.PHASE_SECOND;
+            default:
+                return FrameStats.PHASE_DATE;
+        }
+    }
+
+    /**
+     * Reports the photo, the clock and the repaint counters.
+     */
+    void dump(String prefix, PrintWriter out) {
+        out.println(prefix + "Photo: " + (mPhoto != null
+                ? "version " + mPhoto.getVersion() + (mPhoto.isFromCache() ? " (from cache)" : " (decoded)")
+                : "none"));
+        out.println(prefix + "Wall clock recomputes: " + mWallClock.getRecomputeCount());
+        if (mFrameRenderer != null) {
+            out.println(prefix + "Repaints: full " + mFrameRenderer.getFullRepaintCount()
+                    + ", partial " + mFrameRenderer.getPartialRepaintCount()
+                    + ", unchanged " + mFrameRenderer.getUnchangedCount()
+                    + ", pixels " + mFrameRenderer.getRepaintedPixels());
+            out.println(prefix + "Ambient frames: " + mAmbientRenderer.getDrawCount()
+                    + " (painted " + mAmbientRenderer.getRenderCount() + ")");
+        }
+    }
+}
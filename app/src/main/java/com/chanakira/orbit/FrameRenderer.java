@@ -0,0 +1,139 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import com.chanakira.orbit.core.DirtyRegion;
+import com.chanakira.orbit.core.DisplayList;
+import com.chanakira.orbit.core.DisplayListDiff;
+
+/**
+ * Renders frames from {@link DisplayList}s into a persistent frame buffer, repainting only the
+ * regions that changed since the previous frame. In practice that is the old and new position
+ * of the seconds satellite, everything else is reused from the buffer.
+ */
+class FrameRenderer {
+
+    interface OpPainter {
+        /**
+         * Paints op {@code index} of {@code list} onto {@code canvas}.
+         */
+        void paint(Canvas canvas, DisplayList list, int index);
+
+        /**
+         * Draws whatever {@link #paint} deferred; called after the ops of every repainted
+         * region, while its clip is still set.
+         */
+        void flush(Canvas canvas);
+    }
+
+    private final Bitmap mFrame;
+    private final Canvas mFrameCanvas;
+    private final int mWidth;
+    private final int mHeight;
+
+    private DisplayList mCurrent = new DisplayList();
+    private DisplayList mPrevious = new DisplayList();
+    private final DirtyRegion mDirty = new DirtyRegion();
+    private boolean mValid;
+
+    private long mFullRepaintCount;
+    private long mPartialRepaintCount;
+    private long mUnchangedCount;
+    private long mRepaintedPixels;
+
+    FrameRenderer(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mFrame = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mFrameCanvas = new Canvas(mFrame);
+    }
+
+    /**
+     * Forces the next frame to repaint everything, e.g. after a paint or ambient change that is
+     * not visible in the display list itself.
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * Returns the cleared display list to record the next frame into.
+     */
+    DisplayList beginFrame() {
+        mCurrent.reset();
+        return mCurrent;
+    }
+
+    /**
+     * Repaints the dirty regions of the recorded frame into the frame buffer and draws the
+     * buffer onto {@code canvas}.
+     */
+    void endFrame(Canvas canvas, OpPainter painter) {
+        if (mValid) {
+            DisplayListDiff.compute(mPrevious, mCurrent, mWidth, mHeight, mDirty);
+        } else {
+            mDirty.setFull(mWidth, mHeight);
+            mValid = true;
+        }
+
+        if (mDirty.isEmpty()) {
+            mUnchangedCount++;
+        } else if (mDirty.isFull()) {
+            mFullRepaintCount++;
+        } else {
+            mPartialRepaintCount++;
+        }
+        mRepaintedPixels += mDirty.getArea();
+
+        for (int rect = 0; rect < mDirty.getCount(); rect++) {
+            repaint(rect, painter);
+        }
+
+        canvas.drawBitmap(mFrame, 0, 0, null);
+
+        final DisplayList previous = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = previous;
+    }
+
+    private void repaint(int rect, OpPainter painter) {
+        final float left = (float) Math.floor(mDirty.getLeft(rect));
+        final float top = (float) Math.floor(mDirty.getTop(rect));
+        final float right = (float) Math.ceil(mDirty.getRight(rect));
+        final float bottom = (float) Math.ceil(mDirty.getBottom(rect));
+
+        mFrameCanvas.save();
+        mFrameCanvas.clipRect(left, top, right, bottom);
+
+        for (int i = 0; i < mCurrent.size(); i++) {
+            if (mDirty.intersects(rect, mCurrent.getLeft(i), mCurrent.getTop(i),
+                    mCurrent.getRight(i), mCurrent.getBottom(i))) {
+                painter.paint(mFrameCanvas, mCurrent, i);
+            }
+        }
+        painter.flush(mFrameCanvas);
+
+        mFrameCanvas.restore();
+    }
+
+    long getFullRepaintCount() {
+        return mFullRepaintCount;
+    }
+
+    long getPartialRepaintCount() {
+        return mPartialRepaintCount;
+    }
+
+    long getUnchangedCount() {
+        return mUnchangedCount;
+    }
+
+    long getRepaintedPixels() {
+        return mRepaintedPixels;
+    }
+
+    void recycle() {
+        mFrame.recycle();
+    }
+}
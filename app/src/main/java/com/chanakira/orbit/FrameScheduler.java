@@ -0,0 +1,76 @@
+package com.chanakira.orbit;
+
+import android.view.Choreographer;
+
+import com.chanakira.orbit.core.FramePacer;
+
+/**
+ * Drives redraws at a fixed rate aligned to display vsync, for the smooth-sweep seconds mode.
+ * Which vsyncs get a frame, and which count as dropped, is up to a {@link FramePacer}.
+ */
+class FrameScheduler implements Choreographer.FrameCallback {
+
+    interface Callback {
+        void onFrame(long frameTimeNanos);
+    }
+
+    private final Choreographer mChoreographer;
+    private final Callback mCallback;
+    private final FramePacer mPacer = new FramePacer(60);
+
+    private boolean mRunning;
+
+    /**
+     * Must be created on the thread whose looper will deliver the frames.
+     */
+    FrameScheduler(Callback callback) {
+        mChoreographer = Choreographer.getInstance();
+        mCallback = callback;
+    }
+
+    void setFramesPerSecond(int framesPerSecond) {
+        mPacer.setFramesPerSecond(framesPerSecond);
+    }
+
+    void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mPacer.restart();
+        mChoreographer.postFrameCallback(this);
+    }
+
+    void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mChoreographer.removeFrameCallback(this);
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+
+        if (mPacer.onVsync(frameTimeNanos)) {
+            mCallback.onFrame(frameTimeNanos);
+        }
+
+        mChoreographer.postFrameCallback(this);
+    }
+
+    long getFrameCount() {
+        return mPacer.getFrameCount();
+    }
+
+    long getDroppedFrameCount() {
+        return mPacer.getDroppedFrameCount();
+    }
+}
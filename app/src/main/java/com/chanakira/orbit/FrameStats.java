@@ -0,0 +1,158 @@
+package com.chanakira.orbit;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Fixed-memory draw-time instrumentation. Durations are recorded per phase into power-of-two
+ * histograms, so recording is a couple of array writes and never allocates.
+ */
+class FrameStats {
+
+    static final int PHASE_FRAME = 0;
+    static final int PHASE_BACKGROUND = 1;
+    static final int PHASE_HOUR = 2;
+    static final int PHASE_MINUTE = 3;
+    static final int PHASE_SECOND = 4;
+    static final int PHASE_DATE = 5;
+    static final int PHASE_COMPLICATION = 6;
+    static final int PHASE_OUTLINES = 7;
+
+    private static final String[] PHASE_NAMES = {
+            "frame", "background", "hour", "minute", "second", "date", "complication", "outlines"
+    };
+    private static final int PHASE_COUNT = PHASE_NAMES.length;
+
+    /* Bucket 0 holds durations under 64us, each following bucket doubles, the last is open. */
+    private static final long FIRST_BUCKET_NANOS = 64000L;
+    private static final int BUCKET_COUNT = 16;
+
+    /* A timer tick delivered this much later than scheduled counts as a missed deadline. */
+    static final long MISSED_DEADLINE_MS = 50;
+
+    private final long[][] mHistograms = new long[PHASE_COUNT][BUCKET_COUNT];
+    private final long[] mSampleCounts = new long[PHASE_COUNT];
+    private final long[] mTotalNanos = new long[PHASE_COUNT];
+    private final long[] mMaxNanos = new long[PHASE_COUNT];
+
+    private long mFrameCount;
+    private long mAmbientFrameCount;
+    private long mTimerTickCount;
+    private long mMissedDeadlineCount;
+    private long mLastFrameNanos;
+
+    /**
+     * Returns the start timestamp to pass to {@link #end(int, long)}.
+     */
+    long begin() {
+        return System.nanoTime();
+    }
+
+    void end(int phase, long startNanos) {
+        final long duration = System.nanoTime() - startNanos;
+
+        mHistograms[phase][bucketFor(duration)]++;
+        mSampleCounts[phase]++;
+        mTotalNanos[phase] += duration;
+        if (duration > mMaxNanos[phase]) {
+            mMaxNanos[phase] = duration;
+        }
+
+        if (phase == PHASE_FRAME) {
+            mLastFrameNanos = duration;
+        }
+    }
+
+    void recordFrame(boolean ambient) {
+        mFrameCount++;
+        if (ambient) {
+            mAmbientFrameCount++;
+        }
+    }
+
+    /**
+     * Records how late a timer tick was delivered compared with when it was scheduled.
+     */
+    void recordTimerLatency(long latencyMs) {
+        mTimerTickCount++;
+        if (latencyMs > MISSED_DEADLINE_MS) {
+            mMissedDeadlineCount++;
+        }
+    }
+
+    long getFrameCount() {
+        return mFrameCount;
+    }
+
+    long getLastFrameNanos() {
+        return mLastFrameNanos;
+    }
+
+    void reset() {
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                mHistograms[phase][bucket] = 0;
+            }
+            mSampleCounts[phase] = 0;
+            mTotalNanos[phase] = 0;
+            mMaxNanos[phase] = 0;
+        }
+
+        mFrameCount = 0;
+        mAmbientFrameCount = 0;
+        mTimerTickCount = 0;
+        mMissedDeadlineCount = 0;
+        mLastFrameNanos = 0;
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Frames: " + mFrameCount + " (ambient " + mAmbientFrameCount + ")");
+        writer.println(prefix + "Timer ticks: " + mTimerTickCount + " (missed deadlines " + mMissedDeadlineCount
+                + ", > " + MISSED_DEADLINE_MS + "ms late)");
+
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            final long samples = mSampleCounts[phase];
+            if (samples == 0) {
+                writer.println(prefix + "  " + PHASE_NAMES[phase] + ": no samples");
+                continue;
+            }
+
+            writer.println(String.format(Locale.US,
+                    "%s  %s: n=%d mean=%dus p50<%dus p90<%dus p99<%dus max=%dus",
+                    prefix,
+                    PHASE_NAMES[phase],
+                    samples,
+                    mTotalNanos[phase] / samples / 1000,
+                    percentileBound(phase, 0.50) / 1000,
+                    percentileBound(phase, 0.90) / 1000,
+                    percentileBound(phase, 0.99) / 1000,
+                    mMaxNanos[phase] / 1000));
+        }
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile of a phase.
+     */
+    private long percentileBound(int phase, double percentile) {
+        final long target = (long) Math.ceil(mSampleCounts[phase] * percentile);
+
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT - 1; bucket++) {
+            seen += mHistograms[phase][bucket];
+            if (seen >= target) {
+                return FIRST_BUCKET_NANOS << bucket;
+            }
+        }
+        return mMaxNanos[phase];
+    }
+
+    private static int bucketFor(long durationNanos) {
+        int bucket = 0;
+        long bound = FIRST_BUCKET_NANOS;
+        while (durationNanos >= bound && bucket < BUCKET_COUNT - 1) {
+            bound <<= 1;
+            bucket++;
+        }
+        return bucket;
+    }
+}
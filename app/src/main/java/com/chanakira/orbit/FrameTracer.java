@@ -0,0 +1,211 @@
+package com.chanakira.orbit;
+
+import android.os.Process;
+import android.os.Trace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Fixed-size ring buffer of draw events, exported as a Chrome {@code trace_event} JSON file that
+ * opens in Perfetto or {@code chrome://tracing}. Sections are mirrored to {@link Trace}, so they
+ * also show up in systrace captures; both use the monotonic clock, so the two line up.
+ *
+ * Recording only happens between {@link #start()} and {@link #stop()}, and then keeps the most
+ * recent {@link #CAPACITY} events. With {@code BuildConfig.FRAME_TRACING} off, every method body
+ * is compiled out.
+ *
+ * Events must be recorded on the thread that draws the face.
+ */
+class FrameTracer {
+
+    static final boolean ENABLED = BuildConfig.FRAME_TRACING;
+
+    /* Sections; the first ones match the FrameStats phases. */
+    static final int EVENT_DRAW = FrameStats.PHASE_FRAME;
+    static final int EVENT_BACKGROUND = FrameStats.PHASE_BACKGROUND;
+    static final int EVENT_HOUR = FrameStats.PHASE_HOUR;
+    static final int EVENT_MINUTE = FrameStats.PHASE_MINUTE;
+    static final int EVENT_SECOND = FrameStats.PHASE_SECOND;
+    static final int EVENT_DATE = FrameStats.PHASE_DATE;
+    static final int EVENT_COMPLICATION = FrameStats.PHASE_COMPLICATION;
+    static final int EVENT_OUTLINES = FrameStats.PHASE_OUTLINES;
+    static final int EVENT_FORMAT_DATE = 8;
+
+    /* Counters and instants. */
+    static final int EVENT_TIMER_LATENCY = 9;
+    static final int EVENT_AMBIENT = 10;
+    static final int EVENT_BURST = 11;
+
+    private static final String[] EVENT_NAMES = {
+            "onDraw", "drawBackground", "drawSatellite hour", "drawSatellite minute",
+            "drawSatellite second", "drawDate", "drawComplication", "drawOutlines", "formatDate",
+            "timer latency ms", "ambient", "burst"
+    };
+
+    static final int CAPACITY = 8192;
+
+    private static final byte TYPE_BEGIN = 0;
+    private static final byte TYPE_END = 1;
+    private static final byte TYPE_COUNTER = 2;
+    private static final byte TYPE_INSTANT = 3;
+
+    private long[] mTimestamps;
+    private byte[] mTypes;
+    private byte[] mEvents;
+    private long[] mValues;
+
+    /* Total events recorded since start; the ring holds the last CAPACITY of them. */
+    private long mCount;
+    private volatile boolean mRecording;
+    private int mThreadId;
+
+    /**
+     * Clears the buffer and starts recording. The buffer is allocated on the first start.
+     */
+    void start() {
+        if (!ENABLED) {
+            return;
+        }
+
+        if (mTimestamps == null) {
+            mTimestamps = new long[CAPACITY];
+            mTypes = new byte[CAPACITY];
+            mEvents = new byte[CAPACITY];
+            mValues = new long[CAPACITY];
+        }
+        mCount = 0;
+        mRecording = true;
+    }
+
+    void stop() {
+        mRecording = false;
+    }
+
+    boolean isRecording() {
+        return mRecording;
+    }
+
+    void begin(int event) {
+        if (!ENABLED) {
+            return;
+        }
+
+        Trace.beginSection(EVENT_NAMES[event]);
+        record(TYPE_BEGIN, event, 0);
+    }
+
+    /**
+     * Ends the innermost section, which must be {@code event}.
+     */
+    void end(int event) {
+        if (!ENABLED) {
+            return;
+        }
+
+        record(TYPE_END, event, 0);
+        Trace.endSection();
+    }
+
+    void counter(int event, long value) {
+        if (!ENABLED) {
+            return;
+        }
+
+        record(TYPE_COUNTER, event, value);
+    }
+
+    void instant(int event, long value) {
+        if (!ENABLED) {
+            return;
+        }
+
+        record(TYPE_INSTANT, event, value);
+    }
+
+    private void record(byte type, int event, long value) {
+        if (!mRecording) {
+            return;
+        }
+
+        if (mCount == 0) {
+            mThreadId = Process.myTid();
+        }
+        final int index = (int) (mCount % CAPACITY);
+        mTimestamps[index] = System.nanoTime();
+        mTypes[index] = type;
+        mEvents[index] = (byte) event;
+        mValues[index] = value;
+        mCount++;
+    }
+
+    /**
+     * Stops recording and writes the buffer to {@code file}; returns the number of events
+     * written. Sections cut in half by the ring wrapping around are written as they are.
+     */
+    int export(File file) throws IOException {
+        stop();
+        if (!ENABLED || mTimestamps == null) {
+            return 0;
+        }
+
+        final long first = Math.max(0, mCount - CAPACITY);
+        final int pid = Process.myPid();
+
+        final Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            for (long i = first; i < mCount; i++) {
+                final int index = (int) (i % CAPACITY);
+                if (i != first) {
+                    writer.write(',');
+                }
+                writer.write('\n');
+                writeEvent(writer, index, pid);
+            }
+            writer.write("\n]}\n");
+        } finally {
+            writer.close();
+        }
+        return (int) (mCount - first);
+    }
+
+    private void writeEvent(Writer writer, int index, int pid) throws IOException {
+        final String name = EVENT_NAMES[mEvents[index]];
+        final long nanos = mTimestamps[index];
+
+        final String phase;
+        String args = "";
+        switch (mTypes[index]) {
+            case TYPE_BEGIN:
+                phase = "B";
+                break;
+            case TYPE_END:
+                phase = "E";
+                break;
+            case TYPE_COUNTER:
+                phase = "C";
+                args = ",\"args\":{\"value\":" + mValues[index] + "}";
+                break;
+            default:
+                /* A thread-scoped instant. */
+                phase = "i";
+                args = ",\"s\":\"t\",\"args\":{\"value\":" + mValues[index] + "}";
+                break;
+        }
+
+        writer.write(String.format(Locale.US,
+                "{\"name\":\"%s\",\"ph\":\"%s\",\"ts\":%d.%03d,\"pid\":%d,\"tid\":%d%s}",
+                name, phase, nanos / 1000, nanos % 1000, pid, mThreadId, args));
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Tracing: " + (ENABLED ? (mRecording ? "recording" : "stopped") : "compiled out")
+                + ", " + Math.min(mCount, CAPACITY) + " of " + mCount + " events buffered");
+    }
+}
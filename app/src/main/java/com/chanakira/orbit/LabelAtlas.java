@@ -0,0 +1,97 @@
+package com.chanakira.orbit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.chanakira.orbit.core.NumberLabels;
+
+/**
+ * Sprite atlas of pre-rendered satellite labels, so a satellite number is drawn as a bitmap blit
+ * instead of laying out and rasterizing glyphs every frame.
+ *
+ * Labels are rendered into {@link Bitmap.Config#ALPHA_8} cells, which take their color and alpha
+ * from the paint used to blit them. A text color or mute mode change therefore does not need a
+ * rebuild. Anti-aliased (interactive) and aliased (ambient) variants are both kept so that
+ * switching ambient mode does not need one either.
+ */
+class LabelAtlas {
+
+    private static final int COLUMNS = 10;
+
+    private final int mCount;
+    private final int mCellWidth;
+    private final int mCellHeight;
+
+    private final Bitmap mInteractiveBitmap;
+    private final Bitmap mAmbientBitmap;
+
+    private final Rect mSource = new Rect();
+    private final RectF mDestination = new RectF();
+
+    /**
+     * Renders {@code count} labels (0 to count - 1) using the text style of {@code paint}.
+     */
+    LabelAtlas(Paint paint, NumberLabels labels, int count) {
+        mCount = count;
+
+        Paint textPaint = new Paint(paint);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.clearShadowLayer();
+
+        float maxWidth = 0;
+        for (int i = 0; i < count; i++) {
+            maxWidth = Math.max(maxWidth, textPaint.measureText(labels.get(i)));
+        }
+
+        mCellWidth = (int) Math.ceil(maxWidth) + 2;
+        mCellHeight = (int) Math.ceil(textPaint.descent() - textPaint.ascent()) + 2;
+
+        textPaint.setAntiAlias(true);
+        mInteractiveBitmap = render(textPaint, labels);
+
+        textPaint.setAntiAlias(false);
+        mAmbientBitmap = render(textPaint, labels);
+    }
+
+    private Bitmap render(Paint textPaint, NumberLabels labels) {
+        int rows = (mCount + COLUMNS - 1) / COLUMNS;
+        Bitmap bitmap = Bitmap.createBitmap(mCellWidth * COLUMNS, mCellHeight * rows, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(bitmap);
+
+        for (int i = 0; i < mCount; i++) {
+            float cellCenterX = (i % COLUMNS) * mCellWidth + mCellWidth / 2f;
+            float cellCenterY = (i / COLUMNS) * mCellHeight + mCellHeight / 2f;
+            float baseline = cellCenterY - ((textPaint.descent() + textPaint.ascent()) / 2);
+
+            canvas.drawText(labels.get(i), cellCenterX, baseline, textPaint);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Blits the label for {@code number} centered on ({@code centerX}, {@code centerY}), taking
+     * its color and alpha from {@code paint}.
+     */
+    void draw(Canvas canvas, int number, float centerX, float centerY, Paint paint, boolean ambient) {
+        int left = (number % COLUMNS) * mCellWidth;
+        int top = (number / COLUMNS) * mCellHeight;
+        mSource.set(left, top, left + mCellWidth, top + mCellHeight);
+
+        float x = Math.round(centerX - mCellWidth / 2f);
+        float y = Math.round(centerY - mCellHeight / 2f);
+        mDestination.set(x, y, x + mCellWidth, y + mCellHeight);
+
+        canvas.drawBitmap(ambient ? mAmbientBitmap : mInteractiveBitmap, mSource, mDestination, paint);
+    }
+
+    void recycle() {
+        mInteractiveBitmap.recycle();
+        mAmbientBitmap.recycle();
+    }
+}
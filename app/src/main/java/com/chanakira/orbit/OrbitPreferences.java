@@ -0,0 +1,237 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Map;
+
+import com.chanakira.orbit.core.OrbitConfig;
+
+/**
+ * Reads {@link OrbitConfig} snapshots from the shared preferences. Preference keys are resolved
+ * once, and a changed preference only re-reads that one value.
+ */
+class OrbitPreferences {
+
+    private final SharedPreferences mSharedPreferences;
+
+    private final String mUse24HourClockKey;
+    private final String mBackgroundColorKey;
+    private final String mSatelliteColorKey;
+    private final String mTextColorKey;
+    private final String mShowHourOutlineKey;
+    private final String mShowMinuteOutlineKey;
+    private final String mShowSecondOutlineKey;
+    private final String mUseLabelAtlasKey;
+    private final String mSweepFramesPerSecondKey;
+    private final String mShowDebugOverlayKey;
+    private final String mBackgroundPhotoVersionKey;
+    private final String mHomeTimeZoneKey;
+
+    OrbitPreferences(Context context) {
+        mSharedPreferences = context.getSharedPreferences(
+                context.getString(R.string.preference_file_key), Context.MODE_PRIVATE);
+
+        mUse24HourClockKey = context.getString(R.string.pref_use_24_hour_clock);
+        mBackgroundColorKey = context.getString(R.string.pref_background_color);
+        mSatelliteColorKey = context.getString(R.string.pref_satellite_color);
+        mTextColorKey = context.getString(R.string.pref_text_color);
+        mShowHourOutlineKey = context.getString(R.string.pref_show_hour_outline);
+        mShowMinuteOutlineKey = context.getString(R.string.pref_show_minute_outline);
+        mShowSecondOutlineKey = context.getString(R.string.pref_show_second_outline);
+        mUseLabelAtlasKey = context.getString(R.string.pref_use_label_atlas);
+        mSweepFramesPerSecondKey = context.getString(R.string.pref_sweep_frames_per_second);
+        mShowDebugOverlayKey = context.getString(R.string.pref_show_debug_overlay);
+        mBackgroundPhotoVersionKey = context.getString(R.string.pref_background_photo_version);
+        mHomeTimeZoneKey = context.getString(R.string.pref_home_time_zone);
+    }
+
+    /**
+     * Reads every preference into a new snapshot.
+     */
+    OrbitConfig load() {
+        OrbitConfig defaults = OrbitConfig.DEFAULT;
+
+        return new OrbitConfig.Builder()
+                .setUse24HourClock(mSharedPreferences.getBoolean(mUse24HourClockKey, defaults.use24HourClock()))
+                .setBackgroundColor(mSharedPreferences.getInt(mBackgroundColorKey, defaults.getBackgroundColor()))
+                .setSatelliteColor(mSharedPreferences.getInt(mSatelliteColorKey, defaults.getSatelliteColor()))
+                .setTextColor(mSharedPreferences.getInt(mTextColorKey, defaults.getTextColor()))
+                .setShowHourOutline(mSharedPreferences.getBoolean(mShowHourOutlineKey, defaults.showHourOutline()))
+                .setShowMinuteOutline(mSharedPreferences.getBoolean(mShowMinuteOutlineKey, defaults.showMinuteOutline()))
+                .setShowSecondOutline(mSharedPreferences.getBoolean(mShowSecondOutlineKey, defaults.showSecondOutline()))
+                .setUseLabelAtlas(mSharedPreferences.getBoolean(mUseLabelAtlasKey, defaults.useLabelAtlas()))
+                .setSweepFramesPerSecond(mSharedPreferences.getInt(mSweepFramesPerSecondKey, defaults.getSweepFramesPerSecond()))
+                .setShowDebugOverlay(mSharedPreferences.getBoolean(mShowDebugOverlayKey, defaults.showDebugOverlay()))
+                .setBackgroundPhotoVersion(mSharedPreferences.getInt(mBackgroundPhotoVersionKey, defaults.getBackgroundPhotoVersion()))
+                .setHomeTimeZoneId(mSharedPreferences.getString(mHomeTimeZoneKey, defaults.getHomeTimeZoneId()))
+                .build();
+    }
+
+    /**
+     * Returns {@code config} with the preference {@code key} re-read, or {@code config} itself
+     * if the key is not a face preference or its value did not change.
+     */
+    OrbitConfig update(OrbitConfig config, String key) {
+        OrbitConfig.Builder builder = new OrbitConfig.Builder(config);
+
+        if (mUse24HourClockKey.equals(key)) {
+            boolean value = mSharedPreferences.getBoolean(key, OrbitConfig.DEFAULT.use24HourClock());
+            if (value == config.use24HourClock()) {
+                return config;
+            }
+            builder.setUse24HourClock(value);
+        } else if (mBackgroundColorKey.equals(key)) {
+            int value = mSharedPreferences.getInt(key, OrbitConfig.DEFAULT.getBackgroundColor());
+            if (value == config.getBackgroundColor()) {
+                return config;
+            }
+            builder.setBackgroundColor(value);
+        } else if (mSatelliteColorKey.equals(key)) {
+            int value = mSharedPreferences.getInt(key, OrbitConfig.DEFAULT.getSatelliteColor());
+            if (value == config.getSatelliteColor()) {
+                return config;
+            }
+            builder.setSatelliteColor(value);
+        } else if (mTextColorKey.equals(key)) {
+            int value = mSharedPreferences.getInt(key, OrbitConfig.DEFAULT.getTextColor());
+            if (value == config.getTextColor()) {
+                return config;
+            }
+            builder.setTextColor(value);
+        } else if (mShowHourOutlineKey.equals(key)) {
+            boolean value = mSharedPreferences.getBoolean(key, OrbitConfig.DEFAULT.showHourOutline());
+            if (value == config.showHourOutline()) {
+                return config;
+            }
+            builder.setShowHourOutline(value);
+        } else if (mShowMinuteOutlineKey.equals(key)) {
+            boolean value = mSharedPreferences.getBoolean(key, OrbitConfig.DEFAULT.showMinuteOutline());
+            if (value == config.showMinuteOutline()) {
+                return config;
+            }
+            builder.setShowMinuteOutline(value);
+        } else if (mShowSecondOutlineKey.equals(key)) {
+            boolean value = mSharedPreferences.getBoolean(key, OrbitConfig.DEFAULT.showSecondOutline());
+            if (value == config.showSecondOutline()) {
+                return config;
+            }
+            builder.setShowSecondOutline(value);
+        } else if (mUseLabelAtlasKey.equals(key)) {
+            boolean value = mSharedPreferences.getBoolean(key, OrbitConfig.DEFAULT.useLabelAtlas());
+            if (value == config.useLabelAtlas()) {
+                return config;
+            }
+            builder.setUseLabelAtlas(value);
+        } else if (mSweepFramesPerSecondKey.equals(key)) {
+            int value = mSharedPreferences.getInt(key, OrbitConfig.DEFAULT.getSweepFramesPerSecond());
+            if (value == config.getSweepFramesPerSecond()) {
+                return config;
+            }
+            builder.setSweepFramesPerSecond(value);
+        } else if (mShowDebugOverlayKey.equals(key)) {
+            boolean value = mSharedPreferences.getBoolean(key, OrbitConfig.DEFAULT.showDebugOverlay());
+            if (value == config.showDebugOverlay()) {
+                return config;
+            }
+            builder.setShowDebugOverlay(value);
+        } else if (mBackgroundPhotoVersionKey.equals(key)) {
+            int value = mSharedPreferences.getInt(key, OrbitConfig.DEFAULT.getBackgroundPhotoVersion());
+            if (value == config.getBackgroundPhotoVersion()) {
+                return config;
+            }
+            builder.setBackgroundPhotoVersion(value);
+        } else if (mHomeTimeZoneKey.equals(key)) {
+            String value = mSharedPreferences.getString(key, OrbitConfig.DEFAULT.getHomeTimeZoneId());
+            if (value.equals(config.getHomeTimeZoneId())) {
+                return config;
+            }
+            builder.setHomeTimeZoneId(value);
+        } else {
+            return config;
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns {@code config} with the color preference {@code key} set to {@code color}, or
+     * {@code config} itself if the key is not a color preference.
+     */
+    OrbitConfig withColor(OrbitConfig config, String key, int color) {
+        if (mBackgroundColorKey.equals(key)) {
+            return new OrbitConfig.Builder(config).setBackgroundColor(color).build();
+        } else if (mSatelliteColorKey.equals(key)) {
+            return new OrbitConfig.Builder(config).setSatelliteColor(color).build();
+        } else if (mTextColorKey.equals(key)) {
+            return new OrbitConfig.Builder(config).setTextColor(color).build();
+        }
+        return config;
+    }
+
+    /**
+     * Writes a batch of preference values in a single edit, so listeners see one burst of
+     * changes. Values must be {@link Integer}s for color, rate and photo version keys, a
+     * {@link String} for the home time zone and {@link Boolean}s for the others; unknown keys
+     * and values of the wrong type are skipped.
+     *
+     * @return the number of values written
+     */
+    int write(Map<String, Object> values) {
+        SharedPreferences.Editor editor = mSharedPreferences.edit();
+        int written = 0;
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+
+            if (value instanceof Integer && isIntKey(key)) {
+                editor.putInt(key, (Integer) value);
+                written++;
+            } else if (value instanceof Boolean && isBooleanKey(key)) {
+                editor.putBoolean(key, (Boolean) value);
+                written++;
+            } else if (value instanceof String && mHomeTimeZoneKey.equals(key)) {
+                editor.putString(key, (String) value);
+                written++;
+            }
+        }
+
+        if (written > 0) {
+            editor.apply();
+        }
+        return written;
+    }
+
+    /**
+     * Switches the background to the photo of {@code version}, once that photo is stored.
+     */
+    void setBackgroundPhotoVersion(int version) {
+        mSharedPreferences.edit().putInt(mBackgroundPhotoVersionKey, version).apply();
+    }
+
+    private boolean isIntKey(String key) {
+        return mBackgroundColorKey.equals(key)
+                || mSatelliteColorKey.equals(key)
+                || mTextColorKey.equals(key)
+                || mSweepFramesPerSecondKey.equals(key)
+                || mBackgroundPhotoVersionKey.equals(key);
+    }
+
+    private boolean isBooleanKey(String key) {
+        return mUse24HourClockKey.equals(key)
+                || mShowHourOutlineKey.equals(key)
+                || mShowMinuteOutlineKey.equals(key)
+                || mShowSecondOutlineKey.equals(key)
+                || mUseLabelAtlasKey.equals(key)
+                || mShowDebugOverlayKey.equals(key);
+    }
+
+    void registerListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        mSharedPreferences.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    void unregisterListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        mSharedPreferences.unregisterOnSharedPreferenceChangeListener(listener);
+    }
+}
@@ -6,261 +6,459 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
 import android.graphics.Rect;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
-import android.os.Message;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.SystemProviders;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.view.SurfaceHolder;
 
-import java.lang.ref.WeakReference;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import com.chanakira.orbit.core.AdaptiveRefreshPolicy;
+import com.chanakira.orbit.core.FaceGeometry;
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+import com.chanakira.orbit.core.RefreshController;
+import com.chanakira.orbit.core.Stopwatch;
+import com.chanakira.orbit.core.TimeSource;
+import com.chanakira.orbit.core.WakeupScheduler;
+import com.chanakira.orbit.core.ZoneOffsetTable;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
 public class OrbitWatchFace extends CanvasWatchFaceService {
 
+    /* How long without a tap, a raised wrist or significant motion before the seconds stop updating. */
+    private static final long STILL_THRESHOLD_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /* Battery level, in percent, below which the face counts the battery as low. */
+    private static final int LOW_BATTERY_PERCENT = 15;
+
     /*
-     * Updates rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
+     * The home time zone's offsets are tabled from a day back to a year ahead, and the table is
+     * rebuilt once less than a day of it is left.
      */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long HOME_TABLE_PAST_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long HOME_TABLE_FUTURE_MS = TimeUnit.DAYS.toMillis(366);
+    private static final long HOME_TABLE_MARGIN_MS = TimeUnit.DAYS.toMillis(1);
+
+    /* Complication slots, left and right of the hour satellite. */
+    public static final int LEFT_COMPLICATION_ID = 0;
+    public static final int RIGHT_COMPLICATION_ID = 1;
+    private static final int[] COMPLICATION_IDS = {LEFT_COMPLICATION_ID, RIGHT_COMPLICATION_ID};
+    public static final int[] COMPLICATION_SUPPORTED_TYPES = {
+            ComplicationData.TYPE_RANGED_VALUE,
+            ComplicationData.TYPE_SHORT_TEXT,
+            ComplicationData.TYPE_ICON,
+            ComplicationData.TYPE_SMALL_IMAGE
+    };
 
-    /**
-     * Handler message id for updating the time periodically in interactive mode.
+    /*
+     * Every clock read of the engines goes through here. The timing decisions live in core
+     * classes that take it as a parameter, and are replayed against simulated time there.
      */
-    private static final int MSG_UPDATE_TIME = 0;
+    private final TimeSource mTimeSource = SystemTimeSource.INSTANCE;
 
     @Override
     public Engine onCreateEngine() {
         return new Engine();
     }
 
-    private static class EngineHandler extends Handler {
-        private final WeakReference<OrbitWatchFace.Engine> mWeakReference;
-
-        public EngineHandler(OrbitWatchFace.Engine reference) {
-            mWeakReference = new WeakReference<>(reference);
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            OrbitWatchFace.Engine engine = mWeakReference.get();
-            if (engine != null) {
-                switch (msg.what) {
-                    case MSG_UPDATE_TIME:
-                        engine.handleUpdateTimeMessage();
-                        break;
-                }
-            }
-        }
-    }
-
     private class Engine extends CanvasWatchFaceService.Engine {
-        private static final float HOUR_STROKE_WIDTH = 5f;
-        private static final float MINUTE_STROKE_WIDTH = 3f;
-        private static final float SECOND_TICK_STROKE_WIDTH = 2f;
-        private static final int SHADOW_RADIUS = 3;
-
-        private static final float MINUTES_DISTANCE = 0.70f;
-        private static final float SECONDS_DISTANCE = 0.85f;
-        private static final float DATE_DISTANCE = 0.45f;
+        /* Draw-time histograms and counters, reported through dumpsys. */
+        private final FrameStats mFrameStats = new FrameStats();
+
+        /* Ring buffer of draw events, recorded and exported on request through dumpsys. */
+        private final FrameTracer mFrameTracer = new FrameTracer();
+
+        /* Merges every redraw request into as few frames as possible, and counts them. */
+        private final WakeupScheduler mWakeupScheduler = new WakeupScheduler(mTimeSource,
+                new WakeupScheduler.Callback() {
+                    @Override
+                    public void onRedraw() {
+                        invalidate();
+                    }
+
+                    @Override
+                    public void scheduleTimer(long delayMs) {
+                        mTimerHandler.removeCallbacks(mTimerTick);
+                        mTimerHandler.postDelayed(mTimerTick, delayMs);
+                    }
+
+                    @Override
+                    public void cancelTimer() {
+                        mTimerHandler.removeCallbacks(mTimerTick);
+                    }
+
+                    @Override
+                    public void onTimerLatency(long latencyMs) {
+                        mFrameStats.recordTimerLatency(latencyMs);
+                        mFrameTracer.counter(FrameTracer.EVENT_TIMER_LATENCY, latencyMs);
+                    }
+                });
+        private final Handler mTimerHandler = new Handler();
+        private final Runnable mTimerTick = new Runnable() {
+            @Override
+            public void run() {
+                mWakeupScheduler.onTimer();
+            }
+        };
 
+        /* Vsync-aligned redraws for the smooth-sweep seconds mode. */
+        private FrameScheduler mFrameScheduler;
 
-        /* Handler to update the time once a second in interactive mode. */
-        private final Handler mUpdateTimeHandler = new EngineHandler(this);
-        private Calendar mCalendar;
         private final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                mRenderer.setTimeZone(TimeZone.getDefault());
+                /* Time zone data may have been updated, and the clock may have left the table. */
+                updateHomeTimeZone();
+                mRenderer.invalidateFrame();
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_TIME_ZONE);
             }
         };
         private boolean mRegisteredTimeZoneReceiver = false;
         private boolean mMuteMode;
 
-        private SharedPreferences mSharedPreferences;
-
-        private float mCenterX;
-        private float mCenterY;
+        /*
+         * Runs the timer or the vsync frames at the interactive update rate, picked from mute
+         * mode, the battery and wrist motion. Each decision is counted per rate, and reported
+         * through dumpsys.
+         */
+        private final RefreshController mRefreshController = new RefreshController(mTimeSource,
+                new AdaptiveRefreshPolicy(STILL_THRESHOLD_MS), mWakeupScheduler,
+                new RefreshController.Callback() {
+                    @Override
+                    public void startFrames(int framesPerSecond) {
+                        mFrameScheduler.setFramesPerSecond(framesPerSecond);
+                        mFrameScheduler.start();
+                    }
+
+                    @Override
+                    public void stopFrames() {
+                        mFrameScheduler.stop();
+                    }
+
+                    @Override
+                    public void onBurstChanged(boolean bursting) {
+                        mFrameTracer.instant(FrameTracer.EVENT_BURST, bursting ? 1 : 0);
+                    }
+                });
+        private final BroadcastReceiver mBatteryReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                mRefreshController.setBatteryLow(Intent.ACTION_BATTERY_LOW.equals(intent.getAction()));
+            }
+        };
 
-        private float mSecondHandLength;
-        private float sMinuteHandLength;
-        private float sDateHandLength;
+        /*
+         * One-shot, low-power significant motion trigger; re-armed after every trigger. It fires
+         * on walking, running or riding in a vehicle, not on wrist movement: the wrist being
+         * raised shows up as leaving ambient, which the refresh controller counts as motion, as
+         * it does taps and the face becoming visible. This sensor only keeps the seconds going
+         * for someone on the move who keeps the screen on.
+         */
+        private SensorManager mSensorManager;
+        private Sensor mMotionSensor;
+        private final TriggerEventListener mMotionListener = new TriggerEventListener() {
+            @Override
+            public void onTrigger(TriggerEvent event) {
+                mRefreshController.onMotion();
+                if (isVisible()) {
+                    mSensorManager.requestTriggerSensor(this, mMotionSensor);
+                }
+            }
+        };
 
-        private float mHourSatelliteRadius;
-        private float mMinutesSatelliteRadius;
-        private float mSecondsSatelliteRadius;
+        /*
+         * Stopwatch started, stopped and cleared by tapping the seconds satellite, which follows
+         * the stopwatch while it is shown, with the readout in place of the date. Starting it
+         * begins a short burst of frames so the hundredths run, after which the face falls back
+         * to its usual rate, at least once a second, and the running readout to whole seconds;
+         * stopping it, ambient mode or hiding the face end the burst early.
+         */
+        private final Stopwatch mStopwatch = new Stopwatch();
 
-        /* Colors for all hands (hour, minute, seconds, ticks), and background. */
-        private int mBackgroundColor;
-        private int mWatchHandColor;
-        private int mWatchHandShadowColor;
-        private int mTextColor;
+        /*
+         * The configuration the face is drawn with, and the latest snapshot from the preference
+         * listener. The latest snapshot is applied while visible, and otherwise on the next
+         * wake-up. A batch of preference changes (e.g. a synced delta) notifies the listener once
+         * per key, so applying is posted to run once after the whole batch.
+         */
+        private OrbitPreferences mPreferences;
+        private OrbitConfig mConfig = OrbitConfig.DEFAULT;
+        private OrbitConfig mLatestConfig = OrbitConfig.DEFAULT;
+        private long mConfigApplyCount;
+        private final SharedPreferences.OnSharedPreferenceChangeListener mPreferenceListener =
+                new SharedPreferences.OnSharedPreferenceChangeListener() {
+                    @Override
+                    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                        mLatestConfig = mPreferences.update(mLatestConfig, key);
+                        if (isVisible()) {
+                            mConfigHandler.removeCallbacks(mApplyLatestConfig);
+                            mConfigHandler.post(mApplyLatestConfig);
+                        }
+                    }
+                };
+        private final Handler mConfigHandler = new Handler();
+        private final Runnable mApplyLatestConfig = new Runnable() {
+            @Override
+            public void run() {
+                applyConfig(mLatestConfig);
+            }
+        };
 
-        private Paint mHourPaint;
-        private Paint mMinutePaint;
-        private Paint mSecondPaint;
-        private Paint mDatePaint;
-        private Paint mTickAndCirclePaint;
-        private Paint mBackgroundPaint;
+        /*
+         * Preferences, labels, themes and atlases are built on a background thread, so the first
+         * frame only shows the background; the full face follows once they are swapped in.
+         */
+        private EngineWarmup mWarmup;
+        private long mCreateMs;
+        private long mFirstFrameMs = -1;
+        private long mFirstFullFrameMs = -1;
+        private long mWarmupDurationMs = -1;
+
+        /* Optional photo background, scaled to the surface and loaded off the main thread. */
+        private PhotoBackgroundLoader mPhotoLoader;
+
+        /*
+         * UTC offsets of the home time zone, if one is configured. Rebuilt on the minute tick
+         * before they run out, never while drawing; past the end they fall back to the zone.
+         */
+        private ZoneOffsetTable mHomeOffsets;
+        private long mHomeOffsetsBuildCount;
 
         private boolean mAmbient;
-        private boolean mLowBitAmbient;
-        private boolean mBurnInProtection;
 
-        private boolean mUse24HourClock;
-        private boolean mDrawHourOutline;
-        private boolean mDrawMinutesOutline;
-        private boolean mDrawSecondsOutline;
+        /* Whether the label atlases are being built on the warm-up thread. */
+        private boolean mAtlasesPending;
+
+        /* Complications, each cached as a bitmap until its data or time-dependent text changes. */
+        private final ComplicationSlot[] mComplications = new ComplicationSlot[COMPLICATION_IDS.length];
+
+        /* Draws the face; everything here only feeds it events, the clock and the configuration. */
+        private FaceRenderer mRenderer;
 
         @Override
         public void onCreate(SurfaceHolder holder) {
+            mCreateMs = mTimeSource.uptimeMillis();
             super.onCreate(holder);
 
             Context context = getApplicationContext();
-            mSharedPreferences = context.getSharedPreferences(getString(R.string.preference_file_key), MODE_PRIVATE);
-            mCalendar = Calendar.getInstance();
+            mWarmup = new EngineWarmup(context, mTimeSource, new EngineWarmup.Callback() {
+                @Override
+                public void onWarm(EngineWarmup.Result result) {
+                    adoptWarmup(result);
+                }
+            });
+            mWarmup.start(Locale.getDefault());
+            mPhotoLoader = new PhotoBackgroundLoader(context, new PhotoBackgroundLoader.Callback() {
+                @Override
+                public void onPhotoLoaded(PhotoBackground photo) {
+                    setPhoto(photo);
+                }
+            });
+
+            mSensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+            mMotionSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+            mFrameScheduler = new FrameScheduler(new FrameScheduler.Callback() {
+                @Override
+                public void onFrame(long frameTimeNanos) {
+                    mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SWEEP);
+                }
+            });
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(OrbitWatchFace.this)
                     .setAcceptsTapEvents(true)
                     .build());
 
-            loadSavedPreferences();
-            initializeBackground();
-            initializeWatchFace();
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                mComplications[i] = new ComplicationSlot(context);
+            }
+            mRenderer = new FaceRenderer(TimeZone.getDefault(), mRefreshController, mStopwatch,
+                    mComplications, mFrameStats, mFrameTracer);
+            setDefaultSystemComplicationProvider(LEFT_COMPLICATION_ID,
+                    SystemProviders.WATCH_BATTERY, ComplicationData.TYPE_RANGED_VALUE);
+            setDefaultSystemComplicationProvider(RIGHT_COMPLICATION_ID,
+                    SystemProviders.STEP_COUNT, ComplicationData.TYPE_SHORT_TEXT);
+            setActiveComplications(COMPLICATION_IDS);
+        }
+
+        /**
+         * Swaps in everything built by the warm-up at once, then catches up with preference
+         * changes made while it ran.
+         */
+        private void adoptWarmup(EngineWarmup.Result result) {
+            mWarmupDurationMs = result.getDurationMs();
+            mPreferences = result.getPreferences();
+            mConfig = result.getConfig();
+            mLatestConfig = mConfig;
+            updateHomeTimeZone();
+
+            mRenderer.setWarm(result.getNumberLabels(), mConfig, result.getThemes(),
+                    result.getHourAtlas(), result.getMinuteAtlas(), result.getSecondAtlas());
+            updatePhoto();
+
+            /* The preferences are in memory by now, so re-reading them is cheap. */
+            mPreferences.registerListener(mPreferenceListener);
+            mLatestConfig = mPreferences.load();
+            applyConfig(mLatestConfig);
+
+            /* The sweep rate may differ from the defaults the timer was started with. */
+            mRefreshController.setSweepFramesPerSecond(mConfig.getSweepFramesPerSecond());
+        }
+
+        /**
+         * Switches the face to a new configuration snapshot, only touching what changed.
+         */
+        private void applyConfig(OrbitConfig config) {
+            final OrbitConfig previous = mConfig;
+            if (config == previous) {
+                return;
+            }
+            mConfig = config;
+            mConfigApplyCount++;
+            mRenderer.setConfig(config);
+
+            /* 0 keeps the classic once-a-second tick; otherwise typically 15, 30 or 60. */
+            mRefreshController.setSweepFramesPerSecond(config.getSweepFramesPerSecond());
+
+            if (config.getBackgroundPhotoVersion() != previous.getBackgroundPhotoVersion()) {
+                updatePhoto();
+            }
+
+            if (!config.getHomeTimeZoneId().equals(previous.getHomeTimeZoneId())) {
+                updateHomeTimeZone();
+            }
+
+            mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_CONFIG);
+        }
+
+        /**
+         * Shows the home-time satellite for the configured home time zone, with a fresh table of
+         * the zone's offsets, or hides it if none is configured.
+         */
+        private void updateHomeTimeZone() {
+            final String homeTimeZoneId = mConfig.getHomeTimeZoneId();
+            if (homeTimeZoneId.isEmpty()) {
+                mHomeOffsets = null;
+            } else {
+                mHomeOffsets = buildHomeOffsets(TimeZone.getTimeZone(homeTimeZoneId));
+            }
+            mRenderer.setHomeOffsets(mHomeOffsets);
+        }
+
+        /**
+         * Rebuilds the home offsets if less than {@link #HOME_TABLE_MARGIN_MS} of them is left.
+         */
+        private void extendHomeOffsets() {
+            if (mHomeOffsets != null
+                    && !mHomeOffsets.covers(mTimeSource.currentTimeMillis() + HOME_TABLE_MARGIN_MS)) {
+                mHomeOffsets = buildHomeOffsets(mHomeOffsets.getTimeZone());
+                mRenderer.setHomeOffsets(mHomeOffsets);
+            }
         }
 
-        private void loadSavedPreferences() {
-            String use24HourClockPrefKey = getApplicationContext().getString(R.string.pref_use_24_hour_clock);
-            String backgroundColorPrefKey = getApplicationContext().getString(R.string.pref_background_color);
-            String satelliteColorPrefKey = getApplicationContext().getString(R.string.pref_satellite_color);
-            String textColorPrefKey = getApplicationContext().getString(R.string.pref_text_color);
-            String showHourOutlinePrefKey = getApplicationContext().getString(R.string.pref_show_hour_outline);
-            String showMinuteOutlinePrefKey = getApplicationContext().getString(R.string.pref_show_minute_outline);
-            String showSecondOutlinePrefKey = getApplicationContext().getString(R.string.pref_show_second_outline);
-
-            mBackgroundColor = mSharedPreferences.getInt(backgroundColorPrefKey, Color.BLACK);
-            mWatchHandColor = mSharedPreferences.getInt(satelliteColorPrefKey, Color.WHITE);
-            mWatchHandShadowColor = Color.BLACK;
-            mTextColor = mSharedPreferences.getInt(textColorPrefKey, Color.WHITE);
-
-            mUse24HourClock = mSharedPreferences.getBoolean(use24HourClockPrefKey, false);
-            mDrawHourOutline = mSharedPreferences.getBoolean(showHourOutlinePrefKey, true);
-            mDrawMinutesOutline = mSharedPreferences.getBoolean(showMinuteOutlinePrefKey, false);
-            mDrawSecondsOutline = mSharedPreferences.getBoolean(showSecondOutlinePrefKey, false);
+        private ZoneOffsetTable buildHomeOffsets(TimeZone timeZone) {
+            final long now = mTimeSource.currentTimeMillis();
+            mHomeOffsetsBuildCount++;
+            return new ZoneOffsetTable(timeZone, now - HOME_TABLE_PAST_MS, now + HOME_TABLE_FUTURE_MS);
         }
 
-        private void initializeBackground() {
-            mBackgroundPaint = new Paint();
-            mBackgroundPaint.setColor(mBackgroundColor);
+        /**
+         * Loads the configured photo for the current surface, or drops the photo if none is
+         * configured. The current photo stays up until its replacement is loaded, unless it has
+         * the wrong size.
+         */
+        private void updatePhoto() {
+            final FaceGeometry geometry = mRenderer.getGeometry();
+            if (geometry == null) {
+                return;
+            }
+
+            final PhotoBackground photo = mRenderer.getPhoto();
+            final int version = mConfig.getBackgroundPhotoVersion();
+            if (photo != null && photo.getVersion() == version
+                    && photo.getWidth() == geometry.getWidth() && photo.getHeight() == geometry.getHeight()) {
+                return;
+            }
+
+            mPhotoLoader.cancel();
+            if (photo != null && (version == 0
+                    || photo.getWidth() != geometry.getWidth() || photo.getHeight() != geometry.getHeight())) {
+                setPhoto(null);
+            }
+            if (version != 0) {
+                mPhotoLoader.load(version, geometry.getWidth(), geometry.getHeight(),
+                        mConfig.getSatelliteColor(), mConfig.getTextColor());
+            }
         }
 
-        private void initializeWatchFace() {
-            mHourPaint = new Paint();
-            mHourPaint.setColor(mTextColor);
-            mHourPaint.setStrokeWidth(HOUR_STROKE_WIDTH);
-            mHourPaint.setAntiAlias(true);
-            mHourPaint.setTextAlign(Paint.Align.CENTER);
-            mHourPaint.setTextSize(45);
-
-            mMinutePaint = new Paint();
-            mMinutePaint.setColor(mTextColor);
-            mMinutePaint.setStrokeWidth(MINUTE_STROKE_WIDTH);
-            mMinutePaint.setAntiAlias(true);
-            mMinutePaint.setTextAlign(Paint.Align.CENTER);
-            mMinutePaint.setTextSize(25);
-
-            mSecondPaint = new Paint();
-            mSecondPaint.setColor(mTextColor);
-            mSecondPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mSecondPaint.setAntiAlias(true);
-            mSecondPaint.setTextAlign(Paint.Align.CENTER);
-            mSecondPaint.setTextSize(18);
-
-            mDatePaint = new Paint();
-            mDatePaint.setColor(mTextColor);
-            mDatePaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mDatePaint.setAntiAlias(true);
-            mDatePaint.setTextAlign(Paint.Align.CENTER);
-            mDatePaint.setTextSize(18);
-
-            mTickAndCirclePaint = new Paint();
-            mTickAndCirclePaint.setColor(mWatchHandColor);
-            mTickAndCirclePaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mTickAndCirclePaint.setAntiAlias(true);
-            mTickAndCirclePaint.setStyle(Paint.Style.STROKE);
-            mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+        private void setPhoto(PhotoBackground photo) {
+            mRenderer.setPhoto(photo);
+            mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_CONFIG);
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mWakeupScheduler.stopTicks();
+            mFrameScheduler.stop();
+            mWarmup.cancel();
+            mPhotoLoader.release();
+            if (mPreferences != null) {
+                mPreferences.unregisterListener(mPreferenceListener);
+            }
+            mConfigHandler.removeCallbacks(mApplyLatestConfig);
+            mRenderer.release();
+            for (ComplicationSlot complication : mComplications) {
+                complication.recycle();
+            }
             super.onDestroy();
         }
 
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
-            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
-            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            mRenderer.setAmbientProperties(properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false),
+                    properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false));
+        }
+
+        @Override
+        public void onComplicationDataUpdate(int complicationId, ComplicationData complicationData) {
+            mComplications[complicationId].setData(complicationData);
+            mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_COMPLICATION);
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            invalidate();
+            extendHomeOffsets();
+            mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_TIME_TICK);
         }
 
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
             mAmbient = inAmbientMode;
+            mFrameTracer.instant(FrameTracer.EVENT_AMBIENT, inAmbientMode ? 1 : 0);
 
-            updateWatchHandStyle();
+            mRenderer.setAmbient(inAmbientMode);
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
-            updateTimer();
-        }
-
-        private void updateWatchHandStyle() {
-            if (mAmbient) {
-                mHourPaint.setColor(Color.WHITE);
-                mMinutePaint.setColor(Color.WHITE);
-                mSecondPaint.setColor(Color.WHITE);
-                mDatePaint.setColor(Color.WHITE);
-                mTickAndCirclePaint.setColor(Color.WHITE);
-
-                mHourPaint.setAntiAlias(false);
-                mMinutePaint.setAntiAlias(false);
-                mSecondPaint.setAntiAlias(false);
-                mDatePaint.setAntiAlias(false);
-                mTickAndCirclePaint.setAntiAlias(false);
-
-                mTickAndCirclePaint.clearShadowLayer();
-
-            } else {
-                mHourPaint.setColor(mTextColor);
-                mMinutePaint.setColor(mTextColor);
-                mSecondPaint.setColor(mTextColor);
-                mDatePaint.setColor(mTextColor);
-                mTickAndCirclePaint.setColor(mWatchHandColor);
-
-                mHourPaint.setAntiAlias(true);
-                mMinutePaint.setAntiAlias(true);
-                mSecondPaint.setAntiAlias(true);
-                mDatePaint.setAntiAlias(true);
-                mTickAndCirclePaint.setAntiAlias(true);
-
-                mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-            }
+            mRefreshController.setAmbient(inAmbientMode);
         }
 
         @Override
@@ -271,10 +469,11 @@ public class OrbitWatchFace extends CanvasWatchFaceService {
             /* Dim display in mute mode. */
             if (mMuteMode != inMuteMode) {
                 mMuteMode = inMuteMode;
-                mHourPaint.setAlpha(inMuteMode ? 100 : 255);
-                mMinutePaint.setAlpha(inMuteMode ? 100 : 255);
-                mSecondPaint.setAlpha(inMuteMode ? 80 : 255);
-                invalidate();
+                mRenderer.setMuteMode(inMuteMode);
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SYSTEM);
+
+                /* The dimmed face drops to per-minute updates in mute mode. */
+                mRefreshController.setMuteMode(inMuteMode);
             }
         }
 
@@ -282,22 +481,48 @@ public class OrbitWatchFace extends CanvasWatchFaceService {
         public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
             super.onSurfaceChanged(holder, format, width, height);
 
-            mCenterX = width / 2f;
-            mCenterY = height / 2f;
-
-            /*
-             * Calculate lengths of different hands based on watch screen size.
-             */
-            mSecondHandLength = mCenterX * SECONDS_DISTANCE;
-            sMinuteHandLength = mCenterX * MINUTES_DISTANCE;
-            sDateHandLength = mCenterX * DATE_DISTANCE;
-
-            /*
-             * Calculate the radii of different satellites based on watch screen size.
-             */
-            mHourSatelliteRadius = (float) (mCenterX * 0.333);
-            mMinutesSatelliteRadius = (float) (mCenterX * 0.12665);
-            mSecondsSatelliteRadius = (float) (mCenterX * 0.0999);
+            mRenderer.setSurfaceSize(width, height);
+            if (mRenderer.isWarm()) {
+                updatePhoto();
+            }
+        }
+
+        /**
+         * Starts building the label atlases on the warm-up thread if the atlas mode is enabled
+         * and they are not built or being built yet.
+         */
+        private void ensureLabelAtlases() {
+            if (!mConfig.useLabelAtlas() || mRenderer.hasLabelAtlases() || mAtlasesPending) {
+                return;
+            }
+
+            mAtlasesPending = true;
+            mWarmup.buildAtlases(mRenderer.getInteractiveTheme(), mRenderer.getNumberLabels(),
+                    new EngineWarmup.AtlasCallback() {
+                        @Override
+                        public void onAtlasesBuilt(NumberLabels labels, LabelAtlas[] atlases) {
+                            adoptLabelAtlases(labels, atlases);
+                        }
+                    });
+        }
+
+        /**
+         * Swaps in atlases built on the warm-up thread, unless the locale or configuration changed
+         * while they were built.
+         */
+        private void adoptLabelAtlases(NumberLabels labels, LabelAtlas[] atlases) {
+            mAtlasesPending = false;
+            if (labels != mRenderer.getNumberLabels() || !mConfig.useLabelAtlas() || mRenderer.hasLabelAtlases()) {
+                for (LabelAtlas atlas : atlases) {
+                    atlas.recycle();
+                }
+                /* Built for an outdated locale; start over for the current one. */
+                ensureLabelAtlases();
+                return;
+            }
+
+            mRenderer.setLabelAtlases(atlases);
+            mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SYSTEM);
         }
 
         /**
@@ -315,92 +540,62 @@ public class OrbitWatchFace extends CanvasWatchFaceService {
                     break;
                 case TAP_TYPE_TAP:
                     // The user has completed the tap gesture.
-                    break;
+                    final boolean stopwatchTapped = mRenderer.hitsStopwatch(x, y);
+                    mRefreshController.onMotion();
+                    if (stopwatchTapped) {
+                        onStopwatchTap();
+                    } else {
+                        for (ComplicationSlot complication : mComplications) {
+                            if (complication.onTap(x, y)) {
+                                break;
+                            }
+                        }
+                    }
+                    mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_TAP);
+                    return;
             }
-            invalidate();
-        }
 
-        @Override
-        public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
+            /* Touch and cancel events change nothing on the face, so they do not redraw. */
+            mWakeupScheduler.recordWakeup(WakeupScheduler.SOURCE_TAP);
+        }
 
-            drawBackground(canvas);
-            drawWatchFace(canvas);
+        /**
+         * Starts, stops or clears the stopwatch; starting it also starts a burst of frames.
+         */
+        private void onStopwatchTap() {
+            mStopwatch.advance(mTimeSource.elapsedRealtime());
+            mRefreshController.setStopwatchRunning(mStopwatch.isRunning());
         }
 
-        private void drawBackground(Canvas canvas) {
-            if (mAmbient) {
-                canvas.drawColor(Color.BLACK);
-            } else {
-                canvas.drawColor(mBackgroundColor);
+        @Override
+        public void onDraw(Canvas canvas, Rect bounds) {
+            final long frameStart = mFrameStats.begin();
+            mFrameTracer.begin(FrameTracer.EVENT_DRAW);
+            mRefreshController.onFrame();
+
+            final boolean warm = mRenderer.isWarm();
+            mRenderer.draw(canvas, mTimeSource.currentTimeMillis(),
+                    mStopwatch.getElapsedMillis(mTimeSource.elapsedRealtime()), Locale.getDefault());
+            if (warm) {
+                ensureLabelAtlases();
             }
-        }
 
-        private void drawWatchFace(Canvas canvas) {
-            final int seconds = mCalendar.get(Calendar.SECOND);
-            final int minutes = mCalendar.get(Calendar.MINUTE);
-            final int hour = mUse24HourClock
-                    ? mCalendar.get(Calendar.HOUR_OF_DAY)
-                    : mCalendar.get(Calendar.HOUR) != 0
-                        ? mCalendar.get(Calendar.HOUR)
-                        : 12;
-
-            final float secondsFloat = (seconds + mCalendar.get(Calendar.MILLISECOND) / 1000f);
-            final float secondsRotation = secondsFloat * 6f;
-            final float minutesRotation = minutes * 6f;
-
-            // Draw the hours satellite
-            drawSatellite(
-                    canvas,
-                    mHourPaint,
-                    hour,
-                    mHourSatelliteRadius,
-                    0,
-                    0,
-                    !mAmbient && mDrawHourOutline);
-
-            // Draw the minutes satellite
-            drawSatellite(
-                    canvas,
-                    mMinutePaint,
-                    minutes,
-                    mMinutesSatelliteRadius,
-                    sMinuteHandLength,
-                    minutesRotation,
-                    !mAmbient && mDrawMinutesOutline);
-
-            // Draw the seconds satellite
-            if (!mAmbient) {
-                drawSatellite(
-                        canvas,
-                        mSecondPaint,
-                        seconds,
-                        mSecondsSatelliteRadius,
-                        mSecondHandLength,
-                        secondsRotation,
-                        !mAmbient && mDrawSecondsOutline);
-            }
-
-            // Draw the date text
-            //if (!mAmbient) {
-                final float dateTextY = mCenterY + sDateHandLength - ((mDatePaint.descent() + mDatePaint.ascent()) / 2);
-
-                SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, MMM d", Locale.getDefault());
-                canvas.drawText(String.format(Locale.getDefault(), "%s", dateFormat.format(mCalendar.getTime())), mCenterX, dateTextY, mDatePaint);
-            //}
-        }
+            mFrameStats.recordFrame(mAmbient);
+            mFrameStats.end(FrameStats.PHASE_FRAME, frameStart);
+            mFrameTracer.end(FrameTracer.EVENT_DRAW);
 
-        private void drawSatellite(Canvas canvas, Paint paint, int number, float radius, float handLength, float rotation, boolean drawOutline) {
-            final float satelliteX = (float) (mCenterX + handLength * Math.sin(Math.toRadians(rotation)));
-            final float satelliteY = (float) (mCenterY - handLength * Math.cos(Math.toRadians(rotation)));
-            final float textY = satelliteY - ((paint.descent() + paint.ascent()) / 2);
+            if (mFirstFrameMs < 0) {
+                mFirstFrameMs = mTimeSource.uptimeMillis() - mCreateMs;
+            }
+            if (warm && mFirstFullFrameMs < 0) {
+                mFirstFullFrameMs = mTimeSource.uptimeMillis() - mCreateMs;
+            }
 
-            if (drawOutline) {
-                canvas.drawCircle(satelliteX, satelliteY, radius, mTickAndCirclePaint);
+            if (warm && mConfig.showDebugOverlay() && !mAmbient) {
+                mRenderer.drawDebugOverlay(canvas);
             }
 
-            canvas.drawText(String.format(Locale.getDefault(), "%d", number), satelliteX, textY, paint);
+            mWakeupScheduler.onFrameDrawn();
         }
 
         @Override
@@ -408,19 +603,20 @@ public class OrbitWatchFace extends CanvasWatchFaceService {
             super.onVisibilityChanged(visible);
 
             if (visible) {
-                loadSavedPreferences();
-                updateWatchHandStyle();
+                /* Preference changes made while hidden; usually this is just a reference check. */
+                applyConfig(mLatestConfig);
                 registerReceiver();
 
                 /* Update time zone in case it changed while we weren't visible. */
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                mRenderer.setTimeZone(TimeZone.getDefault());
+                extendHomeOffsets();
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SYSTEM);
             } else {
                 unregisterReceiver();
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
-            updateTimer();
+            mRefreshController.setVisible(visible);
         }
 
         private void registerReceiver() {
@@ -429,7 +625,17 @@ public class OrbitWatchFace extends CanvasWatchFaceService {
             }
             mRegisteredTimeZoneReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
             OrbitWatchFace.this.registerReceiver(mTimeZoneReceiver, filter);
+
+            IntentFilter batteryFilter = new IntentFilter(Intent.ACTION_BATTERY_LOW);
+            batteryFilter.addAction(Intent.ACTION_BATTERY_OKAY);
+            OrbitWatchFace.this.registerReceiver(mBatteryReceiver, batteryFilter);
+            mRefreshController.setBatteryLow(isBatteryLow());
+
+            if (mMotionSensor != null) {
+                mSensorManager.requestTriggerSensor(mMotionListener, mMotionSensor);
+            }
         }
 
         private void unregisterReceiver() {
@@ -438,36 +644,89 @@ public class OrbitWatchFace extends CanvasWatchFaceService {
             }
             mRegisteredTimeZoneReceiver = false;
             OrbitWatchFace.this.unregisterReceiver(mTimeZoneReceiver);
+            OrbitWatchFace.this.unregisterReceiver(mBatteryReceiver);
+
+            if (mMotionSensor != null) {
+                mSensorManager.cancelTriggerSensor(mMotionListener, mMotionSensor);
+            }
         }
 
         /**
-         * Starts/stops the {@link #mUpdateTimeHandler} timer based on the state of the watch face.
+         * Reads the current battery level from the sticky battery broadcast.
          */
-        private void updateTimer() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldTimerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+        private boolean isBatteryLow() {
+            Intent battery = OrbitWatchFace.this.registerReceiver(null,
+                    new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (battery == null) {
+                return false;
             }
+
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            return level >= 0 && scale > 0 && level * 100 / scale < LOW_BATTERY_PERCENT;
         }
 
         /**
-         * Returns whether the {@link #mUpdateTimeHandler} timer should be running. The timer
-         * should only run in active mode.
+         * Reports draw-time statistics through
+         * {@code adb shell dumpsys activity service com.chanakira.orbit/.OrbitWatchFace}.
+         * Passing {@code reset} as an argument clears the statistics after printing them;
+         * {@code trace-start} starts recording a frame trace and {@code trace-stop} exports it.
          */
-        private boolean shouldTimerBeRunning() {
-            return isVisible() && !mAmbient;
+        @Override
+        protected void dump(String prefix, FileDescriptor fd, PrintWriter out, String[] args) {
+            super.dump(prefix, fd, out, args);
+
+            out.println(prefix + "Orbit ambient=" + mAmbient + " mute=" + mMuteMode
+                    + " sweepFps=" + mConfig.getSweepFramesPerSecond());
+            out.println(prefix + "Startup: first frame " + mFirstFrameMs + "ms, first full frame "
+                    + mFirstFullFrameMs + "ms, warm-up " + mWarmupDurationMs + "ms");
+            mRenderer.dump(prefix, out);
+            out.println(prefix + "Home time: " + (mHomeOffsets != null
+                    ? mHomeOffsets.getTimeZone().getID() + " (" + mHomeOffsets.getTransitionCount() + " transitions)"
+                    : "none") + ", tables built " + mHomeOffsetsBuildCount);
+            out.println(prefix + "Config applies: " + mConfigApplyCount);
+            for (int i = 0; i < mComplications.length; i++) {
+                out.println(prefix + "Complication " + i + " renders: " + mComplications[i].getRenderCount());
+            }
+            mFrameStats.dump(prefix, out);
+            out.println(prefix + "Sweep frames: " + mFrameScheduler.getFrameCount()
+                    + " (dropped " + mFrameScheduler.getDroppedFrameCount() + ")");
+            out.println(prefix + "Stopwatch: state " + mStopwatch.getState());
+            mRefreshController.dump(prefix, out);
+            out.println(prefix + "Wake-ups:");
+            mWakeupScheduler.dump(prefix, out);
+            mFrameTracer.dump(prefix, out);
+
+            for (String arg : args) {
+                if ("reset".equals(arg)) {
+                    mFrameStats.reset();
+                    mWakeupScheduler.reset();
+                    mRefreshController.reset();
+                } else if ("trace-start".equals(arg)) {
+                    mFrameTracer.start();
+                    out.println(prefix + "Tracing started");
+                } else if ("trace-stop".equals(arg)) {
+                    exportTrace(prefix, out);
+                }
+            }
         }
 
         /**
-         * Handle updating the time periodically in interactive mode.
+         * Stops tracing and writes the trace to the app's external files directory, from where it
+         * can be pulled with {@code adb pull}.
          */
-        private void handleUpdateTimeMessage() {
-            invalidate();
-            if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+        private void exportTrace(String prefix, PrintWriter out) {
+            File directory = getExternalFilesDir(null);
+            if (directory == null) {
+                directory = getFilesDir();
+            }
+            final File file = new File(directory, "orbit-trace-" + mTimeSource.currentTimeMillis() + ".json");
+
+            try {
+                final int events = mFrameTracer.export(file);
+                out.println(prefix + "Trace of " + events + " events written to " + file.getAbsolutePath());
+            } catch (IOException e) {
+                out.println(prefix + "Could not write trace: " + e);
             }
         }
     }
@@ -0,0 +1,284 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.v7.graphics.Palette;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A photo background, scaled to the surface, with colors picked from it and a dimmed copy for
+ * ambient mode.
+ *
+ * The photo is decoded once per photo and surface size, with downsampling, and then cropped and
+ * scaled to exactly the surface size. Its pixels are kept in a raw cache file that later engine
+ * starts memory-map and copy straight into a bitmap, without decoding the photo again.
+ */
+class PhotoBackground {
+
+    private static final String TAG = PhotoBackground.class.getSimpleName();
+
+    /*
+     * The photo as received, in the app's files directory, named by its version. A new photo
+     * never replaces the file of the version the preferences still point to.
+     */
+    private static final String PHOTO_FILE_NAME = "background_photo";
+
+    private static final String CACHE_FILE_PREFIX = "background_photo_";
+    private static final String CACHE_FILE_SUFFIX = ".raw";
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /* Brightness of the ambient copy, which is also desaturated. */
+    private static final float AMBIENT_BRIGHTNESS = 0.3f;
+
+    private final int mVersion;
+    private final Bitmap mBitmap;
+    private final Bitmap mAmbientBitmap;
+    private final int mSatelliteColor;
+    private final int mTextColor;
+    private final boolean mFromCache;
+
+    private PhotoBackground(int version, Bitmap bitmap, Bitmap ambientBitmap, int satelliteColor, int textColor,
+                            boolean fromCache) {
+        mVersion = version;
+        mBitmap = bitmap;
+        mAmbientBitmap = ambientBitmap;
+        mSatelliteColor = satelliteColor;
+        mTextColor = textColor;
+        mFromCache = fromCache;
+    }
+
+    /**
+     * Loads the photo of {@code version} at {@code width} by {@code height}, from the raw cache
+     * if possible. Blocks on disk and pixel work, so it must not be called on the main thread.
+     *
+     * @return the photo, or null if it is missing or cannot be decoded
+     */
+    static PhotoBackground load(Context context, int version, int width, int height,
+                                int defaultSatelliteColor, int defaultTextColor) {
+        final File directory = context.getFilesDir();
+        final File cacheFile = new File(directory, CACHE_FILE_PREFIX + version + '_' + width + 'x' + height + CACHE_FILE_SUFFIX);
+
+        Bitmap bitmap = readCache(cacheFile, width, height);
+        final boolean fromCache = bitmap != null;
+        if (bitmap == null) {
+            File photoFile = getPhotoFile(directory, version);
+            if (!photoFile.exists()) {
+                /* Stored by an earlier release, before photo files were named by version. */
+                photoFile = new File(directory, PHOTO_FILE_NAME);
+            }
+            bitmap = decode(photoFile, width, height);
+            if (bitmap == null) {
+                return null;
+            }
+            writeCache(directory, cacheFile, bitmap);
+        }
+
+        final Palette palette = Palette.from(bitmap).generate();
+        final int satelliteColor = palette.getVibrantColor(palette.getDominantColor(defaultSatelliteColor));
+        final Palette.Swatch dominant = palette.getDominantSwatch();
+        final int textColor = dominant != null ? 0xFF000000 | dominant.getTitleTextColor() : defaultTextColor;
+
+        return new PhotoBackground(version, bitmap, dim(bitmap), satelliteColor, textColor, fromCache);
+    }
+
+    /**
+     * Returns where the photo of {@code version} is stored in {@code directory}.
+     */
+    static File getPhotoFile(File directory, int version) {
+        return new File(directory, PHOTO_FILE_NAME + '.' + version);
+    }
+
+    /**
+     * Deletes the stored photos of every version but {@code version}, including the unversioned
+     * file of earlier releases. Must not be called on the main thread.
+     */
+    static void deleteOtherPhotos(File directory, int version) {
+        final String current = getPhotoFile(directory, version).getName();
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            final String name = file.getName();
+            if ((name.equals(PHOTO_FILE_NAME) || name.startsWith(PHOTO_FILE_NAME + '.')) && !name.equals(current)) {
+                file.delete();
+            }
+        }
+    }
+
+    private static Bitmap readCache(File cacheFile, int width, int height) {
+        final long size = (long) width * height * BYTES_PER_PIXEL;
+        if (cacheFile.length() != size) {
+            return null;
+        }
+
+        try {
+            final RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+            try {
+                final MappedByteBuffer pixels = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+                final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                bitmap.copyPixelsFromBuffer(pixels);
+                return bitmap;
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read the photo cache", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the raw pixels of {@code bitmap} to {@code cacheFile}, through a temporary file so
+     * that a cache file is never seen half written, and deletes the caches of other photos and
+     * sizes.
+     */
+    private static void writeCache(File directory, File cacheFile, Bitmap bitmap) {
+        final File[] staleFiles = directory.listFiles();
+        if (staleFiles != null) {
+            for (File file : staleFiles) {
+                if (file.getName().startsWith(CACHE_FILE_PREFIX) && file.getName().endsWith(CACHE_FILE_SUFFIX)) {
+                    file.delete();
+                }
+            }
+        }
+
+        final File tempFile = new File(directory, cacheFile.getName() + ".tmp");
+        try {
+            final RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+            try {
+                final MappedByteBuffer pixels = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bitmap.getByteCount());
+                bitmap.copyPixelsToBuffer(pixels);
+                pixels.force();
+            } finally {
+                file.close();
+            }
+            if (!tempFile.renameTo(cacheFile)) {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write the photo cache", e);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Decodes the photo at the largest power-of-two downsampling that still covers
+     * {@code width} by {@code height}, then center-crops and scales it to exactly that size.
+     */
+    private static Bitmap decode(File photoFile, int width, int height) {
+        if (!photoFile.exists()) {
+            return null;
+        }
+
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photoFile.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        final Bitmap decoded = BitmapFactory.decodeFile(photoFile.getPath(), options);
+        if (decoded == null) {
+            return null;
+        }
+
+        /* The largest centered part of the photo with the aspect ratio of the surface. */
+        final Rect source = new Rect(0, 0, decoded.getWidth(), decoded.getHeight());
+        if ((long) decoded.getWidth() * height > (long) decoded.getHeight() * width) {
+            final int croppedWidth = (int) ((long) decoded.getHeight() * width / height);
+            source.left = (decoded.getWidth() - croppedWidth) / 2;
+            source.right = source.left + croppedWidth;
+        } else {
+            final int croppedHeight = (int) ((long) decoded.getWidth() * height / width);
+            source.top = (decoded.getHeight() - croppedHeight) / 2;
+            source.bottom = source.top + croppedHeight;
+        }
+
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        new Canvas(bitmap).drawBitmap(decoded, source, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        decoded.recycle();
+        return bitmap;
+    }
+
+    /**
+     * Returns a desaturated and darkened copy of {@code bitmap}, so that the ambient face keeps
+     * most pixels close to black.
+     */
+    private static Bitmap dim(Bitmap bitmap) {
+        final ColorMatrix matrix = new ColorMatrix();
+        matrix.setSaturation(0);
+        final ColorMatrix darken = new ColorMatrix();
+        darken.setScale(AMBIENT_BRIGHTNESS, AMBIENT_BRIGHTNESS, AMBIENT_BRIGHTNESS, 1);
+        matrix.postConcat(darken);
+
+        final Paint paint = new Paint();
+        paint.setColorFilter(new ColorMatrixColorFilter(matrix));
+
+        final Bitmap dimmed = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
+        new Canvas(dimmed).drawBitmap(bitmap, 0, 0, paint);
+        return dimmed;
+    }
+
+    int getVersion() {
+        return mVersion;
+    }
+
+    int getWidth() {
+        return mBitmap.getWidth();
+    }
+
+    int getHeight() {
+        return mBitmap.getHeight();
+    }
+
+    Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+    /**
+     * Returns the dimmed copy for ambient mode; not for low-bit or burn-in protected screens.
+     */
+    Bitmap getAmbientBitmap() {
+        return mAmbientBitmap;
+    }
+
+    int getSatelliteColor() {
+        return mSatelliteColor;
+    }
+
+    int getTextColor() {
+        return mTextColor;
+    }
+
+    /**
+     * Returns whether the pixels came from the raw cache rather than decoding the photo.
+     */
+    boolean isFromCache() {
+        return mFromCache;
+    }
+
+    void recycle() {
+        mBitmap.recycle();
+        mAmbientBitmap.recycle();
+    }
+}
@@ -0,0 +1,91 @@
+package com.chanakira.orbit;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads {@link PhotoBackground}s on a background thread and hands them to the main thread.
+ * Only the latest request is delivered; results of superseded requests are recycled.
+ *
+ * All methods must be called on the main thread.
+ */
+class PhotoBackgroundLoader {
+
+    interface Callback {
+        /**
+         * Called with the loaded photo, or null if there is no usable photo.
+         */
+        void onPhotoLoaded(PhotoBackground photo);
+    }
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "OrbitPhoto");
+        }
+    });
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private Callback mCallback;
+    private int mRequestCount;
+
+    PhotoBackgroundLoader(Context context, Callback callback) {
+        mContext = context;
+        mCallback = callback;
+    }
+
+    /**
+     * Starts loading the photo of {@code version} for a {@code width} by {@code height}
+     * surface, replacing any earlier request.
+     */
+    void load(final int version, final int width, final int height,
+              final int defaultSatelliteColor, final int defaultTextColor) {
+        final int request = ++mRequestCount;
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PhotoBackground photo = PhotoBackground.load(mContext, version, width, height,
+                        defaultSatelliteColor, defaultTextColor);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mCallback != null && request == mRequestCount) {
+                            mCallback.onPhotoLoaded(photo);
+                        } else if (photo != null) {
+                            photo.recycle();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops the results of all requests made so far.
+     */
+    void cancel() {
+        mRequestCount++;
+    }
+
+    /**
+     * Drops all results, for good.
+     */
+    void release() {
+        mCallback = null;
+    }
+}
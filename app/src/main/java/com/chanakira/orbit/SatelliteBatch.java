@@ -0,0 +1,147 @@
+package com.chanakira.orbit;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+/**
+ * Collects satellite outlines and number labels while the ops of a region are painted, and
+ * draws them once the region is done: all outlines as one path, then the labels of each role
+ * with the role's paint, as text from one shared character buffer or as atlas blits. The
+ * outlines are one draw call however many satellites the face has; each label is still one
+ * call of its own, so label draw calls grow with the number of satellites, but without any
+ * paint setup or allocation per satellite.
+ *
+ * The buffers grow to the largest batch seen and are reused, so batching does not allocate in
+ * steady state.
+ */
+class SatelliteBatch {
+
+    private static final int INITIAL_LABELS = 8;
+    private static final int INITIAL_CHARS = 16;
+
+    private final Path mOutlines = new Path();
+    private boolean mHasOutlines;
+
+    private final char[][] mChars = new char[Theme.ROLE_COUNT][INITIAL_CHARS];
+    private final int[] mCharCounts = new int[Theme.ROLE_COUNT];
+
+    /* Per label: where its characters end in the buffer, and its center and baseline. */
+    private final int[][] mLabelEnds = new int[Theme.ROLE_COUNT][INITIAL_LABELS];
+    private final float[][] mPositions = new float[Theme.ROLE_COUNT][INITIAL_LABELS * 2];
+    private final int[] mLabelCounts = new int[Theme.ROLE_COUNT];
+
+    /* Per atlas blit: the number blitted and its center. */
+    private final int[][] mBlitNumbers = new int[Theme.ROLE_COUNT][INITIAL_LABELS];
+    private final float[][] mBlitCenters = new float[Theme.ROLE_COUNT][INITIAL_LABELS * 2];
+    private final int[] mBlitCounts = new int[Theme.ROLE_COUNT];
+
+    void addOutline(float centerX, float centerY, float radius) {
+        mOutlines.addCircle(centerX, centerY, radius, Path.Direction.CW);
+        mHasOutlines = true;
+    }
+
+    /**
+     * Adds {@code label}, centered at {@code centerX} on the baseline {@code baselineY}; text
+     * paints are centered.
+     */
+    void addLabel(int role, String label, float centerX, float baselineY) {
+        final int chars = mCharCounts[role] + label.length();
+        final int labels = mLabelCounts[role];
+        ensureCapacity(role, chars, labels + 1);
+
+        label.getChars(0, label.length(), mChars[role], mCharCounts[role]);
+        mCharCounts[role] = chars;
+        mLabelEnds[role][labels] = chars;
+        mPositions[role][labels * 2] = centerX;
+        mPositions[role][labels * 2 + 1] = baselineY;
+        mLabelCounts[role] = labels + 1;
+    }
+
+    /**
+     * Adds the atlas label for {@code number}, centered on ({@code centerX}, {@code centerY}).
+     * Like text labels, it is drawn after the outlines so that it is never covered by one.
+     */
+    void addBlit(int role, int number, float centerX, float centerY) {
+        final int blits = mBlitCounts[role];
+        if (blits == mBlitNumbers[role].length) {
+            final int[] newNumbers = new int[blits * 2];
+            final float[] newCenters = new float[blits * 4];
+            System.arraycopy(mBlitNumbers[role], 0, newNumbers, 0, blits);
+            System.arraycopy(mBlitCenters[role], 0, newCenters, 0, blits * 2);
+            mBlitNumbers[role] = newNumbers;
+            mBlitCenters[role] = newCenters;
+        }
+
+        mBlitNumbers[role][blits] = number;
+        mBlitCenters[role][blits * 2] = centerX;
+        mBlitCenters[role][blits * 2 + 1] = centerY;
+        mBlitCounts[role] = blits + 1;
+    }
+
+    private void ensureCapacity(int role, int chars, int labels) {
+        if (chars > mChars[role].length) {
+            final char[] newChars = new char[Math.max(chars, mChars[role].length * 2)];
+            System.arraycopy(mChars[role], 0, newChars, 0, mCharCounts[role]);
+            mChars[role] = newChars;
+        }
+
+        if (labels > mLabelEnds[role].length) {
+            final int capacity = Math.max(labels, mLabelEnds[role].length * 2);
+            final int[] newEnds = new int[capacity];
+            final float[] newPositions = new float[capacity * 2];
+            System.arraycopy(mLabelEnds[role], 0, newEnds, 0, mLabelCounts[role]);
+            System.arraycopy(mPositions[role], 0, newPositions, 0, mLabelCounts[role] * 2);
+            mLabelEnds[role] = newEnds;
+            mPositions[role] = newPositions;
+        }
+    }
+
+    boolean hasOutlines() {
+        return mHasOutlines;
+    }
+
+    boolean hasLabels(int role) {
+        return mLabelCounts[role] > 0;
+    }
+
+    boolean hasBlits(int role) {
+        return mBlitCounts[role] > 0;
+    }
+
+    void drawOutlines(Canvas canvas, Paint paint) {
+        canvas.drawPath(mOutlines, paint);
+    }
+
+    void drawLabels(Canvas canvas, int role, Paint paint) {
+        final char[] chars = mChars[role];
+        final int[] ends = mLabelEnds[role];
+        final float[] positions = mPositions[role];
+        int start = 0;
+        for (int i = 0; i < mLabelCounts[role]; i++) {
+            canvas.drawText(chars, start, ends[i] - start, positions[i * 2], positions[i * 2 + 1], paint);
+            start = ends[i];
+        }
+    }
+
+    void drawBlits(Canvas canvas, int role, LabelAtlas atlas, Paint paint, boolean ambient) {
+        final int[] numbers = mBlitNumbers[role];
+        final float[] centers = mBlitCenters[role];
+        for (int i = 0; i < mBlitCounts[role]; i++) {
+            atlas.draw(canvas, numbers[i], centers[i * 2], centers[i * 2 + 1], paint, ambient);
+        }
+    }
+
+    /**
+     * Empties the batch, keeping its buffers.
+     */
+    void reset() {
+        mOutlines.rewind();
+        mHasOutlines = false;
+        for (int role = 0; role < Theme.ROLE_COUNT; role++) {
+            mCharCounts[role] = 0;
+            mLabelCounts[role] = 0;
+            mBlitCounts[role] = 0;
+        }
+    }
+}
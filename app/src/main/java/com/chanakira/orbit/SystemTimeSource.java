@@ -0,0 +1,31 @@
+package com.chanakira.orbit;
+
+import android.os.SystemClock;
+
+import com.chanakira.orbit.core.TimeSource;
+
+/**
+ * The real clocks of the device.
+ */
+class SystemTimeSource implements TimeSource {
+
+    static final SystemTimeSource INSTANCE = new SystemTimeSource();
+
+    private SystemTimeSource() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+}
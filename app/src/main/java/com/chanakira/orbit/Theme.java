@@ -0,0 +1,75 @@
+package com.chanakira.orbit;
+
+import android.graphics.Paint;
+
+/**
+ * A complete, precompiled set of paints and text metrics for one display mode. Themes are built
+ * by {@link ThemeCompiler} and never modified afterwards, so switching mode is a reference swap.
+ */
+class Theme {
+
+    /* Which satellite (or the date) a paint or display list op belongs to. */
+    static final int ROLE_HOUR = 0;
+    static final int ROLE_MINUTE = 1;
+    static final int ROLE_SECOND = 2;
+    static final int ROLE_DATE = 3;
+    static final int ROLE_HOME = 4;
+    static final int ROLE_COUNT = 5;
+
+    private final Paint[] mTextPaints;
+    private final Paint mOutlinePaint;
+    private final int mBackgroundColor;
+    private final boolean mAntiAlias;
+
+    private final float[] mBaselineOffsets;
+    private final float[] mLabelHalfWidths;
+    private final float[] mLabelHalfHeights;
+
+    Theme(Paint[] textPaints, Paint outlinePaint, int backgroundColor, boolean antiAlias,
+          float[] baselineOffsets, float[] labelHalfWidths, float[] labelHalfHeights) {
+        mTextPaints = textPaints;
+        mOutlinePaint = outlinePaint;
+        mBackgroundColor = backgroundColor;
+        mAntiAlias = antiAlias;
+        mBaselineOffsets = baselineOffsets;
+        mLabelHalfWidths = labelHalfWidths;
+        mLabelHalfHeights = labelHalfHeights;
+    }
+
+    Paint getTextPaint(int role) {
+        return mTextPaints[role];
+    }
+
+    Paint getOutlinePaint() {
+        return mOutlinePaint;
+    }
+
+    int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    boolean isAntiAlias() {
+        return mAntiAlias;
+    }
+
+    /**
+     * Returns the offset from a label's center to the baseline that vertically centers it.
+     */
+    float getBaselineOffset(int role) {
+        return mBaselineOffsets[role];
+    }
+
+    /**
+     * Returns half the width of the widest number label of a role, plus a pixel of margin.
+     */
+    float getLabelHalfWidth(int role) {
+        return mLabelHalfWidths[role];
+    }
+
+    /**
+     * Returns half the line height of a role's text, plus a pixel of margin.
+     */
+    float getLabelHalfHeight(int role) {
+        return mLabelHalfHeights[role];
+    }
+}
@@ -0,0 +1,149 @@
+package com.chanakira.orbit;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.chanakira.orbit.core.NumberLabels;
+import com.chanakira.orbit.core.OrbitConfig;
+
+/**
+ * Builds the {@link Theme} of every display mode from a configuration, once per configuration
+ * or locale change rather than field by field on every mode switch.
+ */
+class ThemeCompiler {
+
+    static final int MODE_INTERACTIVE = 0;
+    static final int MODE_MUTE = 1;
+    static final int MODE_AMBIENT = 2;
+    static final int MODE_LOW_BIT_AMBIENT = 3;
+    static final int MODE_COUNT = 4;
+
+    private static final float HOUR_STROKE_WIDTH = 5f;
+    private static final float MINUTE_STROKE_WIDTH = 3f;
+    private static final float SECOND_TICK_STROKE_WIDTH = 2f;
+    private static final int SHADOW_RADIUS = 3;
+    private static final int SHADOW_COLOR = Color.BLACK;
+
+    private static final float HOUR_TEXT_SIZE = 45;
+    private static final float MINUTE_TEXT_SIZE = 25;
+    private static final float SECOND_TEXT_SIZE = 18;
+    private static final float DATE_TEXT_SIZE = 18;
+    private static final float HOME_TEXT_SIZE = 18;
+
+    /* Dimmed label alpha in mute mode. */
+    private static final int MUTE_HOUR_ALPHA = 100;
+    private static final int MUTE_MINUTE_ALPHA = 100;
+    private static final int MUTE_SECOND_ALPHA = 80;
+    private static final int MUTE_HOME_ALPHA = 80;
+
+    /* How far an outline circle's stroke and shadow reach beyond its radius. */
+    static final float OUTLINE_OUTSET = SECOND_TICK_STROKE_WIDTH / 2 + SHADOW_RADIUS + 1;
+
+    private ThemeCompiler() {
+    }
+
+    /**
+     * Returns the mode for the given watch state. Ambient takes precedence over mute mode.
+     */
+    static int modeFor(boolean ambient, boolean lowBitAmbient, boolean muteMode) {
+        if (ambient) {
+            return lowBitAmbient ? MODE_LOW_BIT_AMBIENT : MODE_AMBIENT;
+        }
+        return muteMode ? MODE_MUTE : MODE_INTERACTIVE;
+    }
+
+    /**
+     * Compiles the themes of all modes, indexed by the {@code MODE_} constants.
+     */
+    static Theme[] compile(OrbitConfig config, NumberLabels labels) {
+        /* Text metrics do not depend on color or anti-aliasing, so all modes share them. */
+        final Paint[] metricsPaints = textPaints(Color.WHITE, true);
+        final float[] baselineOffsets = new float[Theme.ROLE_COUNT];
+        final float[] labelHalfWidths = new float[Theme.ROLE_COUNT];
+        final float[] labelHalfHeights = new float[Theme.ROLE_COUNT];
+
+        for (int role = 0; role < Theme.ROLE_COUNT; role++) {
+            final Paint paint = metricsPaints[role];
+
+            float maxWidth = 0;
+            for (int i = 0; i < NumberLabels.LABEL_COUNT; i++) {
+                maxWidth = Math.max(maxWidth, paint.measureText(labels.get(i)));
+            }
+
+            baselineOffsets[role] = -((paint.descent() + paint.ascent()) / 2);
+            labelHalfWidths[role] = maxWidth / 2 + 1;
+            labelHalfHeights[role] = (paint.descent() - paint.ascent()) / 2 + 1;
+        }
+
+        final Theme[] themes = new Theme[MODE_COUNT];
+
+        themes[MODE_INTERACTIVE] = new Theme(
+                textPaints(config.getTextColor(), true),
+                outlinePaint(config.getSatelliteColor(), true, true),
+                config.getBackgroundColor(),
+                true,
+                baselineOffsets, labelHalfWidths, labelHalfHeights);
+
+        final Paint[] mutePaints = textPaints(config.getTextColor(), true);
+        mutePaints[Theme.ROLE_HOUR].setAlpha(MUTE_HOUR_ALPHA);
+        mutePaints[Theme.ROLE_MINUTE].setAlpha(MUTE_MINUTE_ALPHA);
+        mutePaints[Theme.ROLE_SECOND].setAlpha(MUTE_SECOND_ALPHA);
+        mutePaints[Theme.ROLE_HOME].setAlpha(MUTE_HOME_ALPHA);
+        themes[MODE_MUTE] = new Theme(
+                mutePaints,
+                outlinePaint(config.getSatelliteColor(), true, true),
+                config.getBackgroundColor(),
+                true,
+                baselineOffsets, labelHalfWidths, labelHalfHeights);
+
+        /* Ambient draws plain white on black without anti-aliasing, like the face always has. */
+        themes[MODE_AMBIENT] = new Theme(
+                textPaints(Color.WHITE, false),
+                outlinePaint(Color.WHITE, false, false),
+                Color.BLACK,
+                false,
+                baselineOffsets, labelHalfWidths, labelHalfHeights);
+
+        /* Low-bit ambient displays cannot show intermediate shades, so no anti-aliasing. */
+        themes[MODE_LOW_BIT_AMBIENT] = new Theme(
+                textPaints(Color.WHITE, false),
+                outlinePaint(Color.WHITE, false, false),
+                Color.BLACK,
+                false,
+                baselineOffsets, labelHalfWidths, labelHalfHeights);
+
+        return themes;
+    }
+
+    private static Paint[] textPaints(int color, boolean antiAlias) {
+        final Paint[] paints = new Paint[Theme.ROLE_COUNT];
+        paints[Theme.ROLE_HOUR] = textPaint(color, antiAlias, HOUR_STROKE_WIDTH, HOUR_TEXT_SIZE);
+        paints[Theme.ROLE_MINUTE] = textPaint(color, antiAlias, MINUTE_STROKE_WIDTH, MINUTE_TEXT_SIZE);
+        paints[Theme.ROLE_SECOND] = textPaint(color, antiAlias, SECOND_TICK_STROKE_WIDTH, SECOND_TEXT_SIZE);
+        paints[Theme.ROLE_DATE] = textPaint(color, antiAlias, SECOND_TICK_STROKE_WIDTH, DATE_TEXT_SIZE);
+        paints[Theme.ROLE_HOME] = textPaint(color, antiAlias, SECOND_TICK_STROKE_WIDTH, HOME_TEXT_SIZE);
+        return paints;
+    }
+
+    private static Paint textPaint(int color, boolean antiAlias, float strokeWidth, float textSize) {
+        final Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setStrokeWidth(strokeWidth);
+        paint.setAntiAlias(antiAlias);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTextSize(textSize);
+        return paint;
+    }
+
+    private static Paint outlinePaint(int color, boolean antiAlias, boolean shadow) {
+        final Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+        paint.setAntiAlias(antiAlias);
+        paint.setStyle(Paint.Style.STROKE);
+        if (shadow) {
+            paint.setShadowLayer(SHADOW_RADIUS, 0, 0, SHADOW_COLOR);
+        }
+        return paint;
+    }
+}
@@ -5,6 +5,7 @@ import android.os.Bundle;
 import android.support.wear.widget.WearableLinearLayoutManager;
 import android.support.wear.widget.WearableRecyclerView;
 
+import com.chanakira.orbit.FacePreviewRenderer;
 import com.chanakira.orbit.R;
 
 import static com.chanakira.orbit.config.ConfigMenuAdapter.EXTRA_SHARED_PREF;
@@ -24,6 +25,10 @@ public class ColorPickerActivity extends Activity {
         String sharedPrefString = getIntent().getStringExtra(EXTRA_SHARED_PREF);
 
         mViewAdapter = new ColorPickerRecyclerAdapter(sharedPrefString, ConfigMenu.getColorOptionsDataSet());
+        if (sharedPrefString != null && !sharedPrefString.isEmpty()) {
+            mViewAdapter.setPreviewRenderer(new FacePreviewRenderer(this, sharedPrefString),
+                    getResources().getDimensionPixelSize(R.dimen.config_color_picker_preview_size));
+        }
 
         mRecyclerView = findViewById(R.id.wearable_recycler_view);
         mRecyclerView.setEdgeItemsCenteringEnabled(true);
@@ -32,4 +37,10 @@ public class ColorPickerActivity extends Activity {
         mRecyclerView.setAdapter(mViewAdapter);
     }
 
+    @Override
+    protected void onDestroy() {
+        mViewAdapter.release();
+        super.onDestroy();
+    }
+
 }
@@ -3,27 +3,57 @@ package com.chanakira.orbit.config;
 import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 import android.support.wearable.view.CircledImageView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 
+import com.chanakira.orbit.FacePreviewRenderer;
 import com.chanakira.orbit.R;
 
 import java.util.ArrayList;
 
-public class ColorPickerRecyclerAdapter extends RecyclerView.Adapter<ColorPickerRecyclerAdapter.ColorViewHolder> {
+public class ColorPickerRecyclerAdapter extends RecyclerView.Adapter<ColorPickerRecyclerAdapter.ColorViewHolder>
+        implements PreviewLoader.Listener {
+
+    /* How many rows past a bound row get their preview rendered ahead of scrolling. */
+    private static final int PREFETCH_DISTANCE = 2;
 
     private final String mSharedPrefKey;
     private final ArrayList<Integer> mColorOptions;
+    private PreviewLoader mPreviewLoader;
 
     public ColorPickerRecyclerAdapter(String sharedPrefKey, ArrayList<Integer> colorDataSet) {
         mSharedPrefKey = sharedPrefKey;
         mColorOptions = colorDataSet;
     }
 
+    /**
+     * Shows face previews rendered by {@code renderer} next to the color swatches.
+     */
+    void setPreviewRenderer(FacePreviewRenderer renderer, int sizePx) {
+        mPreviewLoader = new PreviewLoader(renderer, sizePx, this);
+    }
+
+    void release() {
+        if (mPreviewLoader != null) {
+            mPreviewLoader.release();
+        }
+    }
+
+    @Override
+    public void onPreviewLoaded(int color) {
+        for (int position = 0; position < mColorOptions.size(); position++) {
+            if (mColorOptions.get(position) == color) {
+                notifyItemChanged(position);
+            }
+        }
+    }
+
     @NonNull
     @Override
     public ColorViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -35,7 +65,17 @@ public class ColorPickerRecyclerAdapter extends RecyclerView.Adapter<ColorPicker
 
     @Override
     public void onBindViewHolder(@NonNull ColorViewHolder holder, int position) {
-        holder.setColor(mColorOptions.get(position));
+        final int color = mColorOptions.get(position);
+        holder.setColor(color);
+
+        if (mPreviewLoader != null) {
+            holder.setPreview(mPreviewLoader.get(color));
+
+            final int last = Math.min(position + PREFETCH_DISTANCE, mColorOptions.size() - 1);
+            for (int ahead = Math.max(0, position - PREFETCH_DISTANCE); ahead <= last; ahead++) {
+                mPreviewLoader.prefetch(mColorOptions.get(ahead));
+            }
+        }
     }
 
     @Override
@@ -47,18 +87,24 @@ public class ColorPickerRecyclerAdapter extends RecyclerView.Adapter<ColorPicker
 
         @SuppressWarnings("deprecation")
         private CircledImageView mColorView;
+        private ImageView mPreviewView;
 
         public ColorViewHolder(View view) {
             super(view);
             view.setOnClickListener(this);
 
             mColorView = view.findViewById(R.id.color);
+            mPreviewView = view.findViewById(R.id.preview);
         }
 
         public void setColor(int color) {
             mColorView.setCircleColor(color);
         }
 
+        public void setPreview(Bitmap preview) {
+            mPreviewView.setImageBitmap(preview);
+        }
+
         @Override
         public void onClick(View view) {
             Activity activity = (Activity) view.getContext();
@@ -14,6 +14,7 @@ public class ConfigActivity extends Activity {
     public static final String TAG = ConfigActivity.class.getSimpleName();
 
     static final int UPDATE_COLORS_CONFIG_REQUEST_CODE = 1001;
+    static final int COMPLICATION_CONFIG_REQUEST_CODE = 1002;
 
     private WearableRecyclerView mRecyclerView;
     private ConfigMenuAdapter mAdapter;
@@ -3,6 +3,7 @@ package com.chanakira.orbit.config;
 import android.content.Context;
 import android.graphics.Color;
 
+import com.chanakira.orbit.OrbitWatchFace;
 import com.chanakira.orbit.R;
 
 import java.util.ArrayList;
@@ -72,6 +73,20 @@ public class ConfigMenu {
 
         settingsMenu.add(textColorConfigItem);
 
+        ConfigItemType leftComplicationConfigItem = new ComplicationConfigItem(
+                context.getString(R.string.config_left_complication_label),
+                R.drawable.ic_data_usage_black_24dp,
+                OrbitWatchFace.LEFT_COMPLICATION_ID);
+
+        settingsMenu.add(leftComplicationConfigItem);
+
+        ConfigItemType rightComplicationConfigItem = new ComplicationConfigItem(
+                context.getString(R.string.config_right_complication_label),
+                R.drawable.ic_data_usage_black_24dp,
+                OrbitWatchFace.RIGHT_COMPLICATION_ID);
+
+        settingsMenu.add(rightComplicationConfigItem);
+
         return settingsMenu;
     }
 
@@ -104,4 +119,34 @@ public class ConfigMenu {
             return ConfigMenuAdapter.TYPE_COLOR;
         }
     }
+
+    public static class ComplicationConfigItem implements ConfigItemType {
+
+        private String name;
+        private int iconResourceId;
+        private int complicationId;
+
+        ComplicationConfigItem(String name, int iconResourceId, int complicationId) {
+            this.name = name;
+            this.iconResourceId = iconResourceId;
+            this.complicationId = complicationId;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getIconResourceId() {
+            return iconResourceId;
+        }
+
+        int getComplicationId() {
+            return complicationId;
+        }
+
+        @Override
+        public int getConfigType() {
+            return ConfigMenuAdapter.TYPE_COMPLICATION;
+        }
+    }
 }
@@ -2,15 +2,18 @@ package com.chanakira.orbit.config;
 
 import android.app.Activity;
 import android.content.Context;
+import android.content.ComponentName;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
+import android.support.wearable.complications.ComplicationHelperActivity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 
+import com.chanakira.orbit.OrbitWatchFace;
 import com.chanakira.orbit.R;
 import com.chanakira.orbit.config.ConfigMenu.*;
 
@@ -24,6 +27,7 @@ public class ConfigMenuAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     static final int TYPE_BOOLEAN = 0;
     static final int TYPE_COLOR = 1;
+    static final int TYPE_COMPLICATION = 2;
 
     private Context mContext;
     private ArrayList<ConfigMenu.ConfigItemType> mSettingsDataSet;
@@ -43,6 +47,10 @@ public class ConfigMenuAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         RecyclerView.ViewHolder viewHolder = null;
 
         switch(viewType) {
+            case TYPE_COMPLICATION:
+                viewHolder = new ComplicationViewHolder(LayoutInflater.from(parent.getContext())
+                        .inflate(R.layout.config_menu_color_item, parent, false));
+                break;
             case TYPE_COLOR:
             default:
                 viewHolder = new ColorPickerViewHolder(LayoutInflater.from(parent.getContext())
@@ -70,6 +78,14 @@ public class ConfigMenuAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
                 colorPickerViewHolder.setName(name);
                 colorPickerViewHolder.setSharedPrefString(sharedPrefString);
                 break;
+            case TYPE_COMPLICATION:
+                ComplicationViewHolder complicationViewHolder = (ComplicationViewHolder) holder;
+                ComplicationConfigItem complicationConfigItem = (ComplicationConfigItem) configItemType;
+
+                complicationViewHolder.setIcon(complicationConfigItem.getIconResourceId());
+                complicationViewHolder.setName(complicationConfigItem.getName());
+                complicationViewHolder.setComplicationId(complicationConfigItem.getComplicationId());
+                break;
         }
     }
 
@@ -123,4 +139,46 @@ public class ConfigMenuAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             activity.startActivityForResult(launchIntent, ConfigActivity.UPDATE_COLORS_CONFIG_REQUEST_CODE);
         }
     }
+
+    public class ComplicationViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+
+        private Button mAppearanceButton;
+        private int mComplicationId;
+
+        public ComplicationViewHolder(View view) {
+            super(view);
+
+            mAppearanceButton = view.findViewById(R.id.color_picker_button);
+            view.setOnClickListener(this);
+        }
+
+        public void setName(String name) {
+            mAppearanceButton.setText(name);
+        }
+
+        public void setIcon(int resourceId) {
+            Context context = mAppearanceButton.getContext();
+            mAppearanceButton.setCompoundDrawablesWithIntrinsicBounds(
+                    context.getDrawable(resourceId),
+                    null,
+                    null,
+                    null);
+        }
+
+        public void setComplicationId(int complicationId) {
+            mComplicationId = complicationId;
+        }
+
+        @Override
+        public void onClick(View view) {
+            Activity activity = (Activity) view.getContext();
+            Intent launchIntent = ComplicationHelperActivity.createProviderChooserHelperIntent(
+                    activity,
+                    new ComponentName(activity, OrbitWatchFace.class),
+                    mComplicationId,
+                    OrbitWatchFace.COMPLICATION_SUPPORTED_TYPES);
+
+            activity.startActivityForResult(launchIntent, ConfigActivity.COMPLICATION_CONFIG_REQUEST_CODE);
+        }
+    }
 }
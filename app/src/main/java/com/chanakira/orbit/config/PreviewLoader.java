@@ -0,0 +1,119 @@
+package com.chanakira.orbit.config;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+
+import com.chanakira.orbit.FacePreviewRenderer;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads color picker previews from a size-bounded LRU cache, rendering missing ones on a
+ * background thread. The cache and the render thread are shared across picker launches, so
+ * reopening a picker with unchanged settings shows its previews right away.
+ *
+ * All methods must be called on the main thread.
+ */
+class PreviewLoader {
+
+    interface Listener {
+        void onPreviewLoaded(int color);
+    }
+
+    /* Bytes of preview bitmaps kept across picker launches. */
+    private static final int CACHE_SIZE_BYTES = Math.min(4 * 1024 * 1024,
+            (int) (Runtime.getRuntime().maxMemory() / 16));
+
+    private static final LruCache<String, Bitmap> sCache = new LruCache<String, Bitmap>(CACHE_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "OrbitPreviews");
+        }
+    });
+
+    private final FacePreviewRenderer mRenderer;
+    private final int mSizePx;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> mPending = new HashSet<>();
+    private Listener mListener;
+
+    PreviewLoader(FacePreviewRenderer renderer, int sizePx, Listener listener) {
+        mRenderer = renderer;
+        mSizePx = sizePx;
+        mListener = listener;
+    }
+
+    /**
+     * Returns the cached preview of {@code color}, or null after queueing it for rendering; the
+     * listener is told once it is ready.
+     */
+    Bitmap get(int color) {
+        final String key = mRenderer.getCacheKey(color);
+        final Bitmap bitmap = sCache.get(key);
+        if (bitmap == null) {
+            render(color, key);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Renders the preview of {@code color} ahead of it being shown, if it is not cached yet.
+     */
+    void prefetch(int color) {
+        final String key = mRenderer.getCacheKey(color);
+        if (sCache.get(key) == null) {
+            render(color, key);
+        }
+    }
+
+    /**
+     * Stops reporting loaded previews; renders already queued still fill the cache.
+     */
+    void release() {
+        mListener = null;
+    }
+
+    private void render(final int color, final String key) {
+        if (!mPending.add(key)) {
+            return;
+        }
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = mRenderer.render(color, mSizePx);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mPending.remove(key);
+                        sCache.put(key, bitmap);
+                        if (mListener != null) {
+                            mListener.onPreviewLoaded(color);
+                        }
+                    }
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.chanakira.orbit.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a whole day of frames on a {@link SimulatedTimeSource}, the way the engine would draw
+ * them: ambient at night, mute mode while asleep, the wrist going still, a flight that changes
+ * the time zone and back, all over the day the clocks go back in New York. Each invocation is
+ * one day, so the score divided by the frame count is the platform-independent cost per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DayReplayBenchmark {
+
+    /* 2018-11-04 00:00 in New York, a 25-hour day. */
+    private static final long START_MS = 1541304000000L;
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long STILL_THRESHOLD_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final TimeZone HOME = TimeZone.getTimeZone("America/New_York");
+    private static final TimeZone AWAY = TimeZone.getTimeZone("Europe/Berlin");
+
+    private static final SatelliteSpec[] SATELLITES = {
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0, FaceGeometry.HOUR_RADIUS_RATIO, 0,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE, FaceGeometry.MINUTES_RADIUS_RATIO, 1,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, FaceGeometry.SECONDS_DISTANCE, FaceGeometry.SECONDS_RADIUS_RATIO, 2,
+                    SatelliteSpec.OUTLINE_ALWAYS)
+    };
+
+    private OrbitTable[] mOrbits;
+    private float[] mRadii;
+    private RefreshPolicy mRefreshPolicy;
+
+    @Setup
+    public void setUp() {
+        FaceGeometry geometry = new FaceGeometry(390, 390);
+        mOrbits = new OrbitTable[SATELLITES.length];
+        mRadii = new float[SATELLITES.length];
+        for (int i = 0; i < SATELLITES.length; i++) {
+            mOrbits[i] = geometry.newOrbit(SATELLITES[i], 6f);
+            mRadii[i] = geometry.getSatelliteRadius(SATELLITES[i]);
+        }
+        mRefreshPolicy = new AdaptiveRefreshPolicy(STILL_THRESHOLD_MS);
+    }
+
+    @Benchmark
+    public void day(Blackhole blackhole) {
+        final SimulatedTimeSource time = new SimulatedTimeSource(START_MS);
+        final WallClock wallClock = new WallClock(HOME);
+        final FaceState faceState = new FaceState();
+        DisplayList current = new DisplayList();
+        DisplayList previous = new DisplayList();
+        final DirtyRegion dirty = new DirtyRegion();
+
+        long frames = 0;
+        long dirtyArea = 0;
+        while (time.uptimeMillis() < DAY_MS) {
+            final long uptime = time.uptimeMillis();
+            final int hour = (int) (uptime / HOUR_MS);
+
+            /* Asleep from 22:00, muted from 23:00, both until 07:00; away from 12:00 to 18:00. */
+            final boolean ambient = hour < 7 || hour >= 22;
+            final boolean muteMode = hour < 7 || hour >= 23;
+            final TimeZone timeZone = hour >= 12 && hour < 18 ? AWAY : HOME;
+            if (wallClock.getTimeZone() != timeZone) {
+                wallClock.setTimeZone(timeZone);
+            }
+
+            /* The wrist is still for the last 20 minutes of every waking hour. */
+            final long stillMillis = Math.max(0, uptime % HOUR_MS - TimeUnit.MINUTES.toMillis(40));
+            final int rate = ambient ? RefreshPolicy.RATE_MINUTE
+                    : mRefreshPolicy.selectRate(false, muteMode, false, stillMillis);
+
+            final long now = time.currentTimeMillis();
+            wallClock.update(now);
+            faceState.update(wallClock, false);
+
+            current.reset();
+            current.addClear(0xFF000000, 390, 390);
+            for (int i = 0; i < SATELLITES.length; i++) {
+                final SatelliteSpec spec = SATELLITES[i];
+                if (spec.isSeconds() && rate == RefreshPolicy.RATE_MINUTE) {
+                    continue;
+                }
+                final int position = spec.getPosition(faceState);
+                final float x = mOrbits[i].getX(position);
+                final float y = mOrbits[i].getY(position);
+                if (!ambient && spec.showOutline(OrbitConfig.DEFAULT)) {
+                    current.addCircle(spec.getRole(), x, y, mRadii[i], 6f);
+                }
+                current.addText(spec.getRole(), spec.getValue(faceState), x, y, 12f, 10f);
+            }
+
+            DisplayListDiff.compute(previous, current, 390, 390, dirty);
+            dirtyArea += dirty.getArea();
+            frames++;
+
+            final DisplayList swap = previous;
+            previous = current;
+            current = swap;
+
+            final long period = rate == RefreshPolicy.RATE_MINUTE ? 60000 : 1000;
+            time.advance(period - now % period);
+        }
+
+        blackhole.consume(frames);
+        blackhole.consume(dirtyArea);
+    }
+}
@@ -0,0 +1,76 @@
+package com.chanakira.orbit.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Per-frame state computation: the time breakdown, label and date lookup and satellite
+ * geometry lookup that the engine performs on every frame.
+ */
+@State(Scope.Thread)
+public class FaceStateBenchmark {
+
+    @Param({"en-US", "de-DE", "ja-JP", "ar-EG"})
+    public String languageTag;
+
+    @Param({"320", "390", "454"})
+    public int surfaceSize;
+
+    private Locale mLocale;
+    private WallClock mWallClock;
+    private FaceState mFaceState;
+    private NumberLabels mNumberLabels;
+    private DateText mDateText;
+    private OrbitTable mMinuteOrbit;
+    private OrbitTable mSecondOrbit;
+
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        mLocale = Locale.forLanguageTag(languageTag);
+        mWallClock = new WallClock(TimeZone.getTimeZone("America/New_York"));
+        mFaceState = new FaceState();
+        mNumberLabels = new NumberLabels(mLocale);
+        mDateText = new DateText();
+
+        FaceGeometry geometry = new FaceGeometry(surfaceSize, surfaceSize);
+        mMinuteOrbit = geometry.newMinuteOrbit(8f);
+        mSecondOrbit = geometry.newSecondOrbit(6f);
+
+        mNow = 1540000000000L;
+    }
+
+    @Benchmark
+    public void frame(Blackhole blackhole) {
+        /* Advance one interactive frame. */
+        mNow += 1000;
+        mWallClock.update(mNow);
+        mFaceState.update(mWallClock, false);
+
+        blackhole.consume(mNumberLabels.get(mFaceState.getHour()));
+        blackhole.consume(mNumberLabels.get(mFaceState.getMinute()));
+        blackhole.consume(mNumberLabels.get(mFaceState.getSecond()));
+        blackhole.consume(mDateText.get(mWallClock, mLocale));
+
+        blackhole.consume(mMinuteOrbit.getX(mFaceState.getMinute()));
+        blackhole.consume(mMinuteOrbit.getTextY(mFaceState.getMinute()));
+        blackhole.consume(mSecondOrbit.getX(mFaceState.getSecondsPosition()));
+        blackhole.consume(mSecondOrbit.getTextY(mFaceState.getSecondsPosition()));
+    }
+
+    @Benchmark
+    public void surfaceChanged(Blackhole blackhole) {
+        FaceGeometry geometry = new FaceGeometry(surfaceSize, surfaceSize);
+        blackhole.consume(geometry.newHourOrbit(16f));
+        blackhole.consume(geometry.newMinuteOrbit(8f));
+        blackhole.consume(geometry.newSecondOrbit(6f));
+    }
+}
@@ -0,0 +1,103 @@
+package com.chanakira.orbit.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TimeZone;
+
+/**
+ * Per-frame cost of a spec-driven layout against the number of satellites: computing every
+ * satellite's value and position, recording it into a display list and diffing the list with
+ * the previous frame's. Drawing needs a canvas, so the draw cost of the same satellites is
+ * measured on a device by the app's {@code SatelliteDrawBenchmark}.
+ */
+@State(Scope.Thread)
+public class SatelliteLayoutBenchmark {
+
+    private static final SatelliteSpec[] ALL_SATELLITES = {
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0, FaceGeometry.HOUR_RADIUS_RATIO, 0,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE, FaceGeometry.MINUTES_RADIUS_RATIO, 1,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, FaceGeometry.SECONDS_DISTANCE, FaceGeometry.SECONDS_RADIUS_RATIO, 2,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_DAY_OF_MONTH, 0.45f, 0.08f, 2,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR_OF_DAY, 0.95f, 0.05f, 2,
+                    SatelliteSpec.OUTLINE_NEVER),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, 0.55f, 0.05f, 2,
+                    SatelliteSpec.OUTLINE_NEVER),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, 0.6f, 0.05f, 2,
+                    SatelliteSpec.OUTLINE_NEVER),
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0.3f, 0.05f, 2,
+                    SatelliteSpec.OUTLINE_NEVER)
+    };
+
+    @Param({"3", "5", "8"})
+    public int satelliteCount;
+
+    private SatelliteSpec[] mSatellites;
+    private OrbitTable[] mOrbits;
+    private float[] mRadii;
+
+    private WallClock mWallClock;
+    private FaceState mFaceState;
+    private DisplayList mCurrent;
+    private DisplayList mPrevious;
+    private DirtyRegion mDirty;
+
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        FaceGeometry geometry = new FaceGeometry(390, 390);
+        mSatellites = new SatelliteSpec[satelliteCount];
+        mOrbits = new OrbitTable[satelliteCount];
+        mRadii = new float[satelliteCount];
+        for (int i = 0; i < satelliteCount; i++) {
+            mSatellites[i] = ALL_SATELLITES[i];
+            mOrbits[i] = geometry.newOrbit(mSatellites[i], 6f);
+            mRadii[i] = geometry.getSatelliteRadius(mSatellites[i]);
+        }
+
+        mWallClock = new WallClock(TimeZone.getTimeZone("America/New_York"));
+        mFaceState = new FaceState();
+        mCurrent = new DisplayList();
+        mPrevious = new DisplayList();
+        mDirty = new DirtyRegion();
+
+        mNow = 1540000000000L;
+    }
+
+    @Benchmark
+    public void frame(Blackhole blackhole) {
+        mNow += 1000;
+        mWallClock.update(mNow);
+        mFaceState.update(mWallClock, false);
+
+        mCurrent.reset();
+        mCurrent.addClear(0xFF000000, 390, 390);
+        for (int i = 0; i < mSatellites.length; i++) {
+            final SatelliteSpec spec = mSatellites[i];
+            final int position = spec.getPosition(mFaceState);
+            final float x = mOrbits[i].getX(position);
+            final float y = mOrbits[i].getY(position);
+
+            if (spec.showOutline(OrbitConfig.DEFAULT)) {
+                mCurrent.addCircle(spec.getRole(), x, y, mRadii[i], 6f);
+            }
+            mCurrent.addText(spec.getRole(), spec.getValue(mFaceState), x, y, 12f, 10f);
+        }
+
+        DisplayListDiff.compute(mPrevious, mCurrent, 390, 390, mDirty);
+        blackhole.consume(mDirty.getArea());
+
+        final DisplayList previous = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = previous;
+    }
+}
@@ -0,0 +1,58 @@
+package com.chanakira.orbit.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The platform-independent part of the engine's startup: what the main thread builds before the
+ * first frame, and what the warm-up thread builds before the first full frame. Paints, text
+ * metrics and atlases need a device; the app's instrumented {@code EngineStartupBenchmark}
+ * measures them, and dumpsys reports the time to first frame.
+ */
+@State(Scope.Thread)
+public class StartupBenchmark {
+
+    @Param({"en-US", "ar-EG"})
+    public String languageTag;
+
+    @Param({"320", "454"})
+    public int surfaceSize;
+
+    private Locale mLocale;
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        mLocale = Locale.forLanguageTag(languageTag);
+        mNow = 1540000000000L;
+    }
+
+    @Benchmark
+    public void firstFrame(Blackhole blackhole) {
+        WallClock wallClock = new WallClock(TimeZone.getTimeZone("America/New_York"));
+        FaceState faceState = new FaceState();
+        wallClock.update(mNow);
+        faceState.update(wallClock, false);
+
+        blackhole.consume(faceState);
+        blackhole.consume(new FaceGeometry(surfaceSize, surfaceSize));
+    }
+
+    @Benchmark
+    public void warmup(Blackhole blackhole) {
+        NumberLabels numberLabels = new NumberLabels(mLocale);
+        FaceGeometry geometry = new FaceGeometry(surfaceSize, surfaceSize);
+
+        blackhole.consume(numberLabels);
+        blackhole.consume(geometry.newHourOrbit(16f));
+        blackhole.consume(geometry.newMinuteOrbit(8f));
+        blackhole.consume(geometry.newSecondOrbit(6f));
+    }
+}
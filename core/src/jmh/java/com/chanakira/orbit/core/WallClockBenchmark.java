@@ -0,0 +1,62 @@
+package com.chanakira.orbit.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * The per-frame time breakdown: {@link WallClock} against the {@link Calendar} calls it
+ * replaces, advancing one sweep frame at a time.
+ */
+@State(Scope.Thread)
+public class WallClockBenchmark {
+
+    @Param({"UTC", "America/New_York", "Australia/Lord_Howe"})
+    public String timeZoneId;
+
+    private Calendar mCalendar;
+    private WallClock mWallClock;
+
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        TimeZone timeZone = TimeZone.getTimeZone(timeZoneId);
+        mCalendar = Calendar.getInstance(timeZone);
+        mWallClock = new WallClock(timeZone);
+
+        mNow = 1540000000000L;
+    }
+
+    @Benchmark
+    public void calendar(Blackhole blackhole) {
+        mNow += 16;
+        mCalendar.setTimeInMillis(mNow);
+
+        blackhole.consume(mCalendar.get(Calendar.HOUR_OF_DAY));
+        blackhole.consume(mCalendar.get(Calendar.MINUTE));
+        blackhole.consume(mCalendar.get(Calendar.SECOND));
+        blackhole.consume(mCalendar.get(Calendar.MILLISECOND));
+        blackhole.consume(mCalendar.get(Calendar.YEAR));
+        blackhole.consume(mCalendar.get(Calendar.DAY_OF_YEAR));
+    }
+
+    @Benchmark
+    public void wallClock(Blackhole blackhole) {
+        mNow += 16;
+        mWallClock.update(mNow);
+
+        blackhole.consume(mWallClock.getHourOfDay());
+        blackhole.consume(mWallClock.getMinute());
+        blackhole.consume(mWallClock.getSecond());
+        blackhole.consume(mWallClock.getMillisecond());
+        blackhole.consume(mWallClock.getYear());
+        blackhole.consume(mWallClock.getDayOfYear());
+    }
+}
@@ -0,0 +1,59 @@
+package com.chanakira.orbit.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.TimeZone;
+
+/**
+ * Per-frame cost of the home time's UTC offset: asking the time zone on every frame against
+ * looking it up in a {@link ZoneOffsetTable}, with frames a second apart, and the one-off cost
+ * of building a year's table when the home zone is chosen.
+ */
+@State(Scope.Thread)
+public class ZoneOffsetBenchmark {
+
+    private static final long YEAR_MS = 366 * 24 * 60 * 60 * 1000L;
+
+    @Param({"America/New_York", "Australia/Lord_Howe", "Asia/Kolkata"})
+    public String timeZoneId;
+
+    private TimeZone mTimeZone;
+    private ZoneOffsetTable mTable;
+    private long mStart;
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        mTimeZone = TimeZone.getTimeZone(timeZoneId);
+        mStart = 1540000000000L;
+        mTable = new ZoneOffsetTable(mTimeZone, mStart, mStart + YEAR_MS);
+        mNow = mStart;
+    }
+
+    private long nextFrame() {
+        mNow += 1000;
+        if (mNow >= mStart + YEAR_MS) {
+            mNow = mStart;
+        }
+        return mNow;
+    }
+
+    @Benchmark
+    public int timeZone() {
+        return mTimeZone.getOffset(nextFrame());
+    }
+
+    @Benchmark
+    public int table() {
+        return mTable.getOffset(nextFrame());
+    }
+
+    @Benchmark
+    public ZoneOffsetTable build() {
+        return new ZoneOffsetTable(mTimeZone, mStart, mStart + YEAR_MS);
+    }
+}
@@ -0,0 +1,22 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Drops to per-minute updates on a low battery, in mute mode, or once the wrist has been still
+ * for a while; otherwise sweeps if configured, or ticks once a second.
+ */
+public class AdaptiveRefreshPolicy implements RefreshPolicy {
+
+    private final long mStillThresholdMillis;
+
+    public AdaptiveRefreshPolicy(long stillThresholdMillis) {
+        mStillThresholdMillis = stillThresholdMillis;
+    }
+
+    @Override
+    public int selectRate(boolean sweepEnabled, boolean muteMode, boolean batteryLow, long stillMillis) {
+        if (batteryLow || muteMode || stillMillis >= mStillThresholdMillis) {
+            return RATE_MINUTE;
+        }
+        return sweepEnabled ? RATE_SWEEP : RATE_SECOND;
+    }
+}
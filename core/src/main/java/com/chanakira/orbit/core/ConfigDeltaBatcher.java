@@ -0,0 +1,99 @@
+package com.chanakira.orbit.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Merges configuration changes into versioned delta items, so that a burst of edits is sent as
+ * one transfer. A key changed several times before a flush is only sent with its last value.
+ *
+ * Not thread-safe; changes and flushes must come from one thread.
+ */
+public class ConfigDeltaBatcher {
+
+    public interface Transport {
+        /**
+         * Sends delta {@code version} of sender {@code senderId}. {@code values} holds
+         * {@link Integer}, {@link Boolean} and {@link String} preference values by preference key,
+         * and must not be kept after returning.
+         */
+        void send(long senderId, long version, Map<String, Object> values);
+    }
+
+    private final Transport mTransport;
+    private final long mSenderId;
+    private final Map<String, Object> mPending = new LinkedHashMap<>();
+    private final Map<String, Object> mUnmodifiablePending = Collections.unmodifiableMap(mPending);
+    private long mVersion;
+
+    private long mChangeCount;
+    private long mTransferCount;
+
+    /**
+     * @param senderId    identifies this installation of the sender; versions only increase
+     *                    for the same sender, so a reinstalled sender must pick a new one
+     * @param lastVersion the version of the last delta sent, so versions keep increasing across
+     *                    restarts of the sender
+     */
+    public ConfigDeltaBatcher(Transport transport, long senderId, long lastVersion) {
+        mTransport = transport;
+        mSenderId = senderId;
+        mVersion = lastVersion;
+    }
+
+    public void putInt(String key, int value) {
+        put(key, value);
+    }
+
+    public void putBoolean(String key, boolean value) {
+        put(key, value);
+    }
+
+    public void putString(String key, String value) {
+        put(key, value);
+    }
+
+    private void put(String key, Object value) {
+        mPending.put(key, value);
+        mChangeCount++;
+    }
+
+    public boolean hasPendingChanges() {
+        return !mPending.isEmpty();
+    }
+
+    /**
+     * Sends the pending changes as one delta, if there are any.
+     */
+    public void flush() {
+        if (mPending.isEmpty()) {
+            return;
+        }
+
+        mVersion++;
+        mTransport.send(mSenderId, mVersion, mUnmodifiablePending);
+        mPending.clear();
+        mTransferCount++;
+    }
+
+    public long getSenderId() {
+        return mSenderId;
+    }
+
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Returns the number of changes made, including those merged into a later change of the
+     * same key.
+     */
+    public long getChangeCount() {
+        return mChangeCount;
+    }
+
+    public long getTransferCount() {
+        return mTransferCount;
+    }
+}
@@ -0,0 +1,47 @@
+package com.chanakira.orbit.core;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * The date line of the face ("EEE, MMM d"), only reformatted when the day or locale changes.
+ */
+public class DateText {
+
+    private static final String PATTERN = "EEE, MMM d";
+
+    private SimpleDateFormat mDateFormat;
+    private Locale mLocale;
+    private int mDay = -1;
+    private String mText;
+
+    /**
+     * Returns the formatted date of the day {@code clock} was last updated to.
+     */
+    public String get(WallClock clock, Locale locale) {
+        final int day = clock.getYear() * 1000 + clock.getDayOfYear();
+
+        if (!locale.equals(mLocale)) {
+            mLocale = locale;
+            mDateFormat = new SimpleDateFormat(PATTERN, locale);
+            mText = null;
+        }
+
+        if (mText == null || day != mDay) {
+            final Calendar calendar = clock.getCalendar();
+            mDateFormat.setTimeZone(calendar.getTimeZone());
+            mText = mDateFormat.format(calendar.getTime());
+            mDay = day;
+        }
+
+        return mText;
+    }
+
+    /**
+     * Forces the next call to reformat, e.g. after a time zone change.
+     */
+    public void invalidate() {
+        mText = null;
+    }
+}
@@ -0,0 +1,113 @@
+package com.chanakira.orbit.core;
+
+/**
+ * The set of rectangles that must be repainted for a frame. Holds a small fixed number of
+ * rectangles; overlapping rectangles are merged, and once the capacity is reached further
+ * rectangles are merged into the last one.
+ */
+public class DirtyRegion {
+
+    private static final int MAX_RECTS = 4;
+
+    private final float[] mLeft = new float[MAX_RECTS];
+    private final float[] mTop = new float[MAX_RECTS];
+    private final float[] mRight = new float[MAX_RECTS];
+    private final float[] mBottom = new float[MAX_RECTS];
+    private int mCount;
+    private boolean mFull;
+
+    public void reset() {
+        mCount = 0;
+        mFull = false;
+    }
+
+    /**
+     * Marks the whole surface as dirty.
+     */
+    public void setFull(float width, float height) {
+        reset();
+        mFull = true;
+        mCount = 1;
+        set(0, 0, 0, width, height);
+    }
+
+    public void add(float left, float top, float right, float bottom) {
+        if (mFull || left >= right || top >= bottom) {
+            return;
+        }
+
+        for (int i = 0; i < mCount; i++) {
+            if (intersects(i, left, top, right, bottom)) {
+                union(i, left, top, right, bottom);
+                return;
+            }
+        }
+
+        if (mCount < MAX_RECTS) {
+            set(mCount++, left, top, right, bottom);
+        } else {
+            union(MAX_RECTS - 1, left, top, right, bottom);
+        }
+    }
+
+    public boolean isFull() {
+        return mFull;
+    }
+
+    public boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public float getLeft(int index) {
+        return mLeft[index];
+    }
+
+    public float getTop(int index) {
+        return mTop[index];
+    }
+
+    public float getRight(int index) {
+        return mRight[index];
+    }
+
+    public float getBottom(int index) {
+        return mBottom[index];
+    }
+
+    /**
+     * Returns whether rectangle {@code index} overlaps the given bounds.
+     */
+    public boolean intersects(int index, float left, float top, float right, float bottom) {
+        return left < mRight[index] && mLeft[index] < right
+                && top < mBottom[index] && mTop[index] < bottom;
+    }
+
+    /**
+     * Returns the total area of the dirty rectangles in pixels.
+     */
+    public long getArea() {
+        long area = 0;
+        for (int i = 0; i < mCount; i++) {
+            area += (long) Math.ceil(mRight[i] - mLeft[i]) * (long) Math.ceil(mBottom[i] - mTop[i]);
+        }
+        return area;
+    }
+
+    private void set(int index, float left, float top, float right, float bottom) {
+        mLeft[index] = left;
+        mTop[index] = top;
+        mRight[index] = right;
+        mBottom[index] = bottom;
+    }
+
+    private void union(int index, float left, float top, float right, float bottom) {
+        mLeft[index] = Math.min(mLeft[index], left);
+        mTop[index] = Math.min(mTop[index], top);
+        mRight[index] = Math.max(mRight[index], right);
+        mBottom[index] = Math.max(mBottom[index], bottom);
+    }
+}
@@ -0,0 +1,183 @@
+package com.chanakira.orbit.core;
+
+/**
+ * A compact, reusable list of drawing primitives with their bounds. The engine records one list
+ * per frame and compares it with the previous frame's list to find the regions that changed.
+ *
+ * Ops are stored in parallel arrays that are reused between frames, so recording a frame does not
+ * allocate once the list has grown to the size of a typical frame.
+ */
+public class DisplayList {
+
+    public static final int OP_CLEAR = 0;
+    public static final int OP_CIRCLE = 1;
+    public static final int OP_TEXT = 2;
+    public static final int OP_IMAGE = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int mSize;
+
+    private int[] mTypes = new int[INITIAL_CAPACITY];
+    private int[] mRoles = new int[INITIAL_CAPACITY];
+    private int[] mValues = new int[INITIAL_CAPACITY];
+    private float[] mX = new float[INITIAL_CAPACITY];
+    private float[] mY = new float[INITIAL_CAPACITY];
+    private float[] mRadii = new float[INITIAL_CAPACITY];
+
+    private float[] mLeft = new float[INITIAL_CAPACITY];
+    private float[] mTop = new float[INITIAL_CAPACITY];
+    private float[] mRight = new float[INITIAL_CAPACITY];
+    private float[] mBottom = new float[INITIAL_CAPACITY];
+
+    public void reset() {
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Records filling the whole surface with {@code color}.
+     */
+    public void addClear(int color, float width, float height) {
+        final int index = add(OP_CLEAR, 0, color, 0, 0, 0);
+        setBounds(index, 0, 0, width, height);
+    }
+
+    /**
+     * Records an outline circle. {@code outset} is how far the stroke and shadow reach beyond
+     * the radius, so the bounds cover every pixel the circle touches.
+     */
+    public void addCircle(int role, float centerX, float centerY, float radius, float outset) {
+        final int index = add(OP_CIRCLE, role, 0, centerX, centerY, radius);
+        final float extent = radius + outset;
+        setBounds(index, centerX - extent, centerY - extent, centerX + extent, centerY + extent);
+    }
+
+    /**
+     * Records a text label centered on ({@code centerX}, {@code centerY}). {@code value}
+     * identifies the text (e.g. the number shown), so two ops with the same role and value draw
+     * the same text.
+     */
+    public void addText(int role, int value, float centerX, float centerY, float halfWidth, float halfHeight) {
+        final int index = add(OP_TEXT, role, value, centerX, centerY, 0);
+        setBounds(index, centerX - halfWidth, centerY - halfHeight, centerX + halfWidth, centerY + halfHeight);
+    }
+
+    /**
+     * Records a cached image of {@code halfSize} centered on ({@code centerX}, {@code centerY}).
+     * {@code value} identifies the image content (e.g. a version bumped on every re-render), so
+     * two ops with the same role and value draw the same pixels.
+     */
+    public void addImage(int role, int value, float centerX, float centerY, float halfSize) {
+        final int index = add(OP_IMAGE, role, value, centerX, centerY, halfSize);
+        setBounds(index, centerX - halfSize, centerY - halfSize, centerX + halfSize, centerY + halfSize);
+    }
+
+    /**
+     * Returns whether op {@code index} of this list draws exactly what op {@code otherIndex} of
+     * {@code other} draws.
+     */
+    public boolean isSameOp(int index, DisplayList other, int otherIndex) {
+        return mTypes[index] == other.mTypes[otherIndex]
+                && mRoles[index] == other.mRoles[otherIndex]
+                && mValues[index] == other.mValues[otherIndex]
+                && mX[index] == other.mX[otherIndex]
+                && mY[index] == other.mY[otherIndex]
+                && mRadii[index] == other.mRadii[otherIndex];
+    }
+
+    public int getType(int index) {
+        return mTypes[index];
+    }
+
+    public int getRole(int index) {
+        return mRoles[index];
+    }
+
+    /**
+     * Returns the color of a clear op, or the content identifier of a text or image op.
+     */
+    public int getValue(int index) {
+        return mValues[index];
+    }
+
+    public float getX(int index) {
+        return mX[index];
+    }
+
+    public float getY(int index) {
+        return mY[index];
+    }
+
+    public float getRadius(int index) {
+        return mRadii[index];
+    }
+
+    public float getLeft(int index) {
+        return mLeft[index];
+    }
+
+    public float getTop(int index) {
+        return mTop[index];
+    }
+
+    public float getRight(int index) {
+        return mRight[index];
+    }
+
+    public float getBottom(int index) {
+        return mBottom[index];
+    }
+
+    private int add(int type, int role, int value, float x, float y, float radius) {
+        if (mSize == mTypes.length) {
+            grow();
+        }
+
+        final int index = mSize++;
+        mTypes[index] = type;
+        mRoles[index] = role;
+        mValues[index] = value;
+        mX[index] = x;
+        mY[index] = y;
+        mRadii[index] = radius;
+        return index;
+    }
+
+    private void setBounds(int index, float left, float top, float right, float bottom) {
+        mLeft[index] = left;
+        mTop[index] = top;
+        mRight[index] = right;
+        mBottom[index] = bottom;
+    }
+
+    private void grow() {
+        final int capacity = mTypes.length * 2;
+
+        mTypes = copyOf(mTypes, capacity);
+        mRoles = copyOf(mRoles, capacity);
+        mValues = copyOf(mValues, capacity);
+        mX = copyOf(mX, capacity);
+        mY = copyOf(mY, capacity);
+        mRadii = copyOf(mRadii, capacity);
+        mLeft = copyOf(mLeft, capacity);
+        mTop = copyOf(mTop, capacity);
+        mRight = copyOf(mRight, capacity);
+        mBottom = copyOf(mBottom, capacity);
+    }
+
+    private static int[] copyOf(int[] array, int capacity) {
+        final int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    private static float[] copyOf(float[] array, int capacity) {
+        final float[] copy = new float[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+}
@@ -0,0 +1,40 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Compares two consecutive frames' display lists and collects the regions that changed.
+ */
+public class DisplayListDiff {
+
+    private DisplayListDiff() {
+    }
+
+    /**
+     * Fills {@code dirty} with the regions that differ between {@code previous} and
+     * {@code current}. Both the old and the new bounds of a changed op are dirty, so the old
+     * pixels are erased and the new ones drawn. A change in the list structure or in a clear op
+     * dirties the whole surface.
+     */
+    public static void compute(DisplayList previous, DisplayList current, float width, float height,
+                               DirtyRegion dirty) {
+        dirty.reset();
+
+        if (previous.size() != current.size()) {
+            dirty.setFull(width, height);
+            return;
+        }
+
+        for (int i = 0; i < current.size(); i++) {
+            if (current.isSameOp(i, previous, i)) {
+                continue;
+            }
+
+            if (current.getType(i) == DisplayList.OP_CLEAR || previous.getType(i) != current.getType(i)) {
+                dirty.setFull(width, height);
+                return;
+            }
+
+            dirty.add(previous.getLeft(i), previous.getTop(i), previous.getRight(i), previous.getBottom(i));
+            dirty.add(current.getLeft(i), current.getTop(i), current.getRight(i), current.getBottom(i));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Satellite layout for a given surface size. Distances and radii are expressed as ratios of
+ * half the surface width, so the face scales with the screen.
+ */
+public class FaceGeometry {
+
+    public static final float MINUTES_DISTANCE = 0.70f;
+    public static final float SECONDS_DISTANCE = 0.85f;
+    public static final float DATE_DISTANCE = 0.45f;
+
+    public static final float HOUR_RADIUS_RATIO = 0.333f;
+    public static final float MINUTES_RADIUS_RATIO = 0.12665f;
+    public static final float SECONDS_RADIUS_RATIO = 0.0999f;
+
+    /* Complications sit left and right of the hour satellite, on the date's ring. */
+    public static final float COMPLICATION_RADIUS_RATIO = 0.1f;
+
+    /*
+     * The home-time satellite takes the last slot of the date's ring, above the hour satellite,
+     * where it clears the hour satellite and the minutes passing by outside.
+     */
+    public static final float HOME_DISTANCE = DATE_DISTANCE;
+    public static final float HOME_RADIUS_RATIO = COMPLICATION_RADIUS_RATIO;
+
+    private final int mWidth;
+    private final int mHeight;
+
+    private final float mCenterX;
+    private final float mCenterY;
+
+    private final float mSecondHandLength;
+    private final float mMinuteHandLength;
+    private final float mDateHandLength;
+
+    private final float mHourSatelliteRadius;
+    private final float mMinutesSatelliteRadius;
+    private final float mSecondsSatelliteRadius;
+    private final float mComplicationRadius;
+
+    public FaceGeometry(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+
+        mCenterX = width / 2f;
+        mCenterY = height / 2f;
+
+        /*
+         * Calculate lengths of different hands based on watch screen size.
+         */
+        mSecondHandLength = mCenterX * SECONDS_DISTANCE;
+        mMinuteHandLength = mCenterX * MINUTES_DISTANCE;
+        mDateHandLength = mCenterX * DATE_DISTANCE;
+
+        /*
+         * Calculate the radii of different satellites based on watch screen size.
+         */
+        mHourSatelliteRadius = mCenterX * HOUR_RADIUS_RATIO;
+        mMinutesSatelliteRadius = mCenterX * MINUTES_RADIUS_RATIO;
+        mSecondsSatelliteRadius = mCenterX * SECONDS_RADIUS_RATIO;
+        mComplicationRadius = mCenterX * COMPLICATION_RADIUS_RATIO;
+    }
+
+    /**
+     * The hour satellite sits in the center of the face, so its orbit has a single position.
+     */
+    public OrbitTable newHourOrbit(float textBaselineOffset) {
+        return new OrbitTable(mCenterX, mCenterY, 0, 1, textBaselineOffset);
+    }
+
+    /**
+     * The minutes orbit has one position per minute.
+     */
+    public OrbitTable newMinuteOrbit(float textBaselineOffset) {
+        return new OrbitTable(mCenterX, mCenterY, mMinuteHandLength, 60, textBaselineOffset);
+    }
+
+    /**
+     * The seconds orbit has {@link OrbitTable#STEPS_PER_SECOND} positions per second.
+     */
+    public OrbitTable newSecondOrbit(float textBaselineOffset) {
+        return new OrbitTable(mCenterX, mCenterY, mSecondHandLength,
+                60 * OrbitTable.STEPS_PER_SECOND, textBaselineOffset);
+    }
+
+    /**
+     * Returns the orbit of a satellite described by {@code spec}.
+     */
+    public OrbitTable newOrbit(SatelliteSpec spec, float textBaselineOffset) {
+        return new OrbitTable(mCenterX, mCenterY, mCenterX * spec.getDistance(), spec.getPositionCount(),
+                textBaselineOffset);
+    }
+
+    public float getSatelliteRadius(SatelliteSpec spec) {
+        return mCenterX * spec.getRadiusRatio();
+    }
+
+    public float getDateTextY(float textBaselineOffset) {
+        return mCenterY + mDateHandLength + textBaselineOffset;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public float getCenterX() {
+        return mCenterX;
+    }
+
+    public float getCenterY() {
+        return mCenterY;
+    }
+
+    public float getSecondHandLength() {
+        return mSecondHandLength;
+    }
+
+    public float getMinuteHandLength() {
+        return mMinuteHandLength;
+    }
+
+    public float getDateHandLength() {
+        return mDateHandLength;
+    }
+
+    public float getHourSatelliteRadius() {
+        return mHourSatelliteRadius;
+    }
+
+    public float getMinutesSatelliteRadius() {
+        return mMinutesSatelliteRadius;
+    }
+
+    public float getSecondsSatelliteRadius() {
+        return mSecondsSatelliteRadius;
+    }
+
+    public float getComplicationRadius() {
+        return mComplicationRadius;
+    }
+
+    public float getLeftComplicationX() {
+        return mCenterX - mDateHandLength;
+    }
+
+    public float getRightComplicationX() {
+        return mCenterX + mDateHandLength;
+    }
+}
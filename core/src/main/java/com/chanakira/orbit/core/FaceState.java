@@ -0,0 +1,112 @@
+package com.chanakira.orbit.core;
+
+/**
+ * The values shown on the face for one frame, broken down from a {@link WallClock}.
+ */
+public class FaceState {
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private int mHour;
+    private int mHourOfDay;
+    private int mMinute;
+    private int mSecond;
+    private int mMillisecond;
+    private int mDayOfMonth;
+    private int mDayKey;
+    private long mMinuteKey;
+    private int mHomeHour;
+
+    /**
+     * Updates the state from the last time {@code clock} was updated to.
+     */
+    public void update(WallClock clock, boolean use24HourClock) {
+        final int hourOfDay = clock.getHourOfDay();
+
+        mHour = displayHour(hourOfDay, use24HourClock);
+        mHourOfDay = hourOfDay;
+        mMinute = clock.getMinute();
+        mSecond = clock.getSecond();
+        mMillisecond = clock.getMillisecond();
+        mDayOfMonth = clock.getDayOfMonth();
+
+        mDayKey = clock.getYear() * 1000 + clock.getDayOfYear();
+        mMinuteKey = mDayKey * 1440L + hourOfDay * 60 + mMinute;
+    }
+
+    /**
+     * Updates the home time, the hour at {@code nowMs} in the zone of {@code homeOffsets}.
+     */
+    public void updateHomeTime(ZoneOffsetTable homeOffsets, long nowMs, boolean use24HourClock) {
+        final long localMs = nowMs + homeOffsets.getOffset(nowMs);
+        final int hourOfDay = (int) (localMs / HOUR_MS % 24);
+
+        mHomeHour = displayHour(hourOfDay, use24HourClock);
+    }
+
+    /**
+     * Maps an hour of the day (0 - 23) to the hour shown on the face: unchanged on a 24-hour
+     * clock, 1 - 12 otherwise.
+     */
+    public static int displayHour(int hourOfDay, boolean use24HourClock) {
+        if (use24HourClock) {
+            return hourOfDay;
+        }
+
+        final int hour = hourOfDay % 12;
+        return hour != 0 ? hour : 12;
+    }
+
+    public int getHour() {
+        return mHour;
+    }
+
+    /**
+     * Returns the hour of the day (0 - 23), whatever the clock format.
+     */
+    public int getHourOfDay() {
+        return mHourOfDay;
+    }
+
+    public int getMinute() {
+        return mMinute;
+    }
+
+    public int getSecond() {
+        return mSecond;
+    }
+
+    public int getMillisecond() {
+        return mMillisecond;
+    }
+
+    public int getDayOfMonth() {
+        return mDayOfMonth;
+    }
+
+    public int getHomeHour() {
+        return mHomeHour;
+    }
+
+    /**
+     * Returns the position of the seconds satellite in a seconds {@link OrbitTable}.
+     */
+    public int getSecondsPosition() {
+        return OrbitTable.secondsIndex(mSecond, mMillisecond);
+    }
+
+    /**
+     * Returns a key that changes exactly when the local day changes.
+     */
+    public int getDayKey() {
+        return mDayKey;
+    }
+
+    /**
+     * Returns a key that changes exactly when the local minute (or day) changes, used to decide
+     * when once-a-minute content must be redrawn.
+     */
+    public long getMinuteKey() {
+        return mMinuteKey;
+    }
+}
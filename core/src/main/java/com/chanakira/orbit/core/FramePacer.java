@@ -0,0 +1,63 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Picks the display frames to draw at a fixed rate below the display's, e.g. 15 or 30 fps on a
+ * 60 Hz display, from the vsync timestamps.
+ *
+ * Frames are placed on a grid of {@code 1 / fps} intervals. When the vsync callbacks fall
+ * behind, the missed slots are dropped (and counted) and the next frame lands on the next grid
+ * slot, rather than trying to catch up with a burst of frames.
+ */
+public class FramePacer {
+
+    /* Vsync timestamps jitter; a frame this close to its slot is considered on time. */
+    private static final long SLACK_NANOS = 4000000L;
+
+    private long mIntervalNanos;
+    private long mNextFrameNanos;
+
+    private long mFrameCount;
+    private long mDroppedFrameCount;
+
+    public FramePacer(int framesPerSecond) {
+        setFramesPerSecond(framesPerSecond);
+    }
+
+    public void setFramesPerSecond(int framesPerSecond) {
+        mIntervalNanos = 1000000000L / framesPerSecond;
+    }
+
+    /**
+     * Starts a new grid at the next vsync, e.g. after the frames were stopped for a while, so
+     * the pause does not count as dropped frames.
+     */
+    public void restart() {
+        mNextFrameNanos = 0;
+    }
+
+    /**
+     * Returns whether the display frame at {@code frameTimeNanos} should be drawn.
+     */
+    public boolean onVsync(long frameTimeNanos) {
+        if (frameTimeNanos + SLACK_NANOS < mNextFrameNanos) {
+            return false;
+        }
+
+        if (mNextFrameNanos != 0) {
+            mDroppedFrameCount += (frameTimeNanos + SLACK_NANOS - mNextFrameNanos) / mIntervalNanos;
+        }
+
+        /* Align the next frame to the interval grid, skipping any slots we are behind on. */
+        mNextFrameNanos = ((frameTimeNanos + SLACK_NANOS) / mIntervalNanos + 1) * mIntervalNanos;
+        mFrameCount++;
+        return true;
+    }
+
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    public long getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+}
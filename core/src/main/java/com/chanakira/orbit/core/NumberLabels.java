@@ -0,0 +1,35 @@
+package com.chanakira.orbit.core;
+
+import java.util.Locale;
+
+/**
+ * Pre-built satellite label strings, so drawing a number never has to format one.
+ */
+public class NumberLabels {
+
+    /* Satellites show hours (0 - 23), minutes and seconds (0 - 59). */
+    public static final int LABEL_COUNT = 60;
+
+    private final Locale mLocale;
+    private final String[] mLabels;
+
+    public NumberLabels(Locale locale) {
+        mLocale = locale;
+        mLabels = new String[LABEL_COUNT];
+
+        for (int i = 0; i < LABEL_COUNT; i++) {
+            mLabels[i] = String.format(locale, "%d", i);
+        }
+    }
+
+    /**
+     * Returns whether these labels were formatted for the given locale.
+     */
+    public boolean isFor(Locale locale) {
+        return mLocale.equals(locale);
+    }
+
+    public String get(int number) {
+        return mLabels[number];
+    }
+}
@@ -0,0 +1,203 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Immutable snapshot of the user's face configuration. A change produces a new snapshot through
+ * {@link Builder}, so the engine can tell whether anything changed with a reference check.
+ */
+public final class OrbitConfig {
+
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    /**
+     * The configuration of a face that has never been customized.
+     */
+    public static final OrbitConfig DEFAULT = new Builder().build();
+
+    private final boolean mUse24HourClock;
+    private final int mBackgroundColor;
+    private final int mSatelliteColor;
+    private final int mTextColor;
+    private final boolean mShowHourOutline;
+    private final boolean mShowMinuteOutline;
+    private final boolean mShowSecondOutline;
+    private final boolean mUseLabelAtlas;
+    private final int mSweepFramesPerSecond;
+    private final boolean mShowDebugOverlay;
+    private final int mBackgroundPhotoVersion;
+    private final String mHomeTimeZoneId;
+
+    private OrbitConfig(Builder builder) {
+        mUse24HourClock = builder.mUse24HourClock;
+        mBackgroundColor = builder.mBackgroundColor;
+        mSatelliteColor = builder.mSatelliteColor;
+        mTextColor = builder.mTextColor;
+        mShowHourOutline = builder.mShowHourOutline;
+        mShowMinuteOutline = builder.mShowMinuteOutline;
+        mShowSecondOutline = builder.mShowSecondOutline;
+        mUseLabelAtlas = builder.mUseLabelAtlas;
+        mSweepFramesPerSecond = builder.mSweepFramesPerSecond;
+        mShowDebugOverlay = builder.mShowDebugOverlay;
+        mBackgroundPhotoVersion = builder.mBackgroundPhotoVersion;
+        mHomeTimeZoneId = builder.mHomeTimeZoneId;
+    }
+
+    public boolean use24HourClock() {
+        return mUse24HourClock;
+    }
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    public int getSatelliteColor() {
+        return mSatelliteColor;
+    }
+
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    public boolean showHourOutline() {
+        return mShowHourOutline;
+    }
+
+    public boolean showMinuteOutline() {
+        return mShowMinuteOutline;
+    }
+
+    public boolean showSecondOutline() {
+        return mShowSecondOutline;
+    }
+
+    public boolean useLabelAtlas() {
+        return mUseLabelAtlas;
+    }
+
+    /**
+     * Returns the smooth-sweep frame rate of the seconds satellite, or 0 to tick once a second.
+     */
+    public int getSweepFramesPerSecond() {
+        return mSweepFramesPerSecond;
+    }
+
+    public boolean showDebugOverlay() {
+        return mShowDebugOverlay;
+    }
+
+    /**
+     * Returns the version of the photo to show as the background, or 0 to show the background
+     * color. A new photo gets a new version.
+     */
+    public int getBackgroundPhotoVersion() {
+        return mBackgroundPhotoVersion;
+    }
+
+    /**
+     * Returns the ID of the time zone shown by the home-time satellite, or an empty string to
+     * hide the satellite.
+     */
+    public String getHomeTimeZoneId() {
+        return mHomeTimeZoneId;
+    }
+
+    public static class Builder {
+        private boolean mUse24HourClock = false;
+        private int mBackgroundColor = BLACK;
+        private int mSatelliteColor = WHITE;
+        private int mTextColor = WHITE;
+        private boolean mShowHourOutline = true;
+        private boolean mShowMinuteOutline = false;
+        private boolean mShowSecondOutline = false;
+        private boolean mUseLabelAtlas = false;
+        private int mSweepFramesPerSecond = 0;
+        private boolean mShowDebugOverlay = false;
+        private int mBackgroundPhotoVersion = 0;
+        private String mHomeTimeZoneId = "";
+
+        public Builder() {
+        }
+
+        /**
+         * Starts from the values of an existing snapshot.
+         */
+        public Builder(OrbitConfig config) {
+            mUse24HourClock = config.mUse24HourClock;
+            mBackgroundColor = config.mBackgroundColor;
+            mSatelliteColor = config.mSatelliteColor;
+            mTextColor = config.mTextColor;
+            mShowHourOutline = config.mShowHourOutline;
+            mShowMinuteOutline = config.mShowMinuteOutline;
+            mShowSecondOutline = config.mShowSecondOutline;
+            mUseLabelAtlas = config.mUseLabelAtlas;
+            mSweepFramesPerSecond = config.mSweepFramesPerSecond;
+            mShowDebugOverlay = config.mShowDebugOverlay;
+            mBackgroundPhotoVersion = config.mBackgroundPhotoVersion;
+            mHomeTimeZoneId = config.mHomeTimeZoneId;
+        }
+
+        public Builder setUse24HourClock(boolean use24HourClock) {
+            mUse24HourClock = use24HourClock;
+            return this;
+        }
+
+        public Builder setBackgroundColor(int backgroundColor) {
+            mBackgroundColor = backgroundColor;
+            return this;
+        }
+
+        public Builder setSatelliteColor(int satelliteColor) {
+            mSatelliteColor = satelliteColor;
+            return this;
+        }
+
+        public Builder setTextColor(int textColor) {
+            mTextColor = textColor;
+            return this;
+        }
+
+        public Builder setShowHourOutline(boolean showHourOutline) {
+            mShowHourOutline = showHourOutline;
+            return this;
+        }
+
+        public Builder setShowMinuteOutline(boolean showMinuteOutline) {
+            mShowMinuteOutline = showMinuteOutline;
+            return this;
+        }
+
+        public Builder setShowSecondOutline(boolean showSecondOutline) {
+            mShowSecondOutline = showSecondOutline;
+            return this;
+        }
+
+        public Builder setUseLabelAtlas(boolean useLabelAtlas) {
+            mUseLabelAtlas = useLabelAtlas;
+            return this;
+        }
+
+        public Builder setSweepFramesPerSecond(int sweepFramesPerSecond) {
+            mSweepFramesPerSecond = sweepFramesPerSecond;
+            return this;
+        }
+
+        public Builder setShowDebugOverlay(boolean showDebugOverlay) {
+            mShowDebugOverlay = showDebugOverlay;
+            return this;
+        }
+
+        public Builder setBackgroundPhotoVersion(int backgroundPhotoVersion) {
+            mBackgroundPhotoVersion = backgroundPhotoVersion;
+            return this;
+        }
+
+        public Builder setHomeTimeZoneId(String homeTimeZoneId) {
+            mHomeTimeZoneId = homeTimeZoneId;
+            return this;
+        }
+
+        public OrbitConfig build() {
+            return new OrbitConfig(this);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Precomputed satellite positions around one orbit. Positions are evenly spaced clockwise from
+ * 12 o'clock, so drawing a satellite is an array lookup instead of per-frame trig.
+ */
+public class OrbitTable {
+
+    /* Sub-second positions for the seconds orbit; one per frame when sweeping at 60 fps. */
+    public static final int STEPS_PER_SECOND = 60;
+
+    private final float[] mX;
+    private final float[] mY;
+    private final float mTextBaselineOffset;
+
+    /**
+     * @param radius distance of the satellites from the center
+     * @param positions number of evenly spaced positions around the orbit
+     * @param textBaselineOffset offset from the satellite center to the baseline of its label,
+     *                           i.e. {@code -(descent + ascent) / 2} of the label paint
+     */
+    public OrbitTable(float centerX, float centerY, float radius, int positions, float textBaselineOffset) {
+        mX = new float[positions];
+        mY = new float[positions];
+        mTextBaselineOffset = textBaselineOffset;
+
+        for (int i = 0; i < positions; i++) {
+            final double angle = Math.toRadians(i * 360.0 / positions);
+            mX[i] = (float) (centerX + radius * Math.sin(angle));
+            mY[i] = (float) (centerY - radius * Math.cos(angle));
+        }
+    }
+
+    /**
+     * Returns the position index of the seconds satellite for a seconds orbit table.
+     */
+    public static int secondsIndex(int seconds, int millis) {
+        return seconds * STEPS_PER_SECOND + millis * STEPS_PER_SECOND / 1000;
+    }
+
+    public float getX(int index) {
+        return mX[index];
+    }
+
+    public float getY(int index) {
+        return mY[index];
+    }
+
+    public float getTextY(int index) {
+        return mY[index] + mTextBaselineOffset;
+    }
+}
@@ -0,0 +1,315 @@
+package com.chanakira.orbit.core;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Keeps the interactive face updating at the rate chosen by a {@link RefreshPolicy}: timer
+ * ticks through the {@link WakeupScheduler} once a second or once a minute, or vsync-aligned
+ * frames for the smooth sweep and for the burst of frames that follows starting the stopwatch.
+ * It also sets the redraw budget that goes with the rate.
+ *
+ * The face only reports what changed; every signal the rate depends on is kept here, so the
+ * whole decision can be replayed against a {@link SimulatedTimeSource}.
+ *
+ * Not thread-safe; must be used from the thread that draws the face.
+ */
+public class RefreshController {
+
+    public interface Callback {
+        /**
+         * Starts vsync-aligned frames at {@code framesPerSecond}, each requesting a
+         * {@link WakeupScheduler#SOURCE_SWEEP} redraw.
+         */
+        void startFrames(int framesPerSecond);
+
+        void stopFrames();
+
+        /**
+         * Reports the start or the end of a burst.
+         */
+        void onBurstChanged(boolean bursting);
+    }
+
+    /* Frame rate and length of the burst of frames that follows starting the stopwatch. */
+    public static final int BURST_FRAMES_PER_SECOND = 30;
+    public static final long BURST_DURATION_MS = 10 * 1000L;
+
+    /*
+     * Redraws per hour allowed for taps, time zone, preference and system changes on top of the
+     * timer, time tick or sweep frames.
+     */
+    public static final int EVENT_REDRAWS_PER_HOUR = 120;
+
+    private static final long SECOND_MS = 1000;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+
+    private final TimeSource mTimeSource;
+    private final RefreshPolicy mRefreshPolicy;
+    private final WakeupScheduler mWakeupScheduler;
+    private final Callback mCallback;
+
+    private boolean mVisible;
+    private boolean mAmbient;
+    private boolean mMuteMode;
+    private boolean mBatteryLow;
+    private int mSweepFramesPerSecond;
+    private long mLastMotionMs;
+
+    /* What runs now: timer ticks at an interval, or frames at a rate; 0 if not running. */
+    private long mTickIntervalMs;
+    private int mFramesPerSecond;
+
+    private int mRate = RefreshPolicy.RATE_SECOND;
+    private final long[] mDecisionCounts = new long[RefreshPolicy.RATE_COUNT];
+    private long mSwitchCount;
+
+    private boolean mStopwatchRunning;
+    private long mBurstEndMs;
+    private boolean mBursting;
+    private long mBurstStartMs;
+    private long mBurstCount;
+    private long mBurstFrameCount;
+    private long mBurstTotalMs;
+    private long mBurstLongestMs;
+
+    public RefreshController(TimeSource timeSource, RefreshPolicy refreshPolicy, WakeupScheduler wakeupScheduler,
+                             Callback callback) {
+        mTimeSource = timeSource;
+        mRefreshPolicy = refreshPolicy;
+        mWakeupScheduler = wakeupScheduler;
+        mCallback = callback;
+        mLastMotionMs = mTimeSource.uptimeMillis();
+    }
+
+    public void setVisible(boolean visible) {
+        if (visible && !mVisible) {
+            /* Coming back to the face, e.g. from an app, means someone is looking at it. */
+            mLastMotionMs = mTimeSource.uptimeMillis();
+        }
+        mVisible = visible;
+        update();
+    }
+
+    public void setAmbient(boolean ambient) {
+        mAmbient = ambient;
+        if (!ambient) {
+            /* Leaving ambient means the wrist was raised or the screen touched. */
+            mLastMotionMs = mTimeSource.uptimeMillis();
+        }
+        update();
+    }
+
+    public void setMuteMode(boolean muteMode) {
+        if (muteMode != mMuteMode) {
+            mMuteMode = muteMode;
+            update();
+        }
+    }
+
+    public void setBatteryLow(boolean batteryLow) {
+        if (batteryLow != mBatteryLow) {
+            mBatteryLow = batteryLow;
+            update();
+        }
+    }
+
+    /**
+     * Sets the smooth-sweep frame rate; 0 keeps the classic once-a-second tick.
+     */
+    public void setSweepFramesPerSecond(int framesPerSecond) {
+        if (framesPerSecond != mSweepFramesPerSecond) {
+            mSweepFramesPerSecond = framesPerSecond;
+            update();
+        }
+    }
+
+    /**
+     * Resets the stillness timer, bringing the seconds back if they were paused. Besides the
+     * explicit calls for taps and motion, becoming visible and leaving ambient, which is how a
+     * raised wrist shows up, reset it too.
+     */
+    public void onMotion() {
+        mLastMotionMs = mTimeSource.uptimeMillis();
+        if (isRunning() && mRate == RefreshPolicy.RATE_MINUTE) {
+            update();
+        }
+    }
+
+    /**
+     * Reports that the stopwatch started or stopped; starting it also starts a burst.
+     */
+    public void setStopwatchRunning(boolean running) {
+        mStopwatchRunning = running;
+        if (running) {
+            mBurstEndMs = mTimeSource.uptimeMillis() + BURST_DURATION_MS;
+        }
+        update();
+    }
+
+    /**
+     * Must be called at the start of every frame. Stillness and the end of a burst are not
+     * events, so every frame checks whether they changed the rate.
+     */
+    public void onFrame() {
+        if (mBursting) {
+            mBurstFrameCount++;
+        }
+        if (isRunning() && (selectRate() != mRate || shouldBurst() != mBursting)) {
+            update();
+        }
+    }
+
+    /**
+     * Returns the current {@code RATE_} constant of the {@link RefreshPolicy}.
+     */
+    public int getRate() {
+        return mRate;
+    }
+
+    public boolean isBursting() {
+        return mBursting;
+    }
+
+    /**
+     * Returns whether the face updates on its own, which it only does while visible and
+     * interactive.
+     */
+    public boolean isRunning() {
+        return mVisible && !mAmbient;
+    }
+
+    public long getSwitchCount() {
+        return mSwitchCount;
+    }
+
+    public long getBurstFrameCount() {
+        return mBurstFrameCount;
+    }
+
+    /**
+     * Switches to the timer ticks or the frames the current signals call for. Whatever already
+     * runs at the right interval or rate is left alone, since restarting it costs an extra
+     * wake-up and moves the tick phase.
+     */
+    private void update() {
+        long tickIntervalMs = 0;
+        int framesPerSecond = 0;
+        int deadlineRedrawsPerHour = 60;
+        if (isRunning()) {
+            final int rate = selectRate();
+            mDecisionCounts[rate]++;
+            if (rate != mRate) {
+                mSwitchCount++;
+                mRate = rate;
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SYSTEM);
+            }
+
+            if (shouldBurst()) {
+                framesPerSecond = BURST_FRAMES_PER_SECOND;
+                deadlineRedrawsPerHour = BURST_FRAMES_PER_SECOND * 3600;
+            } else {
+                switch (rate) {
+                    case RefreshPolicy.RATE_SWEEP:
+                        framesPerSecond = mSweepFramesPerSecond;
+                        deadlineRedrawsPerHour = mSweepFramesPerSecond * 3600;
+                        break;
+                    case RefreshPolicy.RATE_SECOND:
+                        tickIntervalMs = SECOND_MS;
+                        deadlineRedrawsPerHour = 3600;
+                        break;
+                    case RefreshPolicy.RATE_MINUTE:
+                        tickIntervalMs = MINUTE_MS;
+                        break;
+                }
+            }
+        } else {
+            /* A burst never outlives the interactive face, even if it comes back soon. */
+            mBurstEndMs = 0;
+        }
+
+        /* A face that is not running also forgets any redraw it asked for, so stop it anyway. */
+        if (tickIntervalMs == 0 && (mTickIntervalMs != 0 || !isRunning())) {
+            mWakeupScheduler.stopTicks();
+        }
+        if (framesPerSecond != mFramesPerSecond) {
+            mCallback.stopFrames();
+            if (framesPerSecond > 0) {
+                mCallback.startFrames(framesPerSecond);
+            }
+        }
+        if (tickIntervalMs != 0) {
+            mWakeupScheduler.startTicks(tickIntervalMs);
+        }
+        mTickIntervalMs = tickIntervalMs;
+        mFramesPerSecond = framesPerSecond;
+
+        setBursting(shouldBurst());
+        mWakeupScheduler.setBudget(deadlineRedrawsPerHour + EVENT_REDRAWS_PER_HOUR);
+    }
+
+    private int selectRate() {
+        /* A running stopwatch is being watched, however still the wrist is. */
+        final long stillMs = mStopwatchRunning ? 0 : mTimeSource.uptimeMillis() - mLastMotionMs;
+        final int rate = mRefreshPolicy.selectRate(mSweepFramesPerSecond > 0, mMuteMode, mBatteryLow, stillMs);
+
+        /* Its readout shows seconds, which per-minute ticks would leave standing. */
+        return mStopwatchRunning && rate == RefreshPolicy.RATE_MINUTE ? RefreshPolicy.RATE_SECOND : rate;
+    }
+
+    private boolean shouldBurst() {
+        return mStopwatchRunning && mTimeSource.uptimeMillis() < mBurstEndMs;
+    }
+
+    /**
+     * Counts bursts and their length.
+     */
+    private void setBursting(boolean bursting) {
+        if (bursting == mBursting) {
+            return;
+        }
+        mBursting = bursting;
+        mCallback.onBurstChanged(bursting);
+
+        final long now = mTimeSource.uptimeMillis();
+        if (bursting) {
+            mBurstCount++;
+            mBurstStartMs = now;
+        } else {
+            final long durationMs = now - mBurstStartMs;
+            mBurstTotalMs += durationMs;
+            mBurstLongestMs = Math.max(mBurstLongestMs, durationMs);
+        }
+    }
+
+    /**
+     * Clears the burst statistics; the rate decisions are kept.
+     */
+    public void reset() {
+        mBurstCount = mBursting ? 1 : 0;
+        mBurstStartMs = mTimeSource.uptimeMillis();
+        mBurstFrameCount = 0;
+        mBurstTotalMs = 0;
+        mBurstLongestMs = 0;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        final long burstMs = mBurstTotalMs + (mBursting ? mTimeSource.uptimeMillis() - mBurstStartMs : 0);
+        writer.println(String.format(Locale.US, "%sBursts: %d (%dms, longest %dms, %d frames, %d fps)",
+                prefix,
+                mBurstCount,
+                burstMs,
+                mBurstLongestMs,
+                mBurstFrameCount,
+                burstMs > 0 ? mBurstFrameCount * 1000 / burstMs : 0));
+        writer.println(String.format(Locale.US,
+                "%sRefresh rate: %d (decisions sweep %d, second %d, minute %d, switches %d, batteryLow %b)",
+                prefix,
+                mRate,
+                mDecisionCounts[RefreshPolicy.RATE_SWEEP],
+                mDecisionCounts[RefreshPolicy.RATE_SECOND],
+                mDecisionCounts[RefreshPolicy.RATE_MINUTE],
+                mSwitchCount,
+                mBatteryLow));
+    }
+}
@@ -0,0 +1,27 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Chooses how often the interactive face is redrawn, from the signals that tell whether the
+ * seconds satellite is worth updating.
+ */
+public interface RefreshPolicy {
+
+    /* Smooth sweep at the configured frame rate. */
+    int RATE_SWEEP = 0;
+    /* Once a second, on the second. */
+    int RATE_SECOND = 1;
+    /* Once a minute, on the minute; the seconds satellite is hidden. */
+    int RATE_MINUTE = 2;
+
+    int RATE_COUNT = 3;
+
+    /**
+     * Returns one of the {@code RATE_} constants.
+     *
+     * @param sweepEnabled whether the smooth-sweep mode is configured
+     * @param muteMode whether the interruption filter dims the face
+     * @param batteryLow whether the battery is low
+     * @param stillMillis how long the wrist has been still
+     */
+    int selectRate(boolean sweepEnabled, boolean muteMode, boolean batteryLow, long stillMillis);
+}
@@ -0,0 +1,173 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Describes one satellite of the face: which value it shows, where its orbit runs, how large it
+ * is, which paint draws it and when it gets an outline. The face is laid out from a list of
+ * specs, so adding an orbit is adding a spec.
+ */
+public final class SatelliteSpec {
+
+    /*
+     * The value a satellite shows, which also decides where on its orbit it sits. The home hour
+     * has a fixed slot at 12 o'clock of its orbit.
+     */
+    public static final int SOURCE_HOUR = 0;
+    public static final int SOURCE_MINUTE = 1;
+    public static final int SOURCE_SECOND = 2;
+    public static final int SOURCE_HOUR_OF_DAY = 3;
+    public static final int SOURCE_DAY_OF_MONTH = 4;
+    public static final int SOURCE_HOME_HOUR = 5;
+
+    /* When a satellite is outlined; the setting-based ones follow the configuration. */
+    public static final int OUTLINE_NEVER = 0;
+    public static final int OUTLINE_ALWAYS = 1;
+    public static final int OUTLINE_HOUR_SETTING = 2;
+    public static final int OUTLINE_MINUTE_SETTING = 3;
+    public static final int OUTLINE_SECOND_SETTING = 4;
+
+    private final int mSource;
+    private final float mDistance;
+    private final float mRadiusRatio;
+    private final int mRole;
+    private final int mOutline;
+
+    /**
+     * @param source      one of the {@code SOURCE_} constants
+     * @param distance    distance of the orbit from the center, as a ratio of half the surface
+     *                    width; 0 keeps the satellite in the center
+     * @param radiusRatio radius of the satellite, as a ratio of half the surface width
+     * @param role        the paint role that draws the satellite
+     * @param outline     one of the {@code OUTLINE_} constants
+     */
+    public SatelliteSpec(int source, float distance, float radiusRatio, int role, int outline) {
+        mSource = source;
+        mDistance = distance;
+        mRadiusRatio = radiusRatio;
+        mRole = role;
+        mOutline = outline;
+    }
+
+    public int getSource() {
+        return mSource;
+    }
+
+    public float getDistance() {
+        return mDistance;
+    }
+
+    public float getRadiusRatio() {
+        return mRadiusRatio;
+    }
+
+    public int getRole() {
+        return mRole;
+    }
+
+    /**
+     * Returns whether the satellite shows seconds, and so is hidden when the face only updates
+     * once a minute.
+     */
+    public boolean isSeconds() {
+        return mSource == SOURCE_SECOND;
+    }
+
+    /**
+     * Returns the number of positions on the orbit, for {@link FaceGeometry#newOrbit}.
+     */
+    public int getPositionCount() {
+        if (mDistance == 0) {
+            return 1;
+        }
+
+        switch (mSource) {
+            case SOURCE_HOUR:
+                return 12;
+            case SOURCE_MINUTE:
+                return 60;
+            case SOURCE_SECOND:
+                return 60 * OrbitTable.STEPS_PER_SECOND;
+            case SOURCE_HOUR_OF_DAY:
+                return 24;
+            case SOURCE_HOME_HOUR:
+                return 1;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns one more than the largest number the satellite can show, so that labels 0 to
+     * {@code getValueCount() - 1} cover every value.
+     */
+    public int getValueCount() {
+        switch (mSource) {
+            case SOURCE_MINUTE:
+            case SOURCE_SECOND:
+                return 60;
+            case SOURCE_DAY_OF_MONTH:
+                return 32;
+            default:
+                /* Hours are shown on a 24-hour clock if the user prefers it. */
+                return 24;
+        }
+    }
+
+    /**
+     * Returns the number shown on the satellite.
+     */
+    public int getValue(FaceState state) {
+        switch (mSource) {
+            case SOURCE_HOUR:
+                return state.getHour();
+            case SOURCE_MINUTE:
+                return state.getMinute();
+            case SOURCE_SECOND:
+                return state.getSecond();
+            case SOURCE_HOUR_OF_DAY:
+                return state.getHourOfDay();
+            case SOURCE_HOME_HOUR:
+                return state.getHomeHour();
+            default:
+                return state.getDayOfMonth();
+        }
+    }
+
+    /**
+     * Returns the position of the satellite in its orbit table.
+     */
+    public int getPosition(FaceState state) {
+        if (mDistance == 0) {
+            return 0;
+        }
+
+        switch (mSource) {
+            case SOURCE_HOUR:
+                return state.getHourOfDay() % 12;
+            case SOURCE_MINUTE:
+                return state.getMinute();
+            case SOURCE_SECOND:
+                return state.getSecondsPosition();
+            case SOURCE_HOUR_OF_DAY:
+                return state.getHourOfDay();
+            case SOURCE_HOME_HOUR:
+                return 0;
+            default:
+                return state.getDayOfMonth() - 1;
+        }
+    }
+
+    public boolean showOutline(OrbitConfig config) {
+        switch (mOutline) {
+            case OUTLINE_ALWAYS:
+                return true;
+            case OUTLINE_HOUR_SETTING:
+                return config.showHourOutline();
+            case OUTLINE_MINUTE_SETTING:
+                return config.showMinuteOutline();
+            case OUTLINE_SECOND_SETTING:
+                return config.showSecondOutline();
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.chanakira.orbit.core;
+
+/**
+ * A {@link TimeSource} that only moves when told to, for replaying hours of frames in moments.
+ * All clocks advance together, except that the uptime clock stops while the device sleeps; the
+ * wall clock can also jump on its own, as it does when the user or the network sets the time.
+ */
+public class SimulatedTimeSource implements TimeSource {
+
+    private long mCurrentTimeMillis;
+    private long mUptimeMillis;
+    private long mElapsedRealtime;
+
+    public SimulatedTimeSource(long currentTimeMillis) {
+        mCurrentTimeMillis = currentTimeMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return mCurrentTimeMillis;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return mUptimeMillis;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return mElapsedRealtime;
+    }
+
+    /**
+     * Moves all clocks forward by {@code millis}.
+     */
+    public void advance(long millis) {
+        mCurrentTimeMillis += millis;
+        mUptimeMillis += millis;
+        mElapsedRealtime += millis;
+    }
+
+    /**
+     * Moves the clocks forward by {@code millis} of deep sleep, which the uptime clock misses.
+     */
+    public void sleep(long millis) {
+        mCurrentTimeMillis += millis;
+        mElapsedRealtime += millis;
+    }
+
+    /**
+     * Sets the wall clock without moving the uptime clock.
+     */
+    public void setCurrentTimeMillis(long currentTimeMillis) {
+        mCurrentTimeMillis = currentTimeMillis;
+    }
+}
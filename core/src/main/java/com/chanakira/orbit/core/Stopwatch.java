@@ -0,0 +1,104 @@
+package com.chanakira.orbit.core;
+
+/**
+ * A stopwatch driven by taps: the first tap starts it, the second stops it and the third clears
+ * it. Times are in milliseconds of a clock that keeps running in deep sleep, such as
+ * {@link TimeSource#elapsedRealtime()}.
+ */
+public class Stopwatch {
+
+    public static final int STATE_IDLE = 0;
+    public static final int STATE_RUNNING = 1;
+    public static final int STATE_STOPPED = 2;
+
+    /* Enough for "mmmmmm:ss.hh", which is more than a year. */
+    public static final int MAX_TEXT_LENGTH = 12;
+
+    private int mState = STATE_IDLE;
+    private long mStartMs;
+    private long mElapsedMs;
+
+    public int getState() {
+        return mState;
+    }
+
+    public boolean isRunning() {
+        return mState == STATE_RUNNING;
+    }
+
+    public boolean isIdle() {
+        return mState == STATE_IDLE;
+    }
+
+    /**
+     * Moves to the next state, as a tap does: idle to running, running to stopped and stopped
+     * back to idle.
+     *
+     * @return the new state
+     */
+    public int advance(long nowMs) {
+        switch (mState) {
+            case STATE_IDLE:
+                mStartMs = nowMs;
+                mElapsedMs = 0;
+                mState = STATE_RUNNING;
+                break;
+            case STATE_RUNNING:
+                mElapsedMs = nowMs - mStartMs;
+                mState = STATE_STOPPED;
+                break;
+            default:
+                mElapsedMs = 0;
+                mState = STATE_IDLE;
+                break;
+        }
+        return mState;
+    }
+
+    /**
+     * Returns the time on the stopwatch at {@code nowMs}.
+     */
+    public long getElapsedMillis(long nowMs) {
+        return mState == STATE_RUNNING ? nowMs - mStartMs : mElapsedMs;
+    }
+
+    /**
+     * Formats {@code elapsedMs} as minutes, seconds and hundredths ("m:ss.hh") into {@code out},
+     * which must hold {@link #MAX_TEXT_LENGTH} chars, with digits starting at {@code zeroDigit}.
+     *
+     * @return the number of chars written
+     */
+    public static int format(long elapsedMs, char zeroDigit, char[] out) {
+        return format(elapsedMs, true, zeroDigit, out);
+    }
+
+    /**
+     * Formats {@code elapsedMs} as {@link #format(long, char, char[])} does, leaving out the
+     * hundredths ("m:ss") unless {@code showHundredths} is set.
+     */
+    public static int format(long elapsedMs, boolean showHundredths, char zeroDigit, char[] out) {
+        final long hundredths = elapsedMs / 10;
+        long minutes = hundredths / 6000;
+        final int seconds = (int) (hundredths / 100 % 60);
+        final int fraction = (int) (hundredths % 100);
+
+        /* Minutes have no fixed width, so write them backwards from the end first. */
+        int length = 0;
+        do {
+            out[MAX_TEXT_LENGTH - 1 - length] = (char) (zeroDigit + minutes % 10);
+            minutes /= 10;
+            length++;
+        } while (minutes > 0 && length < MAX_TEXT_LENGTH - 6);
+        System.arraycopy(out, MAX_TEXT_LENGTH - length, out, 0, length);
+
+        out[length++] = ':';
+        out[length++] = (char) (zeroDigit + seconds / 10);
+        out[length++] = (char) (zeroDigit + seconds % 10);
+        if (showHundredths) {
+            out[length++] = '.';
+            out[length++] = (char) (zeroDigit + fraction / 10);
+            out[length++] = (char) (zeroDigit + fraction % 10);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,26 @@
+package com.chanakira.orbit.core;
+
+/**
+ * Where the face reads the time from. The engine never reads the system clocks directly, so it
+ * can be driven by a {@link SimulatedTimeSource} faster than real time.
+ */
+public interface TimeSource {
+
+    /**
+     * Returns the wall-clock time in milliseconds since the epoch, as
+     * {@link System#currentTimeMillis()}.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Returns the monotonic time in milliseconds that does not advance in deep sleep, as
+     * {@code android.os.SystemClock.uptimeMillis()}.
+     */
+    long uptimeMillis();
+
+    /**
+     * Returns the monotonic time in milliseconds that keeps advancing in deep sleep, as
+     * {@code android.os.SystemClock.elapsedRealtime()}.
+     */
+    long elapsedRealtime();
+}
@@ -0,0 +1,294 @@
+package com.chanakira.orbit.core;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Single entry point for everything that wakes the face up and asks for a redraw, so that those
+ * requests can be merged and accounted for.
+ *
+ * Deadline sources (the interactive timer, the ambient time tick and sweep frames) always get a
+ * frame. Event sources (taps, time zone broadcasts, preference, complication and system changes)
+ * are merged into the next deadline frame if the timer ticks within a second, or once the hourly
+ * redraw budget is used up; otherwise they are drawn right away, so that a tap never waits for a
+ * per-minute tick. A request made while a frame is already pending is merged into that frame.
+ *
+ * Not thread-safe; must be used from the thread that draws the face.
+ */
+public class WakeupScheduler {
+
+    public interface Callback {
+        /**
+         * Asks for a frame to be drawn; the frame must end with {@link #onFrameDrawn()}.
+         */
+        void onRedraw();
+
+        /**
+         * Asks for {@link #onTimer()} to be called in {@code delayMs}, replacing any earlier
+         * request.
+         */
+        void scheduleTimer(long delayMs);
+
+        void cancelTimer();
+
+        /**
+         * Reports how late the timer fired after the boundary it was scheduled for.
+         */
+        void onTimerLatency(long latencyMs);
+    }
+
+    public static final int SOURCE_TIMER = 0;
+    public static final int SOURCE_TIME_TICK = 1;
+    public static final int SOURCE_SWEEP = 2;
+    public static final int SOURCE_TAP = 3;
+    public static final int SOURCE_TIME_ZONE = 4;
+    public static final int SOURCE_CONFIG = 5;
+    public static final int SOURCE_COMPLICATION = 6;
+    public static final int SOURCE_SYSTEM = 7;
+
+    private static final String[] SOURCE_NAMES = {
+            "timer", "time tick", "sweep", "tap", "time zone", "config", "complication", "system"
+    };
+    public static final int SOURCE_COUNT = SOURCE_NAMES.length;
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    /* How long an event redraw may wait for the next tick instead of getting its own frame. */
+    private static final long MAX_COALESCE_DELAY_MS = 1000;
+
+    private final TimeSource mTimeSource;
+    private final Callback mCallback;
+
+    private long mTickIntervalMs;
+    private long mExpectedTickMs;
+    private boolean mTicking;
+
+    private boolean mRedrawPending;
+    private int mPendingSource;
+    private boolean mDeferred;
+    private int mDeferredSource;
+
+    private int mBudgetPerHour = Integer.MAX_VALUE;
+    private int mWindowBudget = Integer.MAX_VALUE;
+    private long mWindowStartMs;
+    private int mWindowRedraws;
+    private long mOverBudgetHourCount;
+
+    private long mStartMs;
+    private final long[] mWakeupCounts = new long[SOURCE_COUNT];
+    private final long[] mRedrawCounts = new long[SOURCE_COUNT];
+    private final long[] mMergedCounts = new long[SOURCE_COUNT];
+
+    public WakeupScheduler(TimeSource timeSource, Callback callback) {
+        mTimeSource = timeSource;
+        mCallback = callback;
+        mStartMs = mTimeSource.uptimeMillis();
+        mWindowStartMs = mStartMs;
+    }
+
+    /**
+     * Limits the redraws per hour that event sources may cause. Deadline sources are not
+     * limited, so the budget should cover them. An hour gets the largest budget set during it,
+     * so that a minute of second ticks does not use up an hour of per-minute ticks.
+     */
+    public void setBudget(int redrawsPerHour) {
+        mWindowBudget = mBudgetPerHour == Integer.MAX_VALUE
+                ? redrawsPerHour : Math.max(mWindowBudget, redrawsPerHour);
+        mBudgetPerHour = redrawsPerHour;
+    }
+
+    /**
+     * Starts the timer, waking up right away and then on every multiple of {@code intervalMs}
+     * of the wall clock. If the timer is already running, it keeps running at the same interval,
+     * or moves to the next boundary of the new one; either way without an extra wake-up, and
+     * without ever shifting the ticks off the boundaries.
+     */
+    public void startTicks(long intervalMs) {
+        if (mTicking && intervalMs == mTickIntervalMs) {
+            return;
+        }
+
+        final boolean wasTicking = mTicking;
+        mTickIntervalMs = intervalMs;
+        mTicking = true;
+        if (wasTicking) {
+            final long timeMs = mTimeSource.currentTimeMillis();
+            mExpectedTickMs = (timeMs / intervalMs + 1) * intervalMs;
+            mCallback.scheduleTimer(mExpectedTickMs - timeMs);
+        } else {
+            mExpectedTickMs = 0;
+            mCallback.scheduleTimer(0);
+        }
+    }
+
+    /**
+     * Stops the timer; a redraw merged into the next tick is made right away instead. A hidden
+     * face may never draw a requested frame, so a pending redraw is forgotten as well.
+     */
+    public void stopTicks() {
+        mCallback.cancelTimer();
+        mExpectedTickMs = 0;
+        mTicking = false;
+        mRedrawPending = false;
+
+        if (mDeferred && !isOverBudget()) {
+            mDeferred = false;
+            redraw(mDeferredSource);
+        }
+    }
+
+    /**
+     * Counts a wake-up that does not need a redraw, e.g. the start of a tap gesture.
+     */
+    public void recordWakeup(int source) {
+        mWakeupCounts[source]++;
+    }
+
+    /**
+     * Counts a wake-up of {@code source} and makes sure a frame including it will be drawn.
+     */
+    public void requestRedraw(int source) {
+        mWakeupCounts[source]++;
+
+        if (mRedrawPending) {
+            mMergedCounts[source]++;
+            return;
+        }
+
+        final boolean deadline = source < SOURCE_TAP;
+        if (!deadline && (isTickDue() || isOverBudget())) {
+            if (!mDeferred) {
+                mDeferred = true;
+                mDeferredSource = source;
+            }
+            mMergedCounts[source]++;
+            return;
+        }
+
+        if (deadline) {
+            mDeferred = false;
+        }
+        redraw(source);
+    }
+
+    private void redraw(int source) {
+        mRedrawPending = true;
+        mPendingSource = source;
+        mCallback.onRedraw();
+    }
+
+    /**
+     * Must be called at the end of every frame, requested or not.
+     */
+    public void onFrameDrawn() {
+        final int source = mRedrawPending ? mPendingSource : SOURCE_SYSTEM;
+        mRedrawPending = false;
+        mRedrawCounts[source]++;
+
+        final long now = mTimeSource.uptimeMillis();
+        if (now - mWindowStartMs >= HOUR_MS) {
+            if (mWindowRedraws > mWindowBudget) {
+                mOverBudgetHourCount++;
+            }
+            mWindowStartMs = now;
+            mWindowRedraws = 0;
+            mWindowBudget = mBudgetPerHour;
+        }
+        mWindowRedraws++;
+    }
+
+    /**
+     * Returns whether the timer ticks within {@link #MAX_COALESCE_DELAY_MS}, or right away after
+     * {@link #startTicks}.
+     */
+    private boolean isTickDue() {
+        return mTicking && mExpectedTickMs - mTimeSource.currentTimeMillis() <= MAX_COALESCE_DELAY_MS;
+    }
+
+    private boolean isOverBudget() {
+        return mWindowRedraws >= mWindowBudget
+                && mTimeSource.uptimeMillis() - mWindowStartMs < HOUR_MS;
+    }
+
+    /**
+     * Called when the timer scheduled through the {@link Callback} fires.
+     */
+    public void onTimer() {
+        if (!mTicking) {
+            return;
+        }
+
+        final long timeMs = mTimeSource.currentTimeMillis();
+        if (mExpectedTickMs != 0) {
+            mCallback.onTimerLatency(timeMs - mExpectedTickMs);
+        }
+
+        requestRedraw(SOURCE_TIMER);
+
+        /*
+         * Schedule on the wall-clock boundary after this one. A tick delivered slightly early
+         * still counts as the expected one, so it never schedules a second tick for the same
+         * boundary; a late one never carries its delay over to the next tick.
+         */
+        final long reachedMs = Math.max(timeMs, mExpectedTickMs);
+        final long nextTickMs = (reachedMs / mTickIntervalMs + 1) * mTickIntervalMs;
+        mExpectedTickMs = nextTickMs;
+        mCallback.scheduleTimer(nextTickMs - timeMs);
+    }
+
+    public long getWakeupCount(int source) {
+        return mWakeupCounts[source];
+    }
+
+    public long getRedrawCount(int source) {
+        return mRedrawCounts[source];
+    }
+
+    /**
+     * Returns the wake-ups of {@code source} that were merged into another frame.
+     */
+    public long getMergedCount(int source) {
+        return mMergedCounts[source];
+    }
+
+    /**
+     * Returns the number of hourly windows that ended with more redraws than the budget.
+     */
+    public long getOverBudgetHourCount() {
+        return mOverBudgetHourCount;
+    }
+
+    public void reset() {
+        for (int source = 0; source < SOURCE_COUNT; source++) {
+            mWakeupCounts[source] = 0;
+            mRedrawCounts[source] = 0;
+            mMergedCounts[source] = 0;
+        }
+        mOverBudgetHourCount = 0;
+        mStartMs = mTimeSource.uptimeMillis();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        final long elapsedMs = Math.max(1, mTimeSource.uptimeMillis() - mStartMs);
+
+        long redraws = 0;
+        for (int source = 0; source < SOURCE_COUNT; source++) {
+            redraws += mRedrawCounts[source];
+            writer.println(String.format(Locale.US, "%s  %s: wakeups=%d redraws=%d merged=%d",
+                    prefix,
+                    SOURCE_NAMES[source],
+                    mWakeupCounts[source],
+                    mRedrawCounts[source],
+                    mMergedCounts[source]));
+        }
+
+        writer.println(String.format(Locale.US,
+                "%sRedraws: %d in %ds (%d/h, budget %d/h, over budget %d h)",
+                prefix,
+                redraws,
+                elapsedMs / 1000,
+                redraws * HOUR_MS / elapsedMs,
+                mBudgetPerHour,
+                mOverBudgetHourCount));
+    }
+}
@@ -0,0 +1,142 @@
+package com.chanakira.orbit.core;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Breaks a timestamp down into the local wall-clock time with integer arithmetic, as a cheap
+ * per-frame replacement for {@link Calendar#setTimeInMillis(long)} and {@link Calendar#get(int)}.
+ *
+ * The local day start and the time zone offset are cached for the span of time in which both
+ * are constant: up to the next local midnight or time zone transition, whichever comes first.
+ * They are only recomputed when a timestamp falls outside that span, or after
+ * {@link #invalidate()} (a time zone or time change).
+ */
+public class WallClock {
+
+    private static final long SECOND_MS = 1000L;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    private final Calendar mCalendar;
+
+    /* The span [mValidFromMs, mValidUntilMs) in which the cached day and offset hold. */
+    private long mValidFromMs;
+    private long mValidUntilMs;
+    private int mOffsetMs;
+    private long mDayStartWallMs;
+    private int mYear;
+    private int mDayOfYear;
+    private int mDayOfMonth;
+
+    private int mMillisOfDay;
+    private long mRecomputeCount;
+
+    public WallClock(TimeZone timeZone) {
+        mCalendar = Calendar.getInstance(timeZone);
+        invalidate();
+    }
+
+    /**
+     * Switches to {@code timeZone}; the next update recomputes the cached day and offset.
+     */
+    public void setTimeZone(TimeZone timeZone) {
+        mCalendar.setTimeZone(timeZone);
+        invalidate();
+    }
+
+    public TimeZone getTimeZone() {
+        return mCalendar.getTimeZone();
+    }
+
+    /**
+     * Forces the next update to recompute the cached day and offset, e.g. after the system time
+     * was changed.
+     */
+    public void invalidate() {
+        mValidFromMs = Long.MAX_VALUE;
+        mValidUntilMs = Long.MIN_VALUE;
+    }
+
+    /**
+     * Breaks {@code nowMs} down into the local time.
+     */
+    public void update(long nowMs) {
+        if (nowMs < mValidFromMs || nowMs >= mValidUntilMs) {
+            recompute(nowMs);
+        }
+        mMillisOfDay = (int) (nowMs + mOffsetMs - mDayStartWallMs);
+    }
+
+    private void recompute(long nowMs) {
+        final TimeZone timeZone = mCalendar.getTimeZone();
+
+        mOffsetMs = timeZone.getOffset(nowMs);
+        final long wallMs = nowMs + mOffsetMs;
+        mDayStartWallMs = wallMs - floorMod(wallMs, DAY_MS);
+
+        /* The day, in UTC, if the offset holds all day; cut short at a transition. */
+        mValidFromMs = mDayStartWallMs - mOffsetMs;
+        mValidUntilMs = mDayStartWallMs + DAY_MS - mOffsetMs;
+        if (timeZone.getOffset(mValidFromMs) != mOffsetMs) {
+            mValidFromMs = ZoneOffsetTable.findTransition(timeZone, mValidFromMs, nowMs);
+        }
+        if (timeZone.getOffset(mValidUntilMs - 1) != mOffsetMs) {
+            mValidUntilMs = ZoneOffsetTable.findTransition(timeZone, nowMs, mValidUntilMs - 1);
+        }
+
+        mCalendar.setTimeInMillis(nowMs);
+        mYear = mCalendar.get(Calendar.YEAR);
+        mDayOfYear = mCalendar.get(Calendar.DAY_OF_YEAR);
+        mDayOfMonth = mCalendar.get(Calendar.DAY_OF_MONTH);
+        mRecomputeCount++;
+    }
+
+    private static long floorMod(long value, long divisor) {
+        final long mod = value % divisor;
+        return mod < 0 ? mod + divisor : mod;
+    }
+
+    public int getHourOfDay() {
+        return (int) (mMillisOfDay / HOUR_MS);
+    }
+
+    public int getMinute() {
+        return (int) (mMillisOfDay % HOUR_MS / MINUTE_MS);
+    }
+
+    public int getSecond() {
+        return (int) (mMillisOfDay % MINUTE_MS / SECOND_MS);
+    }
+
+    public int getMillisecond() {
+        return (int) (mMillisOfDay % SECOND_MS);
+    }
+
+    public int getYear() {
+        return mYear;
+    }
+
+    public int getDayOfYear() {
+        return mDayOfYear;
+    }
+
+    public int getDayOfMonth() {
+        return mDayOfMonth;
+    }
+
+    /**
+     * Returns a calendar set to a time on the current local day, for formatting the date.
+     */
+    public Calendar getCalendar() {
+        return mCalendar;
+    }
+
+    /**
+     * Returns how often the cached day and offset were recomputed.
+     */
+    public long getRecomputeCount() {
+        return mRecomputeCount;
+    }
+}
@@ -0,0 +1,126 @@
+package com.chanakira.orbit.core;
+
+import java.util.TimeZone;
+
+/**
+ * The UTC offsets of a time zone over a limited range of time, as a table of transitions built
+ * once, so that looking up an offset on every frame is a range check rather than a call into
+ * {@link TimeZone}. Lookups are fastest for times that only move forward a little between calls.
+ */
+public final class ZoneOffsetTable {
+
+    /* How far apart the zone is sampled; no zone changes its offset twice within an hour. */
+    private static final long SCAN_STEP_MS = 60 * 60 * 1000L;
+
+    private final TimeZone mTimeZone;
+    private final long mFromMs;
+    private final long mUntilMs;
+
+    /* Offset i applies from mStartsMs[i] until the next start, or until mUntilMs. */
+    private final long[] mStartsMs;
+    private final int[] mOffsets;
+
+    /* The entry of the last lookup. */
+    private int mIndex;
+
+    /**
+     * Builds the table of {@code timeZone} for {@code fromMs} (inclusive) to {@code untilMs}
+     * (exclusive). Calls into {@link TimeZone} once per hour of the range, plus a few times per
+     * transition, so it should be built once and not per frame.
+     */
+    public ZoneOffsetTable(TimeZone timeZone, long fromMs, long untilMs) {
+        mTimeZone = timeZone;
+        mFromMs = fromMs;
+        mUntilMs = untilMs;
+
+        long[] starts = new long[8];
+        int[] offsets = new int[8];
+        int count = 0;
+
+        starts[count] = fromMs;
+        offsets[count] = timeZone.getOffset(fromMs);
+        count++;
+
+        long previousMs = fromMs;
+        while (previousMs < untilMs - 1) {
+            final long sampleMs = Math.min(previousMs + SCAN_STEP_MS, untilMs - 1);
+            final int offset = timeZone.getOffset(sampleMs);
+            if (offset != offsets[count - 1]) {
+                if (count == starts.length) {
+                    final long[] grownStarts = new long[count * 2];
+                    final int[] grownOffsets = new int[count * 2];
+                    System.arraycopy(starts, 0, grownStarts, 0, count);
+                    System.arraycopy(offsets, 0, grownOffsets, 0, count);
+                    starts = grownStarts;
+                    offsets = grownOffsets;
+                }
+                starts[count] = findTransition(timeZone, previousMs, sampleMs);
+                offsets[count] = offset;
+                count++;
+            }
+            previousMs = sampleMs;
+        }
+
+        mStartsMs = new long[count];
+        mOffsets = new int[count];
+        System.arraycopy(starts, 0, mStartsMs, 0, count);
+        System.arraycopy(offsets, 0, mOffsets, 0, count);
+    }
+
+    /**
+     * Returns the first instant in ({@code beforeMs}, {@code afterMs}] that has the offset of
+     * {@code afterMs}, given that {@code beforeMs} has a different one. Shared with
+     * {@link WallClock}, which looks for the transitions around the current time the same way.
+     */
+    static long findTransition(TimeZone timeZone, long beforeMs, long afterMs) {
+        final int offset = timeZone.getOffset(afterMs);
+        while (afterMs - beforeMs > 1) {
+            final long middleMs = beforeMs + (afterMs - beforeMs) / 2;
+            if (timeZone.getOffset(middleMs) == offset) {
+                afterMs = middleMs;
+            } else {
+                beforeMs = middleMs;
+            }
+        }
+        return afterMs;
+    }
+
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /**
+     * Returns whether {@code nowMs} is in the range the table was built for.
+     */
+    public boolean covers(long nowMs) {
+        return nowMs >= mFromMs && nowMs < mUntilMs;
+    }
+
+    /**
+     * Returns the offset from UTC in milliseconds at {@code nowMs}, like
+     * {@link TimeZone#getOffset(long)}. Times the table does not cover are passed on to the
+     * time zone.
+     */
+    public int getOffset(long nowMs) {
+        if (!covers(nowMs)) {
+            return mTimeZone.getOffset(nowMs);
+        }
+
+        int index = mIndex;
+        while (nowMs < mStartsMs[index]) {
+            index--;
+        }
+        while (index + 1 < mStartsMs.length && nowMs >= mStartsMs[index + 1]) {
+            index++;
+        }
+        mIndex = index;
+        return mOffsets[index];
+    }
+
+    /**
+     * Returns the number of offset changes in the range.
+     */
+    public int getTransitionCount() {
+        return mStartsMs.length - 1;
+    }
+}
@@ -0,0 +1,51 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the rate the {@link AdaptiveRefreshPolicy} picks for every combination of its signals.
+ */
+public class AdaptiveRefreshPolicyTest {
+
+    private static final long STILL_THRESHOLD_MS = 5 * 60 * 1000L;
+
+    private final RefreshPolicy mPolicy = new AdaptiveRefreshPolicy(STILL_THRESHOLD_MS);
+
+    @Test
+    public void ticksOnTheSecondByDefault() {
+        assertEquals(RefreshPolicy.RATE_SECOND, mPolicy.selectRate(false, false, false, 0));
+        assertEquals(RefreshPolicy.RATE_SECOND, mPolicy.selectRate(false, false, false, STILL_THRESHOLD_MS - 1));
+    }
+
+    @Test
+    public void sweepsWhenConfigured() {
+        assertEquals(RefreshPolicy.RATE_SWEEP, mPolicy.selectRate(true, false, false, 0));
+        assertEquals(RefreshPolicy.RATE_SWEEP, mPolicy.selectRate(true, false, false, STILL_THRESHOLD_MS - 1));
+    }
+
+    @Test
+    public void dropsToMinutesWhenSecondsAreNotNeeded() {
+        for (int i = 0; i < 16; i++) {
+            final boolean sweepEnabled = (i & 1) != 0;
+            final boolean muteMode = (i & 2) != 0;
+            final boolean batteryLow = (i & 4) != 0;
+            final long stillMillis = (i & 8) != 0 ? STILL_THRESHOLD_MS : 0;
+
+            final int expected;
+            if (muteMode || batteryLow || stillMillis >= STILL_THRESHOLD_MS) {
+                expected = RefreshPolicy.RATE_MINUTE;
+            } else {
+                expected = sweepEnabled ? RefreshPolicy.RATE_SWEEP : RefreshPolicy.RATE_SECOND;
+            }
+            assertEquals("signals " + i, expected, mPolicy.selectRate(sweepEnabled, muteMode, batteryLow, stillMillis));
+        }
+    }
+
+    @Test
+    public void stillnessIsMeasuredFromTheThreshold() {
+        assertEquals(RefreshPolicy.RATE_MINUTE, mPolicy.selectRate(false, false, false, STILL_THRESHOLD_MS));
+        assertEquals(RefreshPolicy.RATE_MINUTE, mPolicy.selectRate(true, false, false, Long.MAX_VALUE));
+    }
+}
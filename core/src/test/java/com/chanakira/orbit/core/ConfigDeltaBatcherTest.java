@@ -0,0 +1,127 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Sends configuration changes through a {@link ConfigDeltaBatcher} into a fake transport that
+ * records every transfer, and checks what reaches it.
+ */
+public class ConfigDeltaBatcherTest {
+
+    private static final long SENDER_ID = 0x5eed;
+
+    /**
+     * Records copies of the deltas sent, as a real transport serializes them.
+     */
+    private static class RecordingTransport implements ConfigDeltaBatcher.Transport {
+        final List<Long> mSenderIds = new ArrayList<>();
+        final List<Long> mVersions = new ArrayList<>();
+        final List<Map<String, Object>> mDeltas = new ArrayList<>();
+
+        @Override
+        public void send(long senderId, long version, Map<String, Object> values) {
+            mSenderIds.add(senderId);
+            mVersions.add(version);
+            mDeltas.add(new HashMap<>(values));
+        }
+    }
+
+    private final RecordingTransport mTransport = new RecordingTransport();
+
+    @Test
+    public void burstIsSentAsOneDelta() {
+        final ConfigDeltaBatcher batcher = new ConfigDeltaBatcher(mTransport, SENDER_ID, 0);
+        for (int i = 0; i < 100; i++) {
+            batcher.putInt("text_color", i);
+        }
+        batcher.putBoolean("show_second_outline", true);
+        batcher.putString("home_time_zone", "Europe/London");
+        batcher.putString("home_time_zone", "Asia/Tokyo");
+        batcher.flush();
+
+        assertEquals(1, mTransport.mDeltas.size());
+        assertEquals(3, mTransport.mDeltas.get(0).size());
+        assertEquals(99, mTransport.mDeltas.get(0).get("text_color"));
+        assertEquals(true, mTransport.mDeltas.get(0).get("show_second_outline"));
+        assertEquals("Asia/Tokyo", mTransport.mDeltas.get(0).get("home_time_zone"));
+        assertEquals(103, batcher.getChangeCount());
+        assertEquals(1, batcher.getTransferCount());
+    }
+
+    @Test
+    public void flushWithoutChangesSendsNothing() {
+        final ConfigDeltaBatcher batcher = new ConfigDeltaBatcher(mTransport, SENDER_ID, 7);
+        batcher.flush();
+        batcher.putInt("text_color", 1);
+        batcher.flush();
+        batcher.flush();
+
+        assertEquals(1, mTransport.mDeltas.size());
+        assertEquals(8, batcher.getVersion());
+        assertFalse(batcher.hasPendingChanges());
+    }
+
+    @Test
+    public void versionsContinueFromTheLastOneSent() {
+        ConfigDeltaBatcher batcher = new ConfigDeltaBatcher(mTransport, SENDER_ID, 0);
+        for (int i = 0; i < 3; i++) {
+            batcher.putInt("background_color", i);
+            batcher.flush();
+        }
+
+        /* The sender restarts, with the last version it stored. */
+        batcher = new ConfigDeltaBatcher(mTransport, SENDER_ID, batcher.getVersion());
+        batcher.putInt("background_color", 3);
+        batcher.flush();
+
+        assertEquals(4, mTransport.mVersions.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, (long) mTransport.mVersions.get(i));
+            assertEquals(SENDER_ID, (long) mTransport.mSenderIds.get(i));
+            assertEquals(i, mTransport.mDeltas.get(i).get("background_color"));
+        }
+    }
+
+    @Test
+    public void laterChangesDoNotLeakIntoSentDeltas() {
+        final ConfigDeltaBatcher batcher = new ConfigDeltaBatcher(mTransport, SENDER_ID, 0);
+        batcher.putInt("text_color", 1);
+        batcher.flush();
+        batcher.putInt("satellite_color", 2);
+        batcher.flush();
+
+        assertEquals(1, mTransport.mDeltas.get(0).size());
+        assertTrue(mTransport.mDeltas.get(0).containsKey("text_color"));
+        assertEquals(1, mTransport.mDeltas.get(1).size());
+        assertTrue(mTransport.mDeltas.get(1).containsKey("satellite_color"));
+    }
+
+    @Test
+    public void transportCannotModifyTheDelta() {
+        final ConfigDeltaBatcher batcher = new ConfigDeltaBatcher(new ConfigDeltaBatcher.Transport() {
+            @Override
+            public void send(long senderId, long version, Map<String, Object> values) {
+                try {
+                    values.clear();
+                    fail("values are modifiable");
+                } catch (UnsupportedOperationException expected) {
+                    /* Expected. */
+                }
+            }
+        }, SENDER_ID, 0);
+        batcher.putInt("text_color", 1);
+        batcher.flush();
+
+        assertEquals(1, batcher.getTransferCount());
+    }
+}
@@ -0,0 +1,187 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays minutes of frames headlessly, recording the face the way the engine does, and checks
+ * how much of the surface the diff of consecutive frames marks for repainting.
+ */
+public class DisplayListDiffTest {
+
+    private static final int SIZE = 390;
+    private static final long SURFACE_AREA = (long) SIZE * SIZE;
+    private static final float OUTSET = 6f;
+
+    /* 2018-06-01 10:00:00 UTC, the start of a minute. */
+    private static final long START_MS = 1527847200000L;
+
+    private static final int ROLE_DATE = 3;
+
+    private static final SatelliteSpec[] SATELLITES = {
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0, FaceGeometry.HOUR_RADIUS_RATIO, 0,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE, FaceGeometry.MINUTES_RADIUS_RATIO, 1,
+                    SatelliteSpec.OUTLINE_ALWAYS),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, FaceGeometry.SECONDS_DISTANCE, FaceGeometry.SECONDS_RADIUS_RATIO, 2,
+                    SatelliteSpec.OUTLINE_ALWAYS)
+    };
+
+    private final FaceGeometry mGeometry = new FaceGeometry(SIZE, SIZE);
+    private final WallClock mWallClock = new WallClock(TimeZone.getTimeZone("UTC"));
+    private final FaceState mFaceState = new FaceState();
+    private final DirtyRegion mDirty = new DirtyRegion();
+    private DisplayList mCurrent = new DisplayList();
+    private DisplayList mPrevious = new DisplayList();
+    private OrbitTable[] mOrbits;
+    private boolean mShowSeconds = true;
+
+    @Before
+    public void setUp() {
+        mOrbits = new OrbitTable[SATELLITES.length];
+        for (int i = 0; i < SATELLITES.length; i++) {
+            mOrbits[i] = mGeometry.newOrbit(SATELLITES[i], 6f);
+        }
+    }
+
+    @Test
+    public void firstFrameRepaintsEverything() {
+        replayFrame(START_MS);
+
+        assertTrue(mDirty.isFull());
+        assertEquals(SURFACE_AREA, mDirty.getArea());
+    }
+
+    @Test
+    public void secondTicksRepaintOnlyTheSecondsSatellite() {
+        replayFrame(START_MS);
+
+        long repainted = 0;
+        for (int second = 1; second < 60; second++) {
+            replayFrame(START_MS + second * 1000L);
+
+            assertFalse(mDirty.isFull());
+            assertEquals(1, mDirty.getCount());
+            assertEquals(secondsBoundsArea(second - 1, second), mDirty.getArea());
+            repainted += mDirty.getArea();
+        }
+
+        /* A full repaint per tick would be 59 surfaces; the seconds satellite is a few percent. */
+        assertTrue("repainted " + repainted, repainted < 59 * SURFACE_AREA / 25);
+    }
+
+    @Test
+    public void minuteChangeAlsoRepaintsTheMinuteSatellite() {
+        /* At a quarter past, the minutes move at 3 o'clock and the seconds at 12 o'clock. */
+        replayFrame(START_MS + 15 * 60 * 1000L - 1000);
+        replayFrame(START_MS + 15 * 60 * 1000L);
+
+        assertFalse(mDirty.isFull());
+        assertEquals(2, mDirty.getCount());
+        assertTrue(mDirty.getArea() > secondsBoundsArea(59, 0));
+        assertTrue(mDirty.getArea() < SURFACE_AREA / 10);
+    }
+
+    @Test
+    public void unchangedFramesRepaintNothing() {
+        mShowSeconds = false;
+        replayFrame(START_MS);
+        for (int second = 1; second < 60; second++) {
+            /* Wake-ups within the minute of a face without seconds, e.g. taps. */
+            replayFrame(START_MS + second * 1000L);
+            assertTrue(mDirty.isEmpty());
+            assertEquals(0, mDirty.getArea());
+        }
+
+        replayFrame(START_MS + 60 * 1000L);
+        assertEquals(1, mDirty.getCount());
+    }
+
+    @Test
+    public void sweepFramesRepaintLessThanATick() {
+        replayFrame(START_MS);
+
+        long repainted = 0;
+        int frames = 0;
+        for (long t = START_MS + 1000 / 60; t < START_MS + 60 * 1000L; t += 1000 / 60) {
+            replayFrame(t);
+            repainted += mDirty.getArea();
+            frames++;
+            assertFalse(mDirty.isFull());
+        }
+
+        /* Each sweep step moves the satellite under 2px, so the region barely exceeds it. */
+        final long perFrame = repainted / frames;
+        assertTrue("repainted " + perFrame + " per frame", perFrame < secondsBoundsArea(0, 1));
+        assertTrue("repainted " + perFrame + " per frame", perFrame < SURFACE_AREA / 40);
+    }
+
+    @Test
+    public void dayChangeRepaintsTheDateAndTheHour() {
+        replayFrame(START_MS + 14 * 60 * 60 * 1000L - 1000);
+        replayFrame(START_MS + 14 * 60 * 60 * 1000L);
+
+        assertFalse(mDirty.isFull());
+        assertTrue(mDirty.getCount() >= 3);
+        assertTrue(mDirty.getArea() < SURFACE_AREA / 2);
+    }
+
+    /**
+     * Records the face at {@code nowMs} and diffs it against the previous frame into
+     * {@link #mDirty}.
+     */
+    private void replayFrame(long nowMs) {
+        mWallClock.update(nowMs);
+        mFaceState.update(mWallClock, false);
+
+        mCurrent.reset();
+        mCurrent.addClear(0xFF000000, SIZE, SIZE);
+        for (int i = 0; i < SATELLITES.length; i++) {
+            final SatelliteSpec spec = SATELLITES[i];
+            if (spec.isSeconds() && !mShowSeconds) {
+                continue;
+            }
+            final int position = spec.getPosition(mFaceState);
+            final float x = mOrbits[i].getX(position);
+            final float y = mOrbits[i].getY(position);
+            mCurrent.addCircle(spec.getRole(), x, y, mGeometry.getSatelliteRadius(spec), OUTSET);
+            mCurrent.addText(spec.getRole(), spec.getValue(mFaceState), x, y, 12f, 10f);
+        }
+        mCurrent.addText(ROLE_DATE, mFaceState.getDayKey(), mGeometry.getCenterX(),
+                mGeometry.getCenterY() + mGeometry.getDateHandLength(), 40f, 10f);
+        mCurrent.addImage(0, 1, mGeometry.getLeftComplicationX(), mGeometry.getCenterY(),
+                mGeometry.getComplicationRadius());
+        mCurrent.addImage(1, 1, mGeometry.getRightComplicationX(), mGeometry.getCenterY(),
+                mGeometry.getComplicationRadius());
+
+        DisplayListDiff.compute(mPrevious, mCurrent, SIZE, SIZE, mDirty);
+
+        final DisplayList swap = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = swap;
+    }
+
+    /**
+     * Returns the area of the union of the seconds satellite's bounds at two ticks.
+     */
+    private long secondsBoundsArea(int fromSecond, int toSecond) {
+        final DirtyRegion region = new DirtyRegion();
+        addSecondsBounds(region, fromSecond);
+        addSecondsBounds(region, toSecond);
+        return region.getArea();
+    }
+
+    private void addSecondsBounds(DirtyRegion region, int second) {
+        final OrbitTable orbit = mOrbits[2];
+        final int position = OrbitTable.secondsIndex(second, 0);
+        final float extent = mGeometry.getSatelliteRadius(SATELLITES[2]) + OUTSET;
+        region.add(orbit.getX(position) - extent, orbit.getY(position) - extent,
+                orbit.getX(position) + extent, orbit.getY(position) + extent);
+    }
+}
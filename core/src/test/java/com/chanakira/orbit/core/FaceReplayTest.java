@@ -0,0 +1,484 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays a whole day of the face against a simulated clock, a millisecond at a time: the
+ * screen off for the night, the wrist raised every twenty minutes, a flight to another time
+ * zone, complications updating every ten minutes, a meeting in mute mode, a stopwatch run and a low battery in the evening. The day starts
+ * at the midnight before a daylight saving change and ends past the next midnight.
+ *
+ * The {@link WakeupScheduler} and the {@link RefreshController} decide when frames are drawn, as
+ * in the engine, and every frame does the engine's per-frame work. The replay fails when the
+ * frames drawn, the wake-ups, the allocations or the time per frame go over the thresholds.
+ */
+public class FaceReplayTest {
+
+    private static final long SECOND_MS = 1000;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    /* 2018-03-11 00:00 in New York, two hours before daylight saving starts. */
+    private static final long START_MS = 1520744400000L;
+    private static final TimeZone HOME = TimeZone.getTimeZone("America/New_York");
+    private static final TimeZone AWAY = TimeZone.getTimeZone("Europe/London");
+
+    /* Time from a redraw request to its frame. */
+    private static final long FRAME_MS = 16;
+
+    private static final long STILL_THRESHOLD_MS = 5 * MINUTE_MS;
+
+    /* Thresholds for the whole day; it takes about 4200 frames, at well under 0.1 ms each. */
+    private static final long MAX_FRAMES = 5000;
+    private static final long MAX_WAKEUPS = 5000;
+    private static final long MAX_BYTES_PER_FRAME = 128;
+    private static final long MAX_AVERAGE_FRAME_NANOS = 200 * 1000L;
+
+    /* The day, as changes at offsets from the start. */
+    private static final int EVENT_SCREEN_ON = 0;
+    private static final int EVENT_SCREEN_OFF = 1;
+    private static final int EVENT_WRIST_UP = 2;
+    private static final int EVENT_WRIST_DOWN = 3;
+    private static final int EVENT_TAP = 4;
+    private static final int EVENT_TIME_ZONE = 5;
+    private static final int EVENT_MUTE = 6;
+    private static final int EVENT_UNMUTE = 7;
+    private static final int EVENT_STOPWATCH_START = 8;
+    private static final int EVENT_STOPWATCH_STOP = 9;
+    private static final int EVENT_BATTERY_LOW = 10;
+    /* Back to the face from an app, still interactive. */
+    private static final int EVENT_RETURN = 11;
+
+    private static final SatelliteSpec[] SATELLITES = {
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0, FaceGeometry.HOUR_RADIUS_RATIO, 0,
+                    SatelliteSpec.OUTLINE_HOUR_SETTING),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE, FaceGeometry.MINUTES_RADIUS_RATIO, 1,
+                    SatelliteSpec.OUTLINE_MINUTE_SETTING),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, FaceGeometry.SECONDS_DISTANCE, FaceGeometry.SECONDS_RADIUS_RATIO, 2,
+                    SatelliteSpec.OUTLINE_SECOND_SETTING)
+    };
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+
+    private final SimulatedTimeSource mTimeSource = new SimulatedTimeSource(START_MS);
+    private WakeupScheduler mWakeupScheduler;
+    private RefreshController mRefreshController;
+
+    /* When the timer fires next, the requested frame is drawn, and the next vsync frame, or -1. */
+    private long mTimerAtMs = -1;
+    private long mFrameAtMs = -1;
+    private long mVsyncAtMs = -1;
+    private long mVsyncIntervalMs;
+
+    private boolean mVisible;
+    private boolean mAmbient;
+    private long mLastTickMinute;
+
+    private final Locale mLocale = Locale.US;
+    private final WallClock mWallClock = new WallClock(HOME);
+    private final FaceState mFaceState = new FaceState();
+    private final DateText mDateText = new DateText();
+    private final NumberLabels mNumberLabels = new NumberLabels(mLocale);
+    private final Stopwatch mStopwatch = new Stopwatch();
+    private final char[] mReadout = new char[Stopwatch.MAX_TEXT_LENGTH];
+    private final DirtyRegion mDirty = new DirtyRegion();
+    private DisplayList mCurrent = new DisplayList();
+    private DisplayList mPrevious = new DisplayList();
+    private OrbitTable[] mOrbits;
+    private float[] mRadii;
+
+    private long mFrameCount;
+    private long mFrameNanos;
+    private long mLateTickCount;
+    private long mSink;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        final FaceGeometry geometry = new FaceGeometry(390, 390);
+        mOrbits = new OrbitTable[SATELLITES.length];
+        mRadii = new float[SATELLITES.length];
+        for (int i = 0; i < SATELLITES.length; i++) {
+            mOrbits[i] = geometry.newOrbit(SATELLITES[i], 6f);
+            mRadii[i] = geometry.getSatelliteRadius(SATELLITES[i]);
+        }
+
+        mWakeupScheduler = new WakeupScheduler(mTimeSource, new WakeupScheduler.Callback() {
+            @Override
+            public void onRedraw() {
+                if (mFrameAtMs < 0) {
+                    mFrameAtMs = mTimeSource.uptimeMillis() + FRAME_MS;
+                }
+            }
+
+            @Override
+            public void scheduleTimer(long delayMs) {
+                mTimerAtMs = mTimeSource.uptimeMillis() + delayMs;
+            }
+
+            @Override
+            public void cancelTimer() {
+                mTimerAtMs = -1;
+            }
+
+            @Override
+            public void onTimerLatency(long latencyMs) {
+                if (latencyMs != 0) {
+                    mLateTickCount++;
+                }
+            }
+        });
+        mRefreshController = new RefreshController(mTimeSource, new AdaptiveRefreshPolicy(STILL_THRESHOLD_MS),
+                mWakeupScheduler, new RefreshController.Callback() {
+                    @Override
+                    public void startFrames(int framesPerSecond) {
+                        mVsyncIntervalMs = SECOND_MS / framesPerSecond;
+                        mVsyncAtMs = mTimeSource.uptimeMillis() + mVsyncIntervalMs;
+                    }
+
+                    @Override
+                    public void stopFrames() {
+                        mVsyncAtMs = -1;
+                    }
+
+                    @Override
+                    public void onBurstChanged(boolean bursting) {
+                    }
+                });
+    }
+
+    @Test
+    public void dayStaysWithinThresholds() {
+        final long[][] script = script();
+        final int startDayKey = dayKey(START_MS);
+
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = mThreadBean.getThreadAllocatedBytes(threadId);
+
+        replay(script, DAY_MS + HOUR_MS);
+
+        final long allocated = mThreadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        final String report = report(allocated);
+
+        assertTrue(report, mFrameCount <= MAX_FRAMES);
+        assertTrue(report, wakeups() <= MAX_WAKEUPS);
+        assertTrue(report, allocated / mFrameCount <= MAX_BYTES_PER_FRAME);
+        assertTrue(report, mFrameNanos / mFrameCount <= MAX_AVERAGE_FRAME_NANOS);
+        assertEquals(report, 0, mWakeupScheduler.getOverBudgetHourCount());
+        assertEquals(report, 0, mLateTickCount);
+
+        /* Every event source got through, and the burst ran at its full rate. */
+        for (int source = 0; source < WakeupScheduler.SOURCE_COUNT; source++) {
+            if (source != WakeupScheduler.SOURCE_CONFIG) {
+                assertTrue(report, mWakeupScheduler.getWakeupCount(source) > 0);
+            }
+        }
+        final long burstFrames = RefreshController.BURST_FRAMES_PER_SECOND
+                * RefreshController.BURST_DURATION_MS / SECOND_MS;
+        assertEquals(report, burstFrames, mRefreshController.getBurstFrameCount(), burstFrames / 20);
+        assertNotEquals(startDayKey, mFaceState.getDayKey());
+    }
+
+    @Test
+    public void runningStopwatchKeepsTickingInMuteMode() {
+        replay(new long[][]{
+                {0, EVENT_SCREEN_ON},
+                {0, EVENT_WRIST_UP},
+                {0, EVENT_MUTE},
+                {SECOND_MS, EVENT_STOPWATCH_START}
+        }, 2 * MINUTE_MS);
+
+        /* The readout shows seconds after the burst, so the face ticks every second for them. */
+        assertEquals(RefreshPolicy.RATE_SECOND, mRefreshController.getRate());
+        final long tickSeconds = (2 * MINUTE_MS - SECOND_MS - RefreshController.BURST_DURATION_MS) / SECOND_MS;
+        assertEquals(tickSeconds, mWakeupScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER), 2);
+    }
+
+    /**
+     * Runs {@code durationMs} a millisecond at a time, handling the events of {@code script}.
+     */
+    @Test
+    public void signalsThatKeepTheRateKeepTheTicks() {
+        /* Muted, then a low battery and unmuting, which all keep the face at one tick a minute. */
+        replay(new long[][]{
+                {0, EVENT_SCREEN_ON},
+                {0, EVENT_WRIST_UP},
+                {0, EVENT_MUTE},
+                {10 * SECOND_MS, EVENT_BATTERY_LOW},
+                {20 * SECOND_MS, EVENT_UNMUTE}
+        }, 3 * MINUTE_MS);
+
+        assertEquals(RefreshPolicy.RATE_MINUTE, mRefreshController.getRate());
+        /* Only the ticks on the minutes, none for restarting the timer. */
+        assertEquals(2, mWakeupScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER));
+        assertEquals(0, mLateTickCount);
+    }
+
+    @Test
+    public void lookingAtTheFaceAgainBringsTheSecondsBack() {
+        /* Someone seated, so no significant motion: the seconds stop after a while. */
+        replay(new long[][]{
+                {0, EVENT_SCREEN_ON},
+                {0, EVENT_WRIST_UP}
+        }, STILL_THRESHOLD_MS + MINUTE_MS);
+        assertEquals(RefreshPolicy.RATE_MINUTE, mRefreshController.getRate());
+
+        /* Raising the wrist again. */
+        replay(new long[][]{
+                {0, EVENT_WRIST_DOWN},
+                {10 * SECOND_MS, EVENT_WRIST_UP}
+        }, 10 * SECOND_MS + 1);
+        assertEquals(RefreshPolicy.RATE_SECOND, mRefreshController.getRate());
+
+        /* Still again, then coming back to the face from an app. */
+        replay(new long[0][], STILL_THRESHOLD_MS + MINUTE_MS);
+        assertEquals(RefreshPolicy.RATE_MINUTE, mRefreshController.getRate());
+        replay(new long[][]{
+                {0, EVENT_SCREEN_OFF},
+                {MINUTE_MS, EVENT_RETURN}
+        }, MINUTE_MS + 1);
+        assertEquals(RefreshPolicy.RATE_SECOND, mRefreshController.getRate());
+    }
+
+    private void replay(long[][] script, long durationMs) {
+        int next = 0;
+        for (long t = 0; t < durationMs; t++) {
+            while (next < script.length && script[next][0] == t) {
+                handle((int) script[next][1]);
+                next++;
+            }
+            step();
+            mTimeSource.advance(1);
+        }
+    }
+
+    /**
+     * Returns the day as pairs of an offset from the start and an event, in order.
+     */
+    private static long[][] script() {
+        final long[][] events = new long[1024][];
+        int count = 0;
+
+        events[count++] = new long[]{0, EVENT_SCREEN_ON};
+        events[count++] = new long[]{3 * HOUR_MS, EVENT_SCREEN_OFF};
+        events[count++] = new long[]{7 * HOUR_MS, EVENT_SCREEN_ON};
+
+        /* A glance every twenty minutes through the day, with a tap a few seconds in. */
+        for (long atMs = 7 * HOUR_MS + 10 * MINUTE_MS; atMs < 23 * HOUR_MS; atMs += 20 * MINUTE_MS) {
+            events[count++] = new long[]{atMs, EVENT_WRIST_UP};
+            events[count++] = new long[]{atMs + 5 * SECOND_MS + 123, EVENT_TAP};
+            events[count++] = new long[]{atMs + MINUTE_MS, EVENT_WRIST_DOWN};
+        }
+
+        /* A long look in the morning, long enough for the seconds to stop. */
+        events[count++] = new long[]{9 * HOUR_MS, EVENT_WRIST_UP};
+        events[count++] = new long[]{9 * HOUR_MS + 9 * MINUTE_MS, EVENT_WRIST_DOWN};
+
+        events[count++] = new long[]{12 * HOUR_MS + 30 * SECOND_MS, EVENT_TIME_ZONE};
+        events[count++] = new long[]{13 * HOUR_MS, EVENT_MUTE};
+        events[count++] = new long[]{14 * HOUR_MS, EVENT_UNMUTE};
+
+        events[count++] = new long[]{18 * HOUR_MS, EVENT_WRIST_UP};
+        events[count++] = new long[]{18 * HOUR_MS + 10 * SECOND_MS, EVENT_STOPWATCH_START};
+        events[count++] = new long[]{18 * HOUR_MS + 70 * SECOND_MS, EVENT_STOPWATCH_STOP};
+        events[count++] = new long[]{18 * HOUR_MS + 2 * MINUTE_MS, EVENT_WRIST_DOWN};
+
+        events[count++] = new long[]{20 * HOUR_MS, EVENT_BATTERY_LOW};
+
+        final long[][] script = new long[count][];
+        System.arraycopy(events, 0, script, 0, count);
+        Arrays.sort(script, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return a[0] < b[0] ? -1 : a[0] > b[0] ? 1 : 0;
+            }
+        });
+        return script;
+    }
+
+    /**
+     * Does what the engine does for {@code event}.
+     */
+    private void handle(int event) {
+        switch (event) {
+            case EVENT_SCREEN_ON:
+                mVisible = true;
+                mAmbient = true;
+                mRefreshController.setAmbient(true);
+                mRefreshController.setVisible(true);
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SYSTEM);
+                break;
+            case EVENT_SCREEN_OFF:
+                mVisible = false;
+                mRefreshController.setVisible(false);
+                break;
+            case EVENT_WRIST_UP:
+                mAmbient = false;
+                mRefreshController.setAmbient(false);
+                break;
+            case EVENT_WRIST_DOWN:
+                mAmbient = true;
+                mRefreshController.setAmbient(true);
+                break;
+            case EVENT_TAP:
+                mRefreshController.onMotion();
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_TAP);
+                break;
+            case EVENT_TIME_ZONE:
+                mWallClock.setTimeZone(AWAY);
+                mDateText.invalidate();
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_TIME_ZONE);
+                break;
+            case EVENT_MUTE:
+            case EVENT_UNMUTE:
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SYSTEM);
+                mRefreshController.setMuteMode(event == EVENT_MUTE);
+                break;
+            case EVENT_STOPWATCH_START:
+            case EVENT_STOPWATCH_STOP:
+                mStopwatch.advance(mTimeSource.elapsedRealtime());
+                mRefreshController.setStopwatchRunning(mStopwatch.isRunning());
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_TAP);
+                break;
+            case EVENT_BATTERY_LOW:
+                mRefreshController.setBatteryLow(true);
+                break;
+            case EVENT_RETURN:
+                mVisible = true;
+                mRefreshController.setVisible(true);
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SYSTEM);
+                break;
+        }
+    }
+
+    /**
+     * Delivers whatever is due at the current millisecond: the timer, the ambient time tick, a
+     * complication update, the next vsync and the requested frame.
+     */
+    private void step() {
+        final long now = mTimeSource.uptimeMillis();
+        if (mTimerAtMs >= 0 && now >= mTimerAtMs) {
+            mTimerAtMs = -1;
+            mWakeupScheduler.onTimer();
+        }
+
+        final long minute = mTimeSource.currentTimeMillis() / MINUTE_MS;
+        if (minute != mLastTickMinute) {
+            mLastTickMinute = minute;
+            if (mVisible && mAmbient) {
+                mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_TIME_TICK);
+            }
+        }
+        if (mVisible && mTimeSource.currentTimeMillis() % (10 * MINUTE_MS) == 3 * MINUTE_MS + 30 * SECOND_MS) {
+            mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_COMPLICATION);
+        }
+
+        if (mVsyncAtMs >= 0 && now >= mVsyncAtMs) {
+            mVsyncAtMs += mVsyncIntervalMs;
+            mWakeupScheduler.requestRedraw(WakeupScheduler.SOURCE_SWEEP);
+        }
+
+        if (mFrameAtMs >= 0 && now >= mFrameAtMs) {
+            mFrameAtMs = -1;
+            final long start = System.nanoTime();
+            drawFrame();
+            mFrameNanos += System.nanoTime() - start;
+            mFrameCount++;
+            mWakeupScheduler.onFrameDrawn();
+        }
+    }
+
+    /**
+     * Does the per-frame work of the engine: the rate check, the time breakdown, the satellites,
+     * the date or the stopwatch readout, and the diff against the previous frame.
+     */
+    private void drawFrame() {
+        mRefreshController.onFrame();
+        mWallClock.update(mTimeSource.currentTimeMillis());
+        mFaceState.update(mWallClock, false);
+        final boolean showSeconds = !mAmbient && mRefreshController.getRate() != RefreshPolicy.RATE_MINUTE;
+
+        mCurrent.reset();
+        mCurrent.addClear(0xFF000000, 390, 390);
+        for (int i = 0; i < SATELLITES.length; i++) {
+            final SatelliteSpec spec = SATELLITES[i];
+            if (spec.isSeconds() && !showSeconds) {
+                continue;
+            }
+            final int position = spec.getPosition(mFaceState);
+            final float x = mOrbits[i].getX(position);
+            final float y = mOrbits[i].getY(position);
+            final int value = spec.getValue(mFaceState);
+            if (!mAmbient && spec.showOutline(OrbitConfig.DEFAULT)) {
+                mCurrent.addCircle(spec.getRole(), x, y, mRadii[i], 6f);
+            }
+            mCurrent.addText(spec.getRole(), value, x, y, 12f, 10f);
+            mSink += mNumberLabels.get(value).length();
+        }
+
+        if (!mAmbient && !mStopwatch.isIdle()) {
+            final long elapsedMs = mStopwatch.getElapsedMillis(mTimeSource.elapsedRealtime());
+            final boolean showHundredths = !mStopwatch.isRunning() || mRefreshController.isBursting();
+            mSink += Stopwatch.format(elapsedMs, showHundredths, '0', mReadout);
+            final long key = showHundredths ? elapsedMs / 10 * 2 + 1 : elapsedMs / 1000 * 2;
+            mCurrent.addText(3, (int) (-1 - key), 195, 280, 40f, 10f);
+        } else {
+            mSink += mDateText.get(mWallClock, mLocale).length();
+            mCurrent.addText(3, mFaceState.getDayKey(), 195, 280, 40f, 10f);
+        }
+
+        DisplayListDiff.compute(mPrevious, mCurrent, 390, 390, mDirty);
+        mSink += mDirty.getArea();
+
+        final DisplayList swap = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = swap;
+    }
+
+    private long wakeups() {
+        long wakeups = 0;
+        for (int source = 0; source < WakeupScheduler.SOURCE_COUNT; source++) {
+            wakeups += mWakeupScheduler.getWakeupCount(source);
+        }
+        return wakeups;
+    }
+
+    private static int dayKey(long nowMs) {
+        final WallClock clock = new WallClock(HOME);
+        clock.update(nowMs);
+        final FaceState state = new FaceState();
+        state.update(clock, false);
+        return state.getDayKey();
+    }
+
+    private String report(long allocated) {
+        final StringWriter out = new StringWriter();
+        final PrintWriter writer = new PrintWriter(out);
+        writer.println(String.format(Locale.US, "%d frames, %d wake-ups, %d bytes/frame, %d ns/frame",
+                mFrameCount, wakeups(), allocated / Math.max(1, mFrameCount),
+                mFrameNanos / Math.max(1, mFrameCount)));
+        mWakeupScheduler.dump("", writer);
+        mRefreshController.dump("", writer);
+        writer.flush();
+        return out.toString();
+    }
+}
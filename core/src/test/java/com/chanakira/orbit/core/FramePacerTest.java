@@ -0,0 +1,114 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds a {@link FramePacer} simulated vsync timestamps of a 60 Hz display, with jitter and
+ * stalls, and checks the achieved frame rate and the dropped frame count.
+ */
+public class FramePacerTest {
+
+    private static final long VSYNC_NANOS = 1000000000L / 60;
+    private static final long JITTER_NANOS = 1000000L;
+    private static final long SECOND_NANOS = 1000000000L;
+
+    /* Any vsync clock start; the grid must not depend on it. */
+    private static final long START_NANOS = 123456789012L;
+
+    @Test
+    public void achievesConfiguredRates() {
+        for (int fps : new int[]{15, 30, 60}) {
+            final FramePacer pacer = new FramePacer(fps);
+            final int frames = replay(pacer, START_NANOS, START_NANOS + 60 * SECOND_NANOS, new Random(fps));
+
+            assertEquals(fps + " fps", fps * 60, frames, 1);
+            assertEquals(fps + " fps", 0, pacer.getDroppedFrameCount());
+            assertEquals(frames, pacer.getFrameCount());
+        }
+    }
+
+    @Test
+    public void framesAreEvenlySpaced() {
+        final FramePacer pacer = new FramePacer(15);
+        final Random random = new Random(1);
+        long previousNanos = 0;
+        int frames = 0;
+        for (long vsync = START_NANOS; vsync < START_NANOS + 10 * SECOND_NANOS; vsync += VSYNC_NANOS) {
+            final long frameTimeNanos = jitter(vsync, random);
+            if (pacer.onVsync(frameTimeNanos)) {
+                /* The grid is aligned to the clock, so only the first interval may be short. */
+                if (frames >= 2) {
+                    assertEquals(4 * VSYNC_NANOS, frameTimeNanos - previousNanos, 2 * JITTER_NANOS);
+                }
+                previousNanos = frameTimeNanos;
+                frames++;
+            }
+        }
+    }
+
+    @Test
+    public void dropsMissedFramesWithoutCatchingUp() {
+        final FramePacer pacer = new FramePacer(30);
+        final Random random = new Random(2);
+        long now = START_NANOS;
+        replay(pacer, now, now + SECOND_NANOS, random);
+        now += SECOND_NANOS;
+
+        /* The main thread is busy for a quarter of a second: about seven 30 fps slots are lost. */
+        now += SECOND_NANOS / 4;
+        final int frames = replay(pacer, now, now + SECOND_NANOS / 10, random);
+
+        assertEquals(7, pacer.getDroppedFrameCount(), 1);
+        assertTrue("caught up with " + frames + " frames", frames <= 4);
+    }
+
+    @Test
+    public void slowDisplayHalvesTheRate() {
+        final FramePacer pacer = new FramePacer(60);
+        long frames = 0;
+        for (long vsync = START_NANOS; vsync < START_NANOS + 10 * SECOND_NANOS; vsync += 2 * VSYNC_NANOS) {
+            if (pacer.onVsync(vsync)) {
+                frames++;
+            }
+        }
+
+        assertEquals(300, frames, 1);
+        assertEquals(300, pacer.getDroppedFrameCount(), 1);
+    }
+
+    @Test
+    public void restartDoesNotCountThePauseAsDropped() {
+        final FramePacer pacer = new FramePacer(30);
+        final Random random = new Random(3);
+        replay(pacer, START_NANOS, START_NANOS + SECOND_NANOS, random);
+
+        pacer.restart();
+        final long resumeNanos = START_NANOS + 60 * SECOND_NANOS;
+        final int frames = replay(pacer, resumeNanos, resumeNanos + SECOND_NANOS, random);
+
+        assertEquals(0, pacer.getDroppedFrameCount());
+        assertEquals(30, frames, 1);
+    }
+
+    /**
+     * Feeds every vsync in [{@code fromNanos}, {@code untilNanos}) and returns the frames drawn.
+     */
+    private static int replay(FramePacer pacer, long fromNanos, long untilNanos, Random random) {
+        int frames = 0;
+        for (long vsync = fromNanos; vsync < untilNanos; vsync += VSYNC_NANOS) {
+            if (pacer.onVsync(jitter(vsync, random))) {
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    private static long jitter(long vsync, Random random) {
+        return vsync + (long) ((random.nextDouble() * 2 - 1) * JITTER_NANOS);
+    }
+}
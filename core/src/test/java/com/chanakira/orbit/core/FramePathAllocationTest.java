@@ -0,0 +1,146 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays thousands of interactive frames through the per-frame work of the draw path and checks
+ * that, once warmed up, none of it allocates.
+ */
+public class FramePathAllocationTest {
+
+    /* 2018-06-01 10:00 UTC; the replay stays within one local day. */
+    private static final long START_MS = 1527847200000L;
+    private static final long FRAME_MS = 16;
+    private static final int WARMUP_FRAMES = 1000;
+    private static final int FRAMES = 5000;
+    private static final int RUNS = 3;
+
+    private static final SatelliteSpec[] SATELLITES = {
+            new SatelliteSpec(SatelliteSpec.SOURCE_HOUR, 0, FaceGeometry.HOUR_RADIUS_RATIO, 0,
+                    SatelliteSpec.OUTLINE_HOUR_SETTING),
+            new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE, FaceGeometry.MINUTES_RADIUS_RATIO, 1,
+                    SatelliteSpec.OUTLINE_MINUTE_SETTING),
+            new SatelliteSpec(SatelliteSpec.SOURCE_SECOND, FaceGeometry.SECONDS_DISTANCE, FaceGeometry.SECONDS_RADIUS_RATIO, 2,
+                    SatelliteSpec.OUTLINE_SECOND_SETTING)
+    };
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+
+    private final Locale mLocale = Locale.US;
+    private final WallClock mWallClock = new WallClock(TimeZone.getTimeZone("America/New_York"));
+    private final FaceState mFaceState = new FaceState();
+    private final DateText mDateText = new DateText();
+    private final NumberLabels mNumberLabels = new NumberLabels(mLocale);
+    private final char[] mReadout = new char[Stopwatch.MAX_TEXT_LENGTH];
+    private final DirtyRegion mDirty = new DirtyRegion();
+    private DisplayList mCurrent = new DisplayList();
+    private DisplayList mPrevious = new DisplayList();
+    private OrbitTable[] mOrbits;
+    private float[] mRadii;
+
+    /* Consumed values, so the replay cannot be optimized away. */
+    private long mSink;
+    private int mFrameCount;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        final FaceGeometry geometry = new FaceGeometry(390, 390);
+        mOrbits = new OrbitTable[SATELLITES.length];
+        mRadii = new float[SATELLITES.length];
+        for (int i = 0; i < SATELLITES.length; i++) {
+            mOrbits[i] = geometry.newOrbit(SATELLITES[i], 6f);
+            mRadii[i] = geometry.getSatelliteRadius(SATELLITES[i]);
+        }
+    }
+
+    @Test
+    public void steadyStateFramesDoNotAllocate() {
+        long now = START_MS;
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            drawFrame(now);
+            now += FRAME_MS;
+        }
+
+        /*
+         * The JVM itself may allocate on this thread now and then, e.g. while recompiling, so
+         * the replay is repeated and the quietest run counts. An allocating frame path would
+         * show up in every run.
+         */
+        final long threadId = Thread.currentThread().getId();
+        final long overhead = measureOverhead(threadId);
+        long allocated = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            final long before = mThreadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < FRAMES; i++) {
+                drawFrame(now);
+                now += FRAME_MS;
+            }
+            allocated = Math.min(allocated, mThreadBean.getThreadAllocatedBytes(threadId) - before - overhead);
+        }
+
+        assertEquals("bytes allocated by " + FRAMES + " frames", 0, Math.max(0, allocated));
+        assertEquals(WARMUP_FRAMES + RUNS * FRAMES, mFrameCount);
+    }
+
+    /**
+     * Returns what reading the allocation counter allocates by itself.
+     */
+    private long measureOverhead(long threadId) {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            final long before = mThreadBean.getThreadAllocatedBytes(threadId);
+            overhead = Math.min(overhead, mThreadBean.getThreadAllocatedBytes(threadId) - before);
+        }
+        return overhead;
+    }
+
+    /**
+     * Does the per-frame work of an interactive frame: the time breakdown, the satellites, the
+     * date and a stopwatch readout, and the diff against the previous frame.
+     */
+    private void drawFrame(long nowMs) {
+        mWallClock.update(nowMs);
+        mFaceState.update(mWallClock, false);
+
+        mCurrent.reset();
+        mCurrent.addClear(0xFF000000, 390, 390);
+        for (int i = 0; i < SATELLITES.length; i++) {
+            final SatelliteSpec spec = SATELLITES[i];
+            final int position = spec.getPosition(mFaceState);
+            final float x = mOrbits[i].getX(position);
+            final float y = mOrbits[i].getY(position);
+            final int value = spec.getValue(mFaceState);
+            if (spec.showOutline(OrbitConfig.DEFAULT)) {
+                mCurrent.addCircle(spec.getRole(), x, y, mRadii[i], 6f);
+            }
+            mCurrent.addText(spec.getRole(), value, x, y, 12f, 10f);
+            mSink += mNumberLabels.get(value).length();
+        }
+
+        final String date = mDateText.get(mWallClock, mLocale);
+        mCurrent.addText(3, mFaceState.getDayKey(), 195, 280, 40f, 10f);
+        mSink += date.length();
+        mSink += Stopwatch.format(nowMs - START_MS, '0', mReadout);
+
+        DisplayListDiff.compute(mPrevious, mCurrent, 390, 390, mDirty);
+        mSink += mDirty.getArea();
+
+        final DisplayList swap = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = swap;
+        mFrameCount++;
+    }
+}
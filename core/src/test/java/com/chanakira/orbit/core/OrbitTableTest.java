@@ -0,0 +1,80 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the precomputed orbit positions against per-frame trig, for every position of every
+ * orbit of the face and for every sub-second step of the seconds satellite.
+ */
+public class OrbitTableTest {
+
+    private static final float CENTER_X = 195f;
+    private static final float CENTER_Y = 200f;
+    private static final float RADIUS = 165.75f;
+    private static final float BASELINE_OFFSET = 6.5f;
+
+    /* Float positions of a few hundred pixels are exact to well under a thousandth of a pixel. */
+    private static final float TOLERANCE = 1e-3f;
+
+    @Test
+    public void positionsMatchTrig() {
+        for (int positions : new int[]{1, 12, 24, 31, 60, 60 * OrbitTable.STEPS_PER_SECOND}) {
+            final OrbitTable orbit = new OrbitTable(CENTER_X, CENTER_Y, RADIUS, positions, BASELINE_OFFSET);
+            for (int i = 0; i < positions; i++) {
+                final double angle = 2 * Math.PI * i / positions;
+                assertEquals(positions + "/" + i, CENTER_X + RADIUS * Math.sin(angle), orbit.getX(i), TOLERANCE);
+                assertEquals(positions + "/" + i, CENTER_Y - RADIUS * Math.cos(angle), orbit.getY(i), TOLERANCE);
+                assertEquals(orbit.getY(i) + BASELINE_OFFSET, orbit.getTextY(i), 0);
+            }
+        }
+    }
+
+    @Test
+    public void secondsStepsMatchTrig() {
+        final OrbitTable orbit = new OrbitTable(CENTER_X, CENTER_Y, RADIUS, 60 * OrbitTable.STEPS_PER_SECOND,
+                BASELINE_OFFSET);
+        for (int seconds = 0; seconds < 60; seconds++) {
+            for (int millis = 0; millis < 1000; millis++) {
+                final int index = OrbitTable.secondsIndex(seconds, millis);
+
+                /* The satellite sits on the last step reached, like a 60 fps sweep would draw it. */
+                final double stepSeconds = Math.floor((seconds + millis / 1000.0) * OrbitTable.STEPS_PER_SECOND + 1e-9)
+                        / OrbitTable.STEPS_PER_SECOND;
+                final double angle = 2 * Math.PI * stepSeconds / 60;
+                assertEquals(seconds + "." + millis, CENTER_X + RADIUS * Math.sin(angle), orbit.getX(index), TOLERANCE);
+                assertEquals(seconds + "." + millis, CENTER_Y - RADIUS * Math.cos(angle), orbit.getY(index), TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void secondsIndexIsMonotonic() {
+        int previous = -1;
+        for (int seconds = 0; seconds < 60; seconds++) {
+            for (int millis = 0; millis < 1000; millis++) {
+                final int index = OrbitTable.secondsIndex(seconds, millis);
+                assertTrue(seconds + "." + millis, index == previous || index == previous + 1);
+                previous = index;
+            }
+        }
+        assertEquals(60 * OrbitTable.STEPS_PER_SECOND - 1, previous);
+    }
+
+    @Test
+    public void faceOrbitsFollowGeometry() {
+        final FaceGeometry geometry = new FaceGeometry(390, 390);
+        final SatelliteSpec minutes = new SatelliteSpec(SatelliteSpec.SOURCE_MINUTE, FaceGeometry.MINUTES_DISTANCE,
+                FaceGeometry.MINUTES_RADIUS_RATIO, 1, SatelliteSpec.OUTLINE_ALWAYS);
+        final OrbitTable orbit = geometry.newOrbit(minutes, BASELINE_OFFSET);
+        final double radius = FaceGeometry.MINUTES_DISTANCE * geometry.getCenterX();
+
+        for (int minute = 0; minute < 60; minute++) {
+            final double angle = Math.toRadians(minute * 6);
+            assertEquals(geometry.getCenterX() + radius * Math.sin(angle), orbit.getX(minute), TOLERANCE);
+            assertEquals(geometry.getCenterY() - radius * Math.cos(angle), orbit.getY(minute), TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link WakeupScheduler} against a simulated clock for hours at a time, with taps,
+ * broadcasts and preference changes arriving between the timer ticks, and checks the redraws
+ * per hour against the budget.
+ */
+public class WakeupSchedulerTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long FRAME_MS = 16;
+
+    /* 2018-06-01 10:00:00.250 UTC, off the second. */
+    private static final long START_MS = 1527847200250L;
+
+    /* Redraws per hour allowed for event sources on top of the timer. */
+    private static final int EVENT_REDRAWS_PER_HOUR = 60;
+
+    private SimulatedTimeSource mTimeSource;
+    private WakeupScheduler mScheduler;
+
+    /* When the timer fires next, or -1; and when the requested frame is drawn, or -1. */
+    private long mTimerAtMs = -1;
+    private long mFrameAtMs = -1;
+
+    private long mFrameCount;
+    private long mLateTickCount;
+
+    @Before
+    public void setUp() {
+        mTimeSource = new SimulatedTimeSource(START_MS);
+        mScheduler = new WakeupScheduler(mTimeSource, new WakeupScheduler.Callback() {
+            @Override
+            public void onRedraw() {
+                if (mFrameAtMs < 0) {
+                    mFrameAtMs = mTimeSource.uptimeMillis() + FRAME_MS;
+                }
+            }
+
+            @Override
+            public void scheduleTimer(long delayMs) {
+                mTimerAtMs = mTimeSource.uptimeMillis() + delayMs;
+            }
+
+            @Override
+            public void cancelTimer() {
+                mTimerAtMs = -1;
+            }
+
+            @Override
+            public void onTimerLatency(long latencyMs) {
+                if (latencyMs != 0) {
+                    mLateTickCount++;
+                }
+            }
+        });
+    }
+
+    @Test
+    public void secondTicksStayWithinBudget() {
+        final int budget = 3600 + EVENT_REDRAWS_PER_HOUR;
+        mScheduler.setBudget(budget);
+        mScheduler.startTicks(1000);
+
+        /* A tap every ten seconds and a preference change every minute, for three hours. */
+        run(3 * HOUR_MS, 10 * 1000L, 60 * 1000L);
+
+        assertEquals(0, mScheduler.getOverBudgetHourCount());
+        assertTrue("frames " + mFrameCount, mFrameCount <= 3 * budget);
+        assertEquals(3 * 3600, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER), 1);
+        assertEquals(0, mLateTickCount);
+    }
+
+    @Test
+    public void eventsBeyondTheBudgetAreMerged() {
+        /* Nothing ticks; the face is redrawn only on events, here a tap every five seconds. */
+        mScheduler.setBudget(EVENT_REDRAWS_PER_HOUR);
+        run(3 * HOUR_MS, 5 * 1000L, 0);
+
+        assertEquals(3 * 720, mScheduler.getWakeupCount(WakeupScheduler.SOURCE_TAP));
+        assertTrue("frames " + mFrameCount, mFrameCount <= 3 * EVENT_REDRAWS_PER_HOUR + 1);
+        assertEquals(mFrameCount, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TAP));
+    }
+
+    @Test
+    public void burstsOfEventsShareOneFrame() {
+        mScheduler.requestRedraw(WakeupScheduler.SOURCE_TIME_ZONE);
+        mScheduler.requestRedraw(WakeupScheduler.SOURCE_CONFIG);
+        mScheduler.requestRedraw(WakeupScheduler.SOURCE_COMPLICATION);
+        run(2 * FRAME_MS, 0, 0);
+
+        assertEquals(1, mFrameCount);
+        assertEquals(1, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIME_ZONE));
+        assertEquals(1, mScheduler.getMergedCount(WakeupScheduler.SOURCE_CONFIG));
+        assertEquals(1, mScheduler.getMergedCount(WakeupScheduler.SOURCE_COMPLICATION));
+    }
+
+    @Test
+    public void tapsWaitForATickUnderASecondAway() {
+        mScheduler.startTicks(1000);
+        run(60 * 1000L, 2 * 1000L, 0);
+
+        assertEquals(30, mScheduler.getWakeupCount(WakeupScheduler.SOURCE_TAP));
+        assertEquals(0, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TAP));
+        assertEquals(30, mScheduler.getMergedCount(WakeupScheduler.SOURCE_TAP));
+    }
+
+    @Test
+    public void tapsDrawRightAwayAtTheMinuteRate() {
+        mScheduler.startTicks(60 * 1000L);
+        /* One frame more, for the last tap to be drawn. */
+        run(HOUR_MS + FRAME_MS, 10 * 1000L, 0);
+
+        /* No tap lands within a second of a minute, so none waits for the tick. */
+        assertEquals(360, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TAP));
+        assertEquals(0, mScheduler.getMergedCount(WakeupScheduler.SOURCE_TAP));
+        assertEquals(61, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER));
+    }
+
+    @Test
+    public void eventsNearAMinuteTickShareItsFrame() {
+        mScheduler.startTicks(60 * 1000L);
+        run(1000, 0, 0);
+
+        /* Advance to half a second before the next minute. */
+        run(60 * 1000L - START_MS % (60 * 1000L) - 1000 - 500, 0, 0);
+        mScheduler.requestRedraw(WakeupScheduler.SOURCE_COMPLICATION);
+        run(1000, 0, 0);
+
+        assertEquals(0, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_COMPLICATION));
+        assertEquals(1, mScheduler.getMergedCount(WakeupScheduler.SOURCE_COMPLICATION));
+        assertEquals(2, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER));
+    }
+
+    @Test
+    public void ticksLandOnTheBoundaries() {
+        mScheduler.startTicks(60 * 1000L);
+        run(HOUR_MS, 0, 0);
+
+        /* The first tick is immediate, the others on each minute of the hour. */
+        assertEquals(61, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER));
+        assertEquals(0, mLateTickCount);
+    }
+
+    @Test
+    public void restartingTicksKeepsTheirPhase() {
+        mScheduler.startTicks(1000);
+        run(10 * 1000L, 0, 0);
+        final long ticks = mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER);
+
+        /* The same interval again changes nothing. */
+        mScheduler.startTicks(1000);
+        run(10 * 1000L, 0, 0);
+        assertEquals(ticks + 10, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER));
+
+        /* A new interval waits for its next boundary, here the next minute, 39.75 s away. */
+        mScheduler.startTicks(60 * 1000L);
+        run(60 * 1000L, 0, 0);
+        assertEquals(ticks + 11, mScheduler.getRedrawCount(WakeupScheduler.SOURCE_TIMER));
+        assertEquals(0, mLateTickCount);
+    }
+
+    /**
+     * Advances the clock by {@code durationMs} a millisecond at a time, firing the timer, a tap
+     * every {@code tapIntervalMs} and a preference change every {@code configIntervalMs} (none if
+     * 0), and drawing requested frames a frame later.
+     */
+    private void run(long durationMs, long tapIntervalMs, long configIntervalMs) {
+        for (long t = 0; t < durationMs; t++) {
+            final long now = mTimeSource.uptimeMillis();
+            if (mTimerAtMs >= 0 && now >= mTimerAtMs) {
+                mTimerAtMs = -1;
+                mScheduler.onTimer();
+            }
+            if (tapIntervalMs > 0 && now % tapIntervalMs == tapIntervalMs - 1) {
+                mScheduler.requestRedraw(WakeupScheduler.SOURCE_TAP);
+            }
+            if (configIntervalMs > 0 && now % configIntervalMs == configIntervalMs / 2) {
+                mScheduler.requestRedraw(WakeupScheduler.SOURCE_CONFIG);
+            }
+            if (mFrameAtMs >= 0 && now >= mFrameAtMs) {
+                mFrameAtMs = -1;
+                mFrameCount++;
+                mScheduler.onFrameDrawn();
+            }
+            mTimeSource.advance(1);
+        }
+    }
+}
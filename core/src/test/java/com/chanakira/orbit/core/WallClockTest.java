@@ -0,0 +1,183 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link WallClock} breakdown against {@link Calendar} over years of time in zones
+ * with unusual rules: transitions at midnight, half-hour and 45-minute offsets, negative
+ * offsets, half-hour daylight saving and a skipped day. Every transition is also checked to the
+ * millisecond on either side.
+ */
+public class WallClockTest {
+
+    static final String[] ZONES = {
+            "UTC",
+            "Europe/London",
+            "America/Los_Angeles",
+            /* Daylight saving started at midnight, so 00:00 to 00:59 did not exist. */
+            "America/Sao_Paulo",
+            "America/Havana",
+            "Asia/Beirut",
+            /* Transitions at 24:00 of the previous day. */
+            "America/Santiago",
+            /* Negative half-hour offsets. */
+            "America/St_Johns",
+            "America/Caracas",
+            /* Half-hour daylight saving. */
+            "Australia/Lord_Howe",
+            "Asia/Kathmandu",
+            "Pacific/Chatham",
+            /* Skipped 30 December 2011 by moving from -10 to +14. */
+            "Pacific/Apia",
+            "Pacific/Kiritimati",
+            "Pacific/Pago_Pago",
+            /* Daylight saving suspended during Ramadan, so four transitions a year. */
+            "Africa/Casablanca"
+    };
+
+    /* 2010-01-01 and 2021-01-01 UTC. */
+    static final long FROM_MS = 1262304000000L;
+    static final long UNTIL_MS = 1609459200000L;
+
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+
+    /* A prime stride, so that the samples drift through every time of day. */
+    private static final long STRIDE_MS = 7919 * 1000L + 7;
+
+    @Test
+    public void matchesCalendarAcrossTheYears() {
+        for (String id : ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final WallClock clock = new WallClock(timeZone);
+            final Calendar calendar = Calendar.getInstance(timeZone);
+            for (long nowMs = FROM_MS; nowMs < UNTIL_MS; nowMs += STRIDE_MS) {
+                check(id, clock, calendar, nowMs);
+            }
+        }
+    }
+
+    @Test
+    public void matchesCalendarAroundEveryTransition() {
+        for (String id : ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final Calendar calendar = Calendar.getInstance(timeZone);
+            final WallClock clock = new WallClock(timeZone);
+            for (long transitionMs : transitions(timeZone, FROM_MS, UNTIL_MS)) {
+                /* Run through the transition a minute at a time, as the face would. */
+                for (long nowMs = transitionMs - 2 * HOUR_MS; nowMs < transitionMs + 2 * HOUR_MS; nowMs += MINUTE_MS) {
+                    check(id, clock, calendar, nowMs);
+                }
+                for (long deltaMs = -2; deltaMs <= 2; deltaMs++) {
+                    check(id, clock, calendar, transitionMs + deltaMs);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesCalendarAcrossMidnights() {
+        for (String id : ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final Calendar calendar = Calendar.getInstance(timeZone);
+            final WallClock clock = new WallClock(timeZone);
+            for (long dayMs = FROM_MS; dayMs < UNTIL_MS; dayMs += 24 * HOUR_MS + 17 * MINUTE_MS) {
+                calendar.setTimeInMillis(dayMs);
+                calendar.set(Calendar.HOUR_OF_DAY, 0);
+                calendar.set(Calendar.MINUTE, 0);
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                final long midnightMs = calendar.getTimeInMillis();
+                for (long deltaMs = -1; deltaMs <= 1; deltaMs++) {
+                    check(id, clock, calendar, midnightMs + deltaMs);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesCalendarAfterJumps() {
+        final Random random = new Random(14);
+        for (String id : ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final Calendar calendar = Calendar.getInstance(timeZone);
+            final WallClock clock = new WallClock(timeZone);
+            for (int i = 0; i < 20000; i++) {
+                /* The time may be set back or forward by any amount. */
+                final long nowMs = FROM_MS + (long) (random.nextDouble() * (UNTIL_MS - FROM_MS));
+                check(id, clock, calendar, nowMs);
+            }
+        }
+    }
+
+    @Test
+    public void switchesTimeZones() {
+        final WallClock clock = new WallClock(TimeZone.getTimeZone("UTC"));
+        final long nowMs = 1527847200000L;
+        for (String id : ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            clock.setTimeZone(timeZone);
+            check(id, clock, Calendar.getInstance(timeZone), nowMs);
+        }
+    }
+
+    @Test
+    public void recomputesAboutOncePerDay() {
+        final WallClock clock = new WallClock(TimeZone.getTimeZone("America/Sao_Paulo"));
+        long days = 0;
+        for (long nowMs = FROM_MS; nowMs < FROM_MS + 365 * 24 * HOUR_MS; nowMs += MINUTE_MS) {
+            clock.update(nowMs);
+            if ((nowMs - FROM_MS) % (24 * HOUR_MS) == 0) {
+                days++;
+            }
+        }
+
+        /* One recompute per day, plus one for each of the two transitions. */
+        assertTrue("recomputed " + clock.getRecomputeCount(), clock.getRecomputeCount() <= days + 3);
+    }
+
+    private static void check(String id, WallClock clock, Calendar calendar, long nowMs) {
+        clock.update(nowMs);
+        calendar.setTimeInMillis(nowMs);
+
+        final String message = id + " at " + nowMs;
+        assertEquals(message, calendar.get(Calendar.HOUR_OF_DAY), clock.getHourOfDay());
+        assertEquals(message, calendar.get(Calendar.MINUTE), clock.getMinute());
+        assertEquals(message, calendar.get(Calendar.SECOND), clock.getSecond());
+        assertEquals(message, calendar.get(Calendar.MILLISECOND), clock.getMillisecond());
+        assertEquals(message, calendar.get(Calendar.YEAR), clock.getYear());
+        assertEquals(message, calendar.get(Calendar.DAY_OF_YEAR), clock.getDayOfYear());
+        assertEquals(message, calendar.get(Calendar.DAY_OF_MONTH), clock.getDayOfMonth());
+    }
+
+    /**
+     * Returns the first millisecond of every offset change of {@code timeZone} in the range,
+     * found by scanning every minute.
+     */
+    static long[] transitions(TimeZone timeZone, long fromMs, long untilMs) {
+        long[] transitions = new long[0];
+        int offset = timeZone.getOffset(fromMs);
+        for (long nowMs = fromMs + MINUTE_MS; nowMs < untilMs; nowMs += MINUTE_MS) {
+            final int nextOffset = timeZone.getOffset(nowMs);
+            if (nextOffset != offset) {
+                long transitionMs = nowMs;
+                while (timeZone.getOffset(transitionMs - 1) == nextOffset) {
+                    transitionMs--;
+                }
+                final long[] grown = new long[transitions.length + 1];
+                System.arraycopy(transitions, 0, grown, 0, transitions.length);
+                grown[transitions.length] = transitionMs;
+                transitions = grown;
+                offset = nextOffset;
+            }
+        }
+        return transitions;
+    }
+}
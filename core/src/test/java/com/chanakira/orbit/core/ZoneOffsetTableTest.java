@@ -0,0 +1,83 @@
+package com.chanakira.orbit.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks {@link ZoneOffsetTable} against {@link TimeZone} in the zones of {@link WallClockTest},
+ * over the same years: every transition to the millisecond, samples drifting through every time
+ * of day, jumps in both directions and times outside the table.
+ */
+public class ZoneOffsetTableTest {
+
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+
+    /* A prime stride, so that the samples drift through every time of day. */
+    private static final long STRIDE_MS = 7919 * 1000L + 7;
+
+    @Test
+    public void findsEveryTransition() {
+        for (String id : WallClockTest.ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final ZoneOffsetTable table = new ZoneOffsetTable(timeZone, WallClockTest.FROM_MS, WallClockTest.UNTIL_MS);
+
+            final long[] transitions = WallClockTest.transitions(timeZone, WallClockTest.FROM_MS, WallClockTest.UNTIL_MS);
+            assertEquals(id, transitions.length, table.getTransitionCount());
+            for (long transitionMs : transitions) {
+                check(id, table, timeZone, transitionMs - 1);
+                check(id, table, timeZone, transitionMs);
+            }
+        }
+    }
+
+    @Test
+    public void matchesTimeZoneAcrossTheYears() {
+        for (String id : WallClockTest.ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final ZoneOffsetTable table = new ZoneOffsetTable(timeZone, WallClockTest.FROM_MS, WallClockTest.UNTIL_MS);
+
+            for (long nowMs = WallClockTest.FROM_MS; nowMs < WallClockTest.UNTIL_MS; nowMs += STRIDE_MS) {
+                check(id, table, timeZone, nowMs);
+            }
+        }
+    }
+
+    @Test
+    public void matchesTimeZoneAfterJumps() {
+        final Random random = new Random(25);
+        for (String id : WallClockTest.ZONES) {
+            final TimeZone timeZone = TimeZone.getTimeZone(id);
+            final ZoneOffsetTable table = new ZoneOffsetTable(timeZone, WallClockTest.FROM_MS, WallClockTest.UNTIL_MS);
+
+            for (int i = 0; i < 1000; i++) {
+                final long nowMs = WallClockTest.FROM_MS
+                        + (long) (random.nextDouble() * (WallClockTest.UNTIL_MS - WallClockTest.FROM_MS));
+                check(id, table, timeZone, nowMs);
+            }
+        }
+    }
+
+    @Test
+    public void passesTimesOutsideTheRangeToTheTimeZone() {
+        final TimeZone timeZone = TimeZone.getTimeZone("America/Santiago");
+        final long fromMs = WallClockTest.FROM_MS + 400 * 24 * HOUR_MS;
+        final long untilMs = fromMs + 30 * 24 * HOUR_MS;
+        final ZoneOffsetTable table = new ZoneOffsetTable(timeZone, fromMs, untilMs);
+
+        for (long nowMs = WallClockTest.FROM_MS; nowMs < WallClockTest.UNTIL_MS; nowMs += STRIDE_MS) {
+            check("America/Santiago", table, timeZone, nowMs);
+        }
+        assertFalse(table.covers(fromMs - 1));
+        assertFalse(table.covers(untilMs));
+    }
+
+    private static void check(String id, ZoneOffsetTable table, TimeZone timeZone, long nowMs) {
+        assertEquals(id + " at " + nowMs, timeZone.getOffset(nowMs), table.getOffset(nowMs));
+    }
+}